@@ -0,0 +1,415 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Reads a game of the Job 2 output straight from its serialized bytes, for
+ * the jobs that only need a few of its values. A record is reset for every
+ * game and reused, and a value is only decoded when it is asked for, so a
+ * mapper that reads the team Elos never decodes the player stats, and one
+ * that walks the players never builds a {@link PlayerGameWritable} or a Text
+ * key for each of them.
+ *
+ * The bytes are laid out the way {@link GameWritable#write} writes them:
+ * <ul>
+ * <li>The game: version, gameId, seasonYear, year, month and day</li>
+ * <li>The home team and then the away team: version, seasonYear, teamId,
+ * points, the 6 other team stats and the number of players</li>
+ * <li>After each team its players: playerId, name, 7 stats, startElo and
+ * endElo</li>
+ * </ul>
+ * Strings are an int length and UTF-8 bytes, the date fields and the
+ * {@link IdDictionary} indexes of the teams and players are VInts, so the
+ * offset of everything after the gameId is found by skipping over the lengths.
+ *
+ * @author nate
+ *
+ */
+public class BeforeAfterEloRecord {
+
+	/**
+	 * points, minPlayed, rebounds, assists, steals, blocks and turnovers
+	 */
+	private static final int TEAM_STATS_BYTES = 7 * 8;
+
+	/**
+	 * The 7 stats, startElo and endElo after the name
+	 */
+	private static final int PLAYER_DOUBLES_BYTES = 9 * 8;
+
+	/**
+	 * Where startElo is after the name of a player
+	 */
+	private static final int PLAYER_START_ELO_OFFSET = 7 * 8;
+
+	private byte[] bytes;
+	private int start;
+
+	/**
+	 * Where the home team starts, -1 until the game is read
+	 */
+	private int homeTeamOffset;
+
+	private int gameIdOffset;
+	private int gameIdLength;
+	private int seasonYear;
+	private int year;
+	private int month;
+	private int day;
+
+	private Team homeTeam;
+	private Team awayTeam;
+
+	public BeforeAfterEloRecord() {
+
+		this.homeTeam = new Team();
+		this.awayTeam = new Team();
+		reset(new byte[0], 0);
+	}
+
+	/**
+	 * @param key
+	 *            The raw bytes of a Job 2 key, a DoubleWritable
+	 * @return The K Factor
+	 */
+	public static double getKFactor(BytesWritable key) {
+		return WritableComparator.readDouble(key.getBytes(), 0);
+	}
+
+	/**
+	 * Starts reading a game
+	 *
+	 * @param value
+	 *            The raw bytes of a {@link GameWritable}, they must not change
+	 *            while the game is read
+	 * @return This record
+	 */
+	public BeforeAfterEloRecord reset(BytesWritable value) {
+		return reset(value.getBytes(), 0);
+	}
+
+	/**
+	 * Starts reading a game
+	 *
+	 * @param bytes
+	 *            The bytes holding a serialized {@link GameWritable}
+	 * @param start
+	 *            Where the game starts
+	 * @return This record
+	 */
+	public BeforeAfterEloRecord reset(byte[] bytes, int start) {
+
+		this.bytes = bytes;
+		this.start = start;
+		this.homeTeamOffset = -1;
+		this.homeTeam.reset(-1);
+		this.awayTeam.reset(-1);
+		return this;
+	}
+
+	public String getGameId() throws IOException {
+
+		readGame();
+		return new String(bytes, gameIdOffset, gameIdLength, StandardCharsets.UTF_8);
+	}
+
+	public int getSeasonYear() throws IOException {
+
+		readGame();
+		return seasonYear;
+	}
+
+	public int getYear() throws IOException {
+
+		readGame();
+		return year;
+	}
+
+	public int getMonth() throws IOException {
+
+		readGame();
+		return month;
+	}
+
+	public int getDay() throws IOException {
+
+		readGame();
+		return day;
+	}
+
+	public Team getHomeTeam() throws IOException {
+
+		readGame();
+		if (homeTeam.offset < 0) {
+			homeTeam.reset(homeTeamOffset);
+		}
+		return homeTeam;
+	}
+
+	public Team getAwayTeam() throws IOException {
+
+		if (awayTeam.offset < 0) {
+			awayTeam.reset(getHomeTeam().getEndOffset());
+		}
+		return awayTeam;
+	}
+
+	/**
+	 * Reads the game fields before the home team
+	 */
+	private void readGame() throws IOException {
+
+		if (homeTeamOffset >= 0) {
+			return;
+		}
+
+		int offset = start;
+		checkVersion(bytes[offset], GameWritable.VERSION, "GameWritable");
+		++offset;
+
+		gameIdLength = Math.max(0, WritableComparator.readInt(bytes, offset));
+		gameIdOffset = offset + 4;
+		offset = gameIdOffset + gameIdLength;
+
+		seasonYear = WritableComparator.readVInt(bytes, offset);
+		offset += WritableUtils.decodeVIntSize(bytes[offset]);
+		year = WritableComparator.readVInt(bytes, offset);
+		offset += WritableUtils.decodeVIntSize(bytes[offset]);
+		month = WritableComparator.readVInt(bytes, offset);
+		offset += WritableUtils.decodeVIntSize(bytes[offset]);
+		day = WritableComparator.readVInt(bytes, offset);
+		offset += WritableUtils.decodeVIntSize(bytes[offset]);
+
+		homeTeamOffset = offset;
+	}
+
+	/**
+	 * @return Where the string at the offset ends
+	 */
+	private int skipString(int offset) {
+		return offset + 4 + Math.max(0, WritableComparator.readInt(bytes, offset));
+	}
+
+	/**
+	 * @return Where the VInt at the offset ends
+	 */
+	private int skipVInt(int offset) {
+		return offset + WritableUtils.decodeVIntSize(bytes[offset]);
+	}
+
+	private static void checkVersion(byte version, byte expected, String name) throws IOException {
+
+		if (version != expected) {
+			throw new IOException("Unsupported " + name + " version: " + version);
+		}
+	}
+
+	/**
+	 * A team of the game, reused for every game
+	 */
+	public class Team {
+
+		/**
+		 * Where the team starts, -1 until it is found
+		 */
+		private int offset;
+
+		/**
+		 * Where the stats start, -1 until the team is read
+		 */
+		private int statsOffset;
+		private int teamId;
+		private int playerCount;
+
+		/**
+		 * Where the first player starts
+		 */
+		private int playersOffset;
+
+		/**
+		 * Where the last player ends, -1 until the players are skipped
+		 */
+		private int endOffset;
+
+		private Players players = new Players();
+
+		private void reset(int offset) {
+
+			this.offset = offset;
+			this.statsOffset = -1;
+			this.endOffset = -1;
+		}
+
+		/**
+		 * @return The {@link IdDictionary} index of the team
+		 */
+		public int getTeamId() throws IOException {
+
+			readTeam();
+			return teamId;
+		}
+
+		public double getPoints() throws IOException {
+
+			readTeam();
+			return WritableComparator.readDouble(bytes, statsOffset);
+		}
+
+		public int getPlayerCount() throws IOException {
+
+			readTeam();
+			return playerCount;
+		}
+
+		/**
+		 * @return The average start Elo of the players, the same as
+		 *         {@link TeamGameWritable#getStartElo}
+		 */
+		public double getStartElo() throws IOException {
+			return getAverageElo(0);
+		}
+
+		/**
+		 * @return The average end Elo of the players, the same as
+		 *         {@link TeamGameWritable#getEndElo}
+		 */
+		public double getEndElo() throws IOException {
+			return getAverageElo(8);
+		}
+
+		/**
+		 * @return The players of the team, from the first. The same
+		 *         {@link Players} is returned every time.
+		 */
+		public Players getPlayers() throws IOException {
+
+			readTeam();
+			players.reset(playersOffset, playerCount);
+			return players;
+		}
+
+		private double getAverageElo(int eloOffset) throws IOException {
+
+			readTeam();
+			if (playerCount == 0) {
+				return 0;
+			}
+
+			// Summed in roster order, the same order a read TeamGameWritable
+			// iterates its players
+			double sum = 0;
+			int playerOffset = playersOffset;
+			for (int index = 0; index < playerCount; ++index) {
+
+				int doublesOffset = skipString(skipVInt(playerOffset));
+				sum += WritableComparator.readDouble(bytes, doublesOffset + PLAYER_START_ELO_OFFSET + eloOffset);
+				playerOffset = doublesOffset + PLAYER_DOUBLES_BYTES;
+			}
+			return sum / playerCount;
+		}
+
+		/**
+		 * @return Where the next team starts
+		 */
+		private int getEndOffset() throws IOException {
+
+			readTeam();
+			if (endOffset < 0) {
+
+				int playerOffset = playersOffset;
+				for (int index = 0; index < playerCount; ++index) {
+					playerOffset = skipString(skipVInt(playerOffset)) + PLAYER_DOUBLES_BYTES;
+				}
+				endOffset = playerOffset;
+			}
+			return endOffset;
+		}
+
+		/**
+		 * Reads the team fields before its stats
+		 */
+		private void readTeam() throws IOException {
+
+			if (statsOffset >= 0) {
+				return;
+			}
+
+			int position = offset;
+			checkVersion(bytes[position], TeamGameWritable.VERSION, "TeamGameWritable");
+			++position;
+
+			// The seasonYear of a team is never set, skip it
+			position = skipVInt(position);
+
+			teamId = WritableComparator.readVInt(bytes, position);
+			statsOffset = skipVInt(position);
+			position = statsOffset + TEAM_STATS_BYTES;
+
+			playerCount = WritableComparator.readVInt(bytes, position);
+			playersOffset = position + WritableUtils.decodeVIntSize(bytes[position]);
+		}
+	}
+
+	/**
+	 * Walks the players of a team without allocating, reused for every team
+	 */
+	public class Players {
+
+		/**
+		 * Where the next player starts
+		 */
+		private int nextOffset;
+		private int remaining;
+
+		private int playerId;
+
+		/**
+		 * Where the stats of the current player start
+		 */
+		private int doublesOffset;
+
+		private void reset(int firstOffset, int playerCount) {
+
+			this.nextOffset = firstOffset;
+			this.remaining = playerCount;
+		}
+
+		/**
+		 * Moves to the next player
+		 *
+		 * @return false if there are no more players
+		 */
+		public boolean next() throws IOException {
+
+			if (remaining == 0) {
+				return false;
+			}
+			--remaining;
+
+			playerId = WritableComparator.readVInt(bytes, nextOffset);
+			doublesOffset = skipString(skipVInt(nextOffset));
+			nextOffset = doublesOffset + PLAYER_DOUBLES_BYTES;
+			return true;
+		}
+
+		/**
+		 * @return The {@link IdDictionary} index of the player
+		 */
+		public int getPlayerId() {
+			return playerId;
+		}
+
+		public double getStartElo() {
+			return WritableComparator.readDouble(bytes, doublesOffset + PLAYER_START_ELO_OFFSET);
+		}
+
+		public double getEndElo() {
+			return WritableComparator.readDouble(bytes, doublesOffset + PLAYER_START_ELO_OFFSET + 8);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package cs435.nba.elo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the N highest Elos seen, one per id. A min-heap holds the current
+ * best so the lowest of them can be checked and evicted in log time, and an
+ * index by id keeps only the best Elo of every id.
+ *
+ * @author nate
+ *
+ */
+public class BestIdElos {
+
+	/**
+	 * Orders the highest Elo first, ties are broken by id so the output does
+	 * not depend on the order values were offered in. Indexes are assigned in
+	 * ID order, so this is the same order as breaking ties by the IDs.
+	 */
+	private static final Comparator<IdEloWritable> HIGHEST_FIRST = new Comparator<IdEloWritable>() {
+
+		@Override
+		public int compare(IdEloWritable one, IdEloWritable two) {
+
+			int compare = one.compareTo(two);
+			if (compare == 0) {
+				compare = Integer.compare(one.getId(), two.getId());
+			}
+			return compare;
+		}
+	};
+
+	/**
+	 * The number of Elos to keep
+	 */
+	private int n;
+
+	/**
+	 * The best Elos, lowest first
+	 */
+	private PriorityQueue<IdEloWritable> heap;
+
+	/**
+	 * The Elo in the heap for every id
+	 */
+	private Map<Integer, IdEloWritable> index;
+
+	/**
+	 * Constructor
+	 *
+	 * @param n
+	 *            The number of Elos to keep
+	 */
+	public BestIdElos(int n) {
+
+		this.n = n;
+		this.heap = new PriorityQueue<IdEloWritable>(Math.max(n, 1), Collections.reverseOrder(HIGHEST_FIRST));
+		this.index = new HashMap<Integer, IdEloWritable>();
+	}
+
+	/**
+	 * Offers an Elo. It is kept if it is better than the Elo already kept for
+	 * its id, or if it is a new id and better than the lowest kept Elo. The
+	 * value is copied, so it is safe to pass in a reused Hadoop value.
+	 *
+	 * @param value
+	 *            The {@link IdEloWritable} to offer
+	 * @return true if the Elo was kept
+	 */
+	public boolean offer(IdEloWritable value) {
+
+		IdEloWritable current = index.get(value.getId());
+		if (current != null) {
+
+			// Only keep the best Elo of each id
+			if (HIGHEST_FIRST.compare(value, current) >= 0) {
+				return false;
+			}
+			heap.remove(current);
+
+		} else if (heap.size() >= n) {
+
+			// Full, so it has to beat the lowest Elo we have
+			if (n == 0 || HIGHEST_FIRST.compare(value, heap.peek()) >= 0) {
+				return false;
+			}
+			index.remove(heap.poll().getId());
+		}
+
+		IdEloWritable copy = new IdEloWritable(value);
+		heap.add(copy);
+		index.put(copy.getId(), copy);
+		return true;
+	}
+
+	/**
+	 * @return The kept Elos, highest first
+	 */
+	public List<IdEloWritable> getBest() {
+
+		List<IdEloWritable> best = new ArrayList<IdEloWritable>(heap);
+		Collections.sort(best, HIGHEST_FIRST);
+		return best;
+	}
+}
@@ -24,6 +24,12 @@ public class Constants {
 	 */
 	public static final String INVALID_ID = "xINVALIDx";
 
+	/**
+	 * Represents an invalid {@link IdDictionary} index, used where default
+	 * constructors are required
+	 */
+	public static final int INVALID_INDEX = -1;
+
 	/**
 	 * An empty string to use
 	 */
@@ -69,4 +75,113 @@ public class Constants {
 	 * The final K-Factor
 	 */
 	public static final int FINAL_K_FACTOR = 17;
+
+	/**
+	 * Whether a K-Factor sweep splits the K-Factors into one block per reducer
+	 * and shuffles each game once per block, so each reducer gets each game
+	 * once and rates its whole block in a single pass, instead of sending a
+	 * copy of each game for every K-Factor
+	 */
+	public static boolean SINGLE_SHUFFLE_SWEEP = true;
+
+	/**
+	 * Whether the Elo reducer calculates the K-Factor metrics while it rates
+	 * the games and writes them as side outputs, instead of a separate job
+	 * parsing them back out of the BeforeAfterElo output
+	 */
+	public static boolean INLINE_METRICS = true;
+
+	/**
+	 * The configuration key for how many players or teams the best players
+	 * and best teams jobs keep for each K-Factor
+	 */
+	public static final String BEST_N_KEY = "cs435.nba.elo.best.n";
+
+	/**
+	 * How many players or teams the best players and best teams jobs keep for
+	 * each K-Factor when {@link #BEST_N_KEY} is not set
+	 */
+	public static final int DEFAULT_BEST_N = 10;
+
+	/**
+	 * The configuration key for whether the best Elos job ranks teams instead
+	 * of players, so its reducer decodes the right kind of index
+	 */
+	public static final String BEST_TEAMS_KEY = "cs435.nba.elo.best.teams";
+
+	/**
+	 * Whether the game and player join may run on the map side when the
+	 * inputs allow it
+	 */
+	public static boolean MAP_SIDE_JOIN = true;
+
+	/**
+	 * The largest games file that is broadcast for a map side join
+	 */
+	public static final long MAP_SIDE_JOIN_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * The most MapReduce jobs of the pipeline that are submitted at the same
+	 * time, jobs whose inputs are ready wait for a free slot
+	 */
+	public static int MAX_RUNNING_JOBS = 4;
+
+	/**
+	 * Whether the first job of the pipeline to fail kills the jobs still
+	 * running instead of letting them finish
+	 */
+	public static boolean FAIL_FAST = true;
+
+	/**
+	 * How many times a failed job is submitted again before the pipeline
+	 * fails
+	 */
+	public static final int JOB_RETRIES = 1;
+
+	/**
+	 * Milliseconds to wait before the first retry of a failed job, doubled for
+	 * every retry after it
+	 */
+	public static final long JOB_RETRY_BACKOFF_TIME = 10 * 1000;
+
+	/**
+	 * The configuration key for the output directory of an earlier Job 2 whose
+	 * {@link EloCheckpoint} the Elo job starts from, only games after it are
+	 * rated
+	 */
+	public static final String CHECKPOINT_DIR_KEY = "cs435.nba.elo.checkpoint.dir";
+
+	/**
+	 * The configuration key for a file of {@link LeagueStats} the Elo job
+	 * rates games with, for seasons that are not built in
+	 */
+	public static final String LEAGUE_STATS_FILE_KEY = "cs435.nba.elo.league.stats.file";
+
+	/**
+	 * Whether the Elo job writes a {@link RatingHistoryWriter} file for every
+	 * K Factor next to its output
+	 */
+	public static boolean WRITE_RATING_HISTORY = true;
+
+	/**
+	 * The port {@link RatingQueryServer} listens on when none is given
+	 */
+	public static final int QUERY_SERVER_PORT = 8435;
+
+	/**
+	 * How many threads {@link RatingQueryServer} answers queries with
+	 */
+	public static final int QUERY_SERVER_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * How many connections {@link RatingQueryServer} queues before refusing
+	 * them
+	 */
+	public static final int QUERY_SERVER_BACKLOG = 1024;
+
+	/**
+	 * Milliseconds between {@link RatingQueryServer} checks for a new Job 2
+	 * output to load
+	 */
+	public static final long QUERY_RELOAD_CHECK_TIME = 10 * 1000;
 }
@@ -0,0 +1,414 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+
+/**
+ * The Elo of every player for every K Factor after the last rated game, so a
+ * later run can start from it and only rate the games after it. Job 2 writes
+ * a checkpoint as a named output next to its BeforeAfterElo output, keyed by
+ * the K Factor and the date of the last game rated for it. The IDs of the
+ * games rated on the last date are written to a second named output, so a
+ * later run only skips those and still rates a game of that date that was
+ * missing from the earlier input.
+ *
+ * On disk the players are keyed by their IDs, since a later run builds its
+ * own {@link IdDictionary}. In memory they are keyed by the index of this
+ * run's dictionary.
+ *
+ * @author nate
+ *
+ */
+public class EloCheckpoint {
+
+	/**
+	 * Name of the output Job 2 writes the checkpoint to
+	 */
+	public static final String CHECKPOINT_OUTPUT = "EloCheckpoint";
+
+	/**
+	 * Name of the output Job 2 writes the IDs of the games rated on the last
+	 * date to
+	 */
+	public static final String CHECKPOINT_GAMES_OUTPUT = "EloCheckpointGames";
+
+	/**
+	 * The Elo of every player, by K Factor
+	 */
+	private Map<Integer, RatingTable> ratingTables;
+
+	/**
+	 * The number of players a new {@link RatingTable} is sized for
+	 */
+	private int playerCount;
+
+	/**
+	 * The date of the last game rated, by K Factor
+	 */
+	private Map<Integer, KFactorDateWritable> lastGameDates;
+
+	/**
+	 * The latest date a game was rated on, null before any game, and the IDs
+	 * of the games rated on it
+	 */
+	private KFactorDateWritable lastDate;
+	private Set<String> lastDateGameIds;
+
+	/**
+	 * Constructor for an empty checkpoint, every player starts at
+	 * {@link Constants#START_ELO}
+	 *
+	 * @param playerCount
+	 *            The number of players in the {@link IdDictionary}
+	 */
+	public EloCheckpoint(int playerCount) {
+
+		this.ratingTables = new HashMap<Integer, RatingTable>();
+		this.lastGameDates = new HashMap<Integer, KFactorDateWritable>();
+		this.lastDateGameIds = new HashSet<String>();
+		this.playerCount = playerCount;
+	}
+
+	/**
+	 * @param kFactor
+	 *            The K Factor
+	 * @return The Elo of every player for the K Factor, changes to it are
+	 *         written with the checkpoint
+	 */
+	public RatingTable getRatingTable(int kFactor) {
+
+		RatingTable ratingTable = ratingTables.get(kFactor);
+		if (ratingTable == null) {
+			ratingTable = new RatingTable(playerCount);
+			ratingTables.put(kFactor, ratingTable);
+		}
+		return ratingTable;
+	}
+
+	/**
+	 * @param kFactor
+	 *            The K Factor
+	 * @return true if a game was rated for the K Factor or it was read from
+	 *         the checkpoint
+	 */
+	public boolean hasKFactor(int kFactor) {
+		return lastGameDates.containsKey(kFactor);
+	}
+
+	/**
+	 * @return Every K Factor that was rated or read from the checkpoint
+	 */
+	public Set<Integer> getKFactors() {
+		return lastGameDates.keySet();
+	}
+
+	/**
+	 * Records a game as rated for a K Factor. Games are rated in date order
+	 * so this is the last game so far.
+	 *
+	 * @param kFactor
+	 *            The K Factor the game was rated with
+	 * @param game
+	 *            The {@link GameWritable} that was rated
+	 */
+	public void setLastGame(int kFactor, GameWritable game) {
+
+		KFactorDateWritable date = new KFactorDateWritable(kFactor, game.getSeasonYear(), game.getYear(),
+				game.getMonth(), game.getDay());
+		lastGameDates.put(kFactor, date);
+		addLastDateGame(date, game.getGameId());
+	}
+
+	/**
+	 * Keeps the ID of a game if it was rated on the latest date so far. Every
+	 * K Factor rates the same games, so each K Factor adds the same IDs.
+	 */
+	private void addLastDateGame(KFactorDateWritable date, String gameId) {
+
+		if (lastDate == null || date.getPackedDate() > lastDate.getPackedDate()) {
+			lastDate = date;
+			lastDateGameIds.clear();
+		}
+		if (date.getPackedDate() == lastDate.getPackedDate()) {
+			lastDateGameIds.add(gameId);
+		}
+	}
+
+	/**
+	 * Reads every checkpoint file of a Job 2 output
+	 *
+	 * @param conf
+	 *            The configuration of the task
+	 * @param checkpointDir
+	 *            The output directory of the Job 2 that wrote the checkpoint
+	 * @param kFactorFilter
+	 *            Only the K Factors it accepts are kept, null to keep all
+	 * @param dictionary
+	 *            The {@link IdDictionary} of this run, players and teams
+	 *            that are not in it are added to it
+	 * @return The checkpoint
+	 * @throws IOException
+	 *             If the checkpoint could not be read
+	 */
+	public static EloCheckpoint read(Configuration conf, String checkpointDir, KFactorFilter kFactorFilter,
+			IdDictionary dictionary) throws IOException {
+
+		EloCheckpoint checkpoint = new EloCheckpoint(dictionary.getPlayerCount());
+		for (Path path : getFiles(conf, checkpointDir, CHECKPOINT_OUTPUT)) {
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+			try {
+				KFactorDateWritable key = new KFactorDateWritable();
+				PlayerEloWritable value = new PlayerEloWritable();
+				while (reader.next(key, value)) {
+
+					int kFactor = key.getKFactor();
+					if (kFactorFilter == null || kFactorFilter.accept(kFactor)) {
+
+						// Players without a game in this run keep the team of
+						// their last game before the checkpoint
+						int teamId = Constants.INVALID_INDEX;
+						if (!Constants.INVALID_ID.equals(value.getTeamId())) {
+							teamId = dictionary.addTeam(value.getTeamId());
+						}
+						checkpoint.getRatingTable(kFactor).add(dictionary.addPlayer(value.getPlayerId()),
+								value.getName(), teamId, value.getElo());
+						checkpoint.lastGameDates.put(kFactor, key);
+						key = new KFactorDateWritable();
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		// A game rated on the checkpoint's last date keeps being skipped if
+		// this run rates no later game
+		for (Path path : getFiles(conf, checkpointDir, CHECKPOINT_GAMES_OUTPUT)) {
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+			try {
+				KFactorDateWritable key = new KFactorDateWritable();
+				Text value = new Text();
+				while (reader.next(key, value)) {
+
+					checkpoint.addLastDateGame(key, value.toString());
+					key = new KFactorDateWritable();
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * Reads which games a checkpoint has rated, without its Elos
+	 *
+	 * @param conf
+	 *            The configuration of the task
+	 * @param checkpointDir
+	 *            The output directory of the Job 2 that wrote the checkpoint
+	 * @return The rated games, null if the checkpoint is empty
+	 * @throws IOException
+	 *             If the checkpoint could not be read
+	 */
+	public static RatedGames readRatedGames(Configuration conf, String checkpointDir) throws IOException {
+
+		KFactorDateWritable date = readDate(conf, checkpointDir);
+		if (date == null) {
+			return null;
+		}
+
+		Path[] gamesFiles = getFiles(conf, checkpointDir, CHECKPOINT_GAMES_OUTPUT);
+		if (gamesFiles.length == 0) {
+			System.err.println("No " + CHECKPOINT_GAMES_OUTPUT + " found in " + checkpointDir
+					+ ", skipping every game on the checkpoint's last date " + date);
+			return new RatedGames(date.getPackedDate(), null);
+		}
+
+		Set<String> gameIds = new HashSet<String>();
+		for (Path path : gamesFiles) {
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+			try {
+				KFactorDateWritable key = new KFactorDateWritable();
+				Text value = new Text();
+				while (reader.next(key, value)) {
+					if (key.getPackedDate() == date.getPackedDate()) {
+						gameIds.add(value.toString());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return new RatedGames(date.getPackedDate(), gameIds);
+	}
+
+	/**
+	 * Reads only the date of the checkpoint, without its Elos
+	 *
+	 * @param conf
+	 *            The configuration of the task
+	 * @param checkpointDir
+	 *            The output directory of the Job 2 that wrote the checkpoint
+	 * @return The earliest last game date of any K Factor, null if the
+	 *         checkpoint is empty
+	 * @throws IOException
+	 *             If the checkpoint could not be read
+	 */
+	public static KFactorDateWritable readDate(Configuration conf, String checkpointDir) throws IOException {
+
+		// Every K Factor rates the same games, so the first record of each
+		// file is enough
+		KFactorDateWritable date = null;
+		for (Path path : getFiles(conf, checkpointDir, CHECKPOINT_OUTPUT)) {
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+			try {
+				KFactorDateWritable key = new KFactorDateWritable();
+				if (reader.next(key) && (date == null || date.getPackedDate() > key.getPackedDate())) {
+					date = key;
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return date;
+	}
+
+	/**
+	 * Writes the Elo of every player of every K Factor in this checkpoint
+	 *
+	 * @param multipleOutputs
+	 *            The {@link MultipleOutputs} of the Job 2 reducer
+	 * @param dictionary
+	 *            The {@link IdDictionary} to decode the players with
+	 */
+	public void write(MultipleOutputs<?, ?> multipleOutputs, IdDictionary dictionary) throws IOException,
+			InterruptedException {
+
+		for (Integer kFactor : lastGameDates.keySet()) {
+
+			KFactorDateWritable date = lastGameDates.get(kFactor);
+			RatingTable ratingTable = getRatingTable(kFactor);
+			for (int playerId = 0; playerId < ratingTable.getCapacity(); ++playerId) {
+				if (ratingTable.contains(playerId)) {
+					multipleOutputs.write(CHECKPOINT_OUTPUT, date, ratingTable.getPlayerElo(playerId, dictionary));
+				}
+			}
+		}
+
+		if (lastDate != null) {
+			for (String gameId : lastDateGameIds) {
+				multipleOutputs.write(CHECKPOINT_GAMES_OUTPUT, lastDate, new Text(gameId));
+			}
+		}
+	}
+
+	/**
+	 * Adds the checkpoint named output to Job 2
+	 *
+	 * @param job
+	 *            The job that writes the checkpoint
+	 */
+	public static void addNamedOutput(Job job) {
+		MultipleOutputs.addNamedOutput(job, CHECKPOINT_OUTPUT, SequenceFileOutputFormat.class,
+				KFactorDateWritable.class, PlayerEloWritable.class);
+		MultipleOutputs.addNamedOutput(job, CHECKPOINT_GAMES_OUTPUT, SequenceFileOutputFormat.class,
+				KFactorDateWritable.class, Text.class);
+	}
+
+	/**
+	 * @param conf
+	 *            The configuration of the task
+	 * @param checkpointDir
+	 *            The output directory of the Job 2 that wrote the checkpoint
+	 * @param outputName
+	 *            The named output to list
+	 * @return The files of the named output, none for the games of a
+	 *         checkpoint written before they were
+	 * @throws IOException
+	 *             If there is no checkpoint in the directory
+	 */
+	private static Path[] getFiles(Configuration conf, String checkpointDir, String outputName) throws IOException {
+
+		Path pattern = new Path(checkpointDir, outputName + "-r-*");
+		FileSystem fs = pattern.getFileSystem(conf);
+		FileStatus[] statuses = fs.globStatus(pattern);
+		if (statuses == null) {
+			statuses = new FileStatus[0];
+		}
+		if (statuses.length == 0 && outputName.equals(CHECKPOINT_OUTPUT)) {
+			throw new IOException("No checkpoint found in " + checkpointDir);
+		}
+
+		Path[] paths = new Path[statuses.length];
+		for (int index = 0; index < statuses.length; ++index) {
+			paths[index] = statuses[index].getPath();
+		}
+		return paths;
+	}
+
+	/**
+	 * The games a checkpoint has rated: every game before its last date and
+	 * the games it rated on that date
+	 */
+	public static class RatedGames {
+
+		private long lastDate;
+
+		/**
+		 * null if the checkpoint did not record them, then every game on the
+		 * last date counts as rated
+		 */
+		private Set<String> lastDateGameIds;
+
+		public RatedGames(long lastDate, Set<String> lastDateGameIds) {
+			this.lastDate = lastDate;
+			this.lastDateGameIds = lastDateGameIds;
+		}
+
+		/**
+		 * @param game
+		 *            The {@link GameWritable} to check
+		 * @return true if the game is already in the checkpoint
+		 */
+		public boolean isRated(GameWritable game) {
+
+			long date = KFactorDateWritable.packDate(game.getSeasonYear(), game.getYear(), game.getMonth(),
+					game.getDay());
+			if (date != lastDate) {
+				return date < lastDate;
+			}
+			return lastDateGameIds == null || lastDateGameIds.contains(game.getGameId());
+		}
+	}
+
+	/**
+	 * Picks which K Factors of a checkpoint are read
+	 */
+	public interface KFactorFilter {
+
+		/**
+		 * @param kFactor
+		 *            A K Factor in the checkpoint
+		 * @return true to read it
+		 */
+		boolean accept(int kFactor);
+	}
+}
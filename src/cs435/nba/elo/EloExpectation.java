@@ -0,0 +1,56 @@
+package cs435.nba.elo;
+
+/**
+ * The expected score of the Elo model, shared by rating a game, the metrics
+ * and the win probability predictions. A team with Elo a is expected to score
+ * 10^(a/400) / (10^(a/400) + 10^(b/400)) against a team with Elo b, which is
+ * computed here as 1 / (1 + 10^((b - a)/400)). That is one pow per game
+ * instead of two, the opponent's expected score is one minus it, and it does
+ * not overflow for large Elos. It is within a few ulps of the two pow form.
+ *
+ * @author nate
+ *
+ */
+public class EloExpectation {
+
+	/**
+	 * An Elo difference of this many points makes a team 10 times as likely to
+	 * win
+	 */
+	private static final double SCALE = 400;
+
+	/**
+	 * @param elo
+	 *            The Elo of a team
+	 * @param otherElo
+	 *            The Elo of its opponent
+	 * @return The expected score of the team, its opponent's expected score is
+	 *         one minus it
+	 */
+	public static double getExpectedScore(double elo, double otherElo) {
+		return 1 / (1 + Math.pow(10, (otherElo - elo) / SCALE));
+	}
+
+	/**
+	 * Computes the expected scores of many games at once, the same as
+	 * {@link EloExpectation#getExpectedScore} for each of them
+	 *
+	 * @param elos
+	 *            The Elo of a team in each game
+	 * @param otherElos
+	 *            The Elo of its opponent in each game
+	 * @param expectedScores
+	 *            Where the expected score of the team in each game is written
+	 * @param from
+	 *            The first game
+	 * @param to
+	 *            One past the last game
+	 */
+	public static void getExpectedScores(double[] elos, double[] otherElos, double[] expectedScores, int from,
+			int to) {
+
+		for (int index = from; index < to; ++index) {
+			expectedScores[index] = 1 / (1 + Math.pow(10, (otherElos[index] - elos[index]) / SCALE));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package cs435.nba.elo;
+
+import java.util.Random;
+
+/**
+ * Checks {@link EloExpectation} against the two pow form of the expected score
+ * it replaced, 10^(a/400) / (10^(a/400) + 10^(b/400)), over random Elos from
+ * the range a rating can reach. Exits with 1 if any expected score is further
+ * from the old form than the bounds, or if the batch form does not give
+ * exactly the same expected scores as the single form.
+ *
+ * @author nate
+ *
+ */
+public class EloExpectationCheck {
+
+	/**
+	 * The largest difference from the old form allowed for an expected score,
+	 * a few ulps of an expected score near one
+	 */
+	private static final double MAX_ABSOLUTE_ERROR = 1e-14;
+
+	/**
+	 * The largest difference from the old form allowed relative to the old
+	 * expected score
+	 */
+	private static final double MAX_RELATIVE_ERROR = 1e-13;
+
+	/**
+	 * The Elos checked are this far from {@link Constants#START_ELO} at most,
+	 * the two pow form overflows not far past it
+	 */
+	private static final double MAX_ELO_OFFSET = 2000;
+
+	private static final int DEFAULT_GAMES = 1000000;
+
+	public static void main(String[] args) {
+
+		if (args.length > 2) {
+			System.err.println("Usage: <jar file> [games] [seed]");
+			System.exit(-1);
+		}
+
+		int games = DEFAULT_GAMES;
+		if (args.length > 0) {
+			games = Integer.parseInt(args[0]);
+		}
+		long seed = 435;
+		if (args.length > 1) {
+			seed = Long.parseLong(args[1]);
+		}
+
+		Random random = new Random(seed);
+		double[] elos = new double[games];
+		double[] otherElos = new double[games];
+		for (int index = 0; index < games; ++index) {
+			elos[index] = Constants.START_ELO + (random.nextDouble() * 2 - 1) * MAX_ELO_OFFSET;
+			otherElos[index] = Constants.START_ELO + (random.nextDouble() * 2 - 1) * MAX_ELO_OFFSET;
+		}
+
+		double[] expectedScores = new double[games];
+		EloExpectation.getExpectedScores(elos, otherElos, expectedScores, 0, games);
+
+		double maxAbsoluteError = 0;
+		double maxRelativeError = 0;
+		int batchMismatches = 0;
+		for (int index = 0; index < games; ++index) {
+
+			double expectedScore = EloExpectation.getExpectedScore(elos[index], otherElos[index]);
+			if (Double.doubleToLongBits(expectedScore) != Double.doubleToLongBits(expectedScores[index])) {
+				++batchMismatches;
+			}
+
+			double oldExpectedScore = getTwoPowExpectedScore(elos[index], otherElos[index]);
+			double absoluteError = Math.abs(expectedScore - oldExpectedScore);
+			maxAbsoluteError = Math.max(maxAbsoluteError, absoluteError);
+			maxRelativeError = Math.max(maxRelativeError, absoluteError / oldExpectedScore);
+		}
+
+		System.out.println("Games:\t" + games);
+		System.out.println("Max absolute error:\t" + maxAbsoluteError);
+		System.out.println("Max relative error:\t" + maxRelativeError);
+		System.out.println("Batch mismatches:\t" + batchMismatches);
+
+		if (maxAbsoluteError > MAX_ABSOLUTE_ERROR || maxRelativeError > MAX_RELATIVE_ERROR || batchMismatches > 0) {
+			System.err.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * The expected score the way it was computed before
+	 * {@link EloExpectation}
+	 */
+	private static double getTwoPowExpectedScore(double elo, double otherElo) {
+
+		double r = Math.pow(10, elo / 400);
+		double otherR = Math.pow(10, otherElo / 400);
+		return r / (r + otherR);
+	}
+}
@@ -0,0 +1,385 @@
+package cs435.nba.elo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Walks the fields of a line straight from its UTF-8 bytes, so a mapper can
+ * read the fields it needs without splitting the line into Strings or
+ * compiling a regex for every record. A cursor is reset for every line and
+ * reused, and only the fields read as Strings allocate.
+ *
+ * Fields are separated by a single character, or by runs of whitespace like
+ * split("\\s+"). {@link FieldCursor#getFieldCount} counts the fields the same
+ * way String.split does, so the column count checks of the mappers behave the
+ * same.
+ *
+ * @author nate
+ *
+ */
+public class FieldCursor {
+
+	/**
+	 * Separator for fields separated by runs of whitespace
+	 */
+	public static final char WHITESPACE = 0;
+
+	/**
+	 * Powers of ten a number with up to
+	 * {@link FieldCursor#MAX_FAST_DIGITS} digits is scaled by, all exact
+	 * doubles
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15 };
+
+	/**
+	 * Numbers with up to this many digits fit exactly in a double, so dividing
+	 * them by a power of ten rounds the same as Double.parseDouble
+	 */
+	private static final int MAX_FAST_DIGITS = 15;
+
+	private byte separator;
+
+	private byte[] bytes;
+	private int end;
+
+	/**
+	 * Where the current field starts and ends
+	 */
+	private int fieldStart;
+	private int fieldEnd;
+
+	/**
+	 * Where the next field starts, past end once the last field is read
+	 */
+	private int position;
+
+	/**
+	 * The index of the start of the line in {@link FieldCursor#bytes}
+	 */
+	private int start;
+
+	/**
+	 * Constructor
+	 *
+	 * @param separator
+	 *            The character between fields, an ASCII character or
+	 *            {@link FieldCursor#WHITESPACE}
+	 */
+	public FieldCursor(char separator) {
+
+		if (separator > 127) {
+			throw new IllegalArgumentException("Separator must be ASCII: " + separator);
+		}
+
+		this.separator = (byte) separator;
+		reset(new byte[0], 0, 0);
+	}
+
+	/**
+	 * Starts reading a line, before its first field
+	 *
+	 * @param text
+	 *            The line, it must not change while it is read
+	 * @return This cursor
+	 */
+	public FieldCursor reset(Text text) {
+		return reset(text.getBytes(), 0, text.getLength());
+	}
+
+	/**
+	 * Starts reading a line, before its first field
+	 *
+	 * @param line
+	 *            The line
+	 * @return This cursor
+	 */
+	public FieldCursor reset(String line) {
+
+		byte[] utf8 = line.getBytes(StandardCharsets.UTF_8);
+		return reset(utf8, 0, utf8.length);
+	}
+
+	/**
+	 * Starts reading a line, before its first field
+	 *
+	 * @param bytes
+	 *            The UTF-8 bytes holding the line
+	 * @param start
+	 *            The index of the start of the line
+	 * @param length
+	 *            The length of the line
+	 * @return This cursor
+	 */
+	public FieldCursor reset(byte[] bytes, int start, int length) {
+
+		this.bytes = bytes;
+		this.start = start;
+		this.end = start + length;
+		this.position = start;
+		this.fieldStart = start;
+		this.fieldEnd = start;
+		return this;
+	}
+
+	/**
+	 * Moves back before the first field of the line
+	 *
+	 * @return This cursor
+	 */
+	public FieldCursor rewind() {
+		return reset(bytes, start, end - start);
+	}
+
+	/**
+	 * Counts the fields of the line the way String.split does, trailing empty
+	 * fields are not counted. Does not move the cursor.
+	 *
+	 * @return The number of fields
+	 */
+	public int getFieldCount() {
+
+		if (start == end) {
+			return 1;
+		}
+
+		int count = 0;
+		int nonEmptyCount = 0;
+		int index = start;
+		while (index <= end) {
+
+			int fieldBegin = index;
+			while (index < end && !isSeparator(bytes[index])) {
+				++index;
+			}
+			++count;
+			if (index > fieldBegin) {
+				nonEmptyCount = count;
+			}
+			index = skipSeparator(index);
+		}
+		return nonEmptyCount;
+	}
+
+	/**
+	 * Moves to the next field
+	 *
+	 * @return false if there are no more fields
+	 */
+	public boolean next() {
+
+		if (position > end) {
+			return false;
+		}
+
+		fieldStart = position;
+		int index = position;
+		while (index < end && !isSeparator(bytes[index])) {
+			++index;
+		}
+		fieldEnd = index;
+		position = skipSeparator(index);
+		return true;
+	}
+
+	/**
+	 * Moves past fields without reading them
+	 *
+	 * @param count
+	 *            How many fields to skip
+	 * @return This cursor
+	 * @throws NoSuchElementException
+	 *             If the line has fewer fields
+	 */
+	public FieldCursor skip(int count) {
+
+		for (int skipped = 0; skipped < count; ++skipped) {
+			advance();
+		}
+		return this;
+	}
+
+	/**
+	 * @return The next field as a String
+	 * @throws NoSuchElementException
+	 *             If there are no more fields
+	 */
+	public String nextString() {
+
+		advance();
+		return getString();
+	}
+
+	/**
+	 * @return The next field as an int
+	 * @throws NoSuchElementException
+	 *             If there are no more fields
+	 * @throws NumberFormatException
+	 *             If the field is not an int
+	 */
+	public int nextInt() {
+
+		advance();
+		return getInt();
+	}
+
+	/**
+	 * @return The next field as a double
+	 * @throws NoSuchElementException
+	 *             If there are no more fields
+	 * @throws NumberFormatException
+	 *             If the field is not a number
+	 */
+	public double nextDouble() {
+
+		advance();
+		return getDouble();
+	}
+
+	/**
+	 * Sets a Text to the next field
+	 *
+	 * @param text
+	 *            The Text to set, its own bytes are copied into
+	 * @return The Text
+	 * @throws NoSuchElementException
+	 *             If there are no more fields
+	 */
+	public Text nextText(Text text) {
+
+		advance();
+		text.set(bytes, fieldStart, fieldEnd - fieldStart);
+		return text;
+	}
+
+	/**
+	 * @return The current field as a String
+	 */
+	public String getString() {
+		return new String(bytes, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The current field as an int, parsed the same as
+	 *         Integer.parseInt
+	 * @throws NumberFormatException
+	 *             If the field is not an int
+	 */
+	public int getInt() {
+
+		int index = fieldStart;
+		boolean negative = false;
+		if (index < fieldEnd && (bytes[index] == '-' || bytes[index] == '+')) {
+			negative = bytes[index] == '-';
+			++index;
+		}
+
+		// Up to 9 digits can't overflow
+		if (index == fieldEnd || fieldEnd - index > 9) {
+			return Integer.parseInt(getString());
+		}
+
+		int value = 0;
+		for (; index < fieldEnd; ++index) {
+
+			int digit = bytes[index] - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.parseInt(getString());
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return The current field as a double, parsed the same as
+	 *         Double.parseDouble
+	 * @throws NumberFormatException
+	 *             If the field is not a number
+	 */
+	public double getDouble() {
+
+		// Plain decimals with few digits are parsed here, anything else
+		// (exponents, NaN, long fractions) goes to Double.parseDouble
+		int index = fieldStart;
+		boolean negative = false;
+		if (index < fieldEnd && (bytes[index] == '-' || bytes[index] == '+')) {
+			negative = bytes[index] == '-';
+			++index;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; index < fieldEnd; ++index) {
+
+			byte current = bytes[index];
+			if (current >= '0' && current <= '9') {
+
+				mantissa = mantissa * 10 + (current - '0');
+				++digits;
+				if (fractionDigits >= 0) {
+					++fractionDigits;
+				}
+
+			} else if (current == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else {
+				return Double.parseDouble(getString());
+			}
+		}
+
+		if (digits == 0 || digits > MAX_FAST_DIGITS) {
+			return Double.parseDouble(getString());
+		}
+
+		double value = mantissa;
+		if (fractionDigits > 0) {
+			value /= POWERS_OF_TEN[fractionDigits];
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Moves to the next field, which must exist
+	 */
+	private void advance() {
+
+		if (!next()) {
+			throw new NoSuchElementException("No field after index " + (fieldEnd - start));
+		}
+	}
+
+	/**
+	 * @return Where the field after the separator at the index starts, past
+	 *         end if the index is the end of the line
+	 */
+	private int skipSeparator(int index) {
+
+		if (index >= end) {
+			return end + 1;
+		}
+
+		++index;
+		if (separator == WHITESPACE) {
+			while (index < end && isSeparator(bytes[index])) {
+				++index;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Whitespace is the same set as \s in a regex
+	 */
+	private boolean isSeparator(byte current) {
+
+		if (separator == WHITESPACE) {
+			return current == ' ' || current == '\t' || current == '\n' || current == 0x0B || current == '\f'
+					|| current == '\r';
+		}
+		return current == separator;
+	}
+}
@@ -1,214 +1,491 @@
 package cs435.nba.elo;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.MapWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
-
-public class GameEloReducer extends Reducer<KFactorDateWritable, GameWritable, DoubleWritable, Text> {
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+
+public class GameEloReducer extends Reducer<KFactorDateWritable, GameWritable, DoubleWritable, GameWritable> {
+
+	/**
+	 * Name of the output with the Elo and latest team of every player after
+	 * the last game of {@link Constants#FINAL_K_FACTOR}
+	 */
+	public static final String MOST_RECENT_ELO_OUTPUT = "MostRecentElo";
+
+	private MultipleOutputs<DoubleWritable, GameWritable> multipleOutputs;
+
+	/**
+	 * The Elo of every player for every K Factor rated by this reducer,
+	 * starting from {@link Constants#CHECKPOINT_DIR_KEY} when it is set
+	 */
+	private EloCheckpoint checkpoint;
+
+	/**
+	 * The rating history of every K Factor rated by this reducer, starting
+	 * from the history in {@link Constants#CHECKPOINT_DIR_KEY} when it is set.
+	 * Only used when {@link Constants#WRITE_RATING_HISTORY} is set
+	 */
+	private Map<Integer, RatingHistoryWriter> ratingHistories;
+
+	/**
+	 * Metrics of every K Factor rated by this reducer, only used when
+	 * {@link Constants#INLINE_METRICS} is set
+	 */
+	private Map<Integer, KFactorMetricsWritable> kFactorMetrics;
+
+	/**
+	 * Decodes the player and team indexes of the games for the outputs
+	 */
+	private IdDictionary dictionary;
+
+	/**
+	 * The start Elos and home expected score of a game for every K Factor of
+	 * a sweep block, only used by a single shuffle sweep
+	 */
+	private double[] homeElos;
+	private double[] awayElos;
+	private double[] expectedScores;
 
 	@Override
-	public void reduce(KFactorDateWritable key, Iterable<GameWritable> values, Context context)
-			throws IOException, InterruptedException {
-
-		// Games are sorted earliest to latest so we can calc Elo one by one
-		int gameNum = 0;
+	public void setup(Context context) throws IOException {
 
-		double kFactor = key.getKFactor();
+		dictionary = IdDictionary.read(context);
+		multipleOutputs = new MultipleOutputs<DoubleWritable, GameWritable>(context);
+		if (Constants.INLINE_METRICS) {
+			kFactorMetrics = new TreeMap<Integer, KFactorMetricsWritable>();
+		}
+		if (Constants.WRITE_RATING_HISTORY) {
+			ratingHistories = new TreeMap<Integer, RatingHistoryWriter>();
+		}
+		if (KFactorPartitioner.isSingleShuffleSweep()) {
+			int blockSize = KFactorPartitioner.getSweepBlockSize(context.getNumReduceTasks());
+			homeElos = new double[blockSize];
+			awayElos = new double[blockSize];
+			expectedScores = new double[blockSize];
+		}
 
-		Map<String, PlayerEloWritable> playerEloMap = new HashMap<String, PlayerEloWritable>();
-		for (GameWritable game : values) {
+		// Seasons that are not built into LeagueStats
+		String leagueStatsFile = context.getConfiguration().get(Constants.LEAGUE_STATS_FILE_KEY);
+		if (leagueStatsFile != null) {
+			LeagueStats.setInstance(LeagueStats.read(context.getConfiguration(), new Path(leagueStatsFile)));
+		}
 
-			++gameNum;
+		String checkpointDir = context.getConfiguration().get(Constants.CHECKPOINT_DIR_KEY);
+		if (checkpointDir == null) {
+			checkpoint = new EloCheckpoint(dictionary.getPlayerCount());
+		} else {
 
-			// 1. Set the starting elo for all the players
-			// 2. Get the starting elo for both teams
-			// 3. Figure out who won
-			// 4. Calculate the change in Elo
-			// 5. Update the change in Elo for the teams
-			// 6. Update the elo value for the players in the playerEloMap so we
-			// get correct values for the next game
+			// Only keep the K Factors this reducer rates, so every K Factor is
+			// written to the new checkpoint once even without new games
+			final int partition = context.getTaskAttemptID().getTaskID().getId();
+			final int numReduceTasks = context.getNumReduceTasks();
+			checkpoint = EloCheckpoint.read(context.getConfiguration(), checkpointDir,
+					new EloCheckpoint.KFactorFilter() {
 
-			try {
+						@Override
+						public boolean accept(int kFactor) {
 
-				// 1. Set the starting elo for all the players
-				// System.out.println("k: " + kFactor + " reducer game " +
-				// gameNum + " #homePlayers; "
-				// + game.getHomeTeam().getPlayers().size());
-				// System.out.println("k: " + kFactor + " reducer game " +
-				// gameNum + " #awayPlayers: "
-				// + game.getAwayTeam().getPlayers().size());
-				for (Writable id : game.getHomeTeam().getPlayers().keySet()) {
-
-					String playerId = ((Text) id).toString();
-					String playerName = "";
-					try {
-
-						PlayerGameWritable player = game.getHomeTeam().getPlayer(playerId);
-						playerName = player.getName();
-
-					} catch (PlayerNotFoundException e) {
-						System.err.println("Could not find player: " + playerId + " even though they were in keyset");
-						e.printStackTrace();
-					}
+							int keyKFactor = KFactorPartitioner.getKeyKFactor(kFactor, numReduceTasks);
+							return KFactorPartitioner.getPartition(keyKFactor, numReduceTasks) == partition;
+						}
+					}, dictionary);
 
-					if (!playerEloMap.containsKey(playerId)) {
+			if (Constants.WRITE_RATING_HISTORY) {
+				readRatingHistories(context, checkpointDir);
+			}
+		}
+	}
 
-						playerEloMap.put(playerId, new PlayerEloWritable(playerId, playerName));
-					}
+	/**
+	 * Starts the rating history of every K Factor in the checkpoint from the
+	 * history the checkpointed run wrote next to it, so the history written by
+	 * this run is complete and not only the new games
+	 */
+	private void readRatingHistories(Context context, String checkpointDir) throws IOException {
+
+		for (int kFactor : checkpoint.getKFactors()) {
+
+			Path historyPath = new Path(checkpointDir, RatingHistoryWriter.getFileName(kFactor));
+			FileSystem fs = historyPath.getFileSystem(context.getConfiguration());
+			if (!fs.exists(historyPath)) {
+				System.err.println("No rating history " + historyPath + ", the history of K Factor " + kFactor
+						+ " only has the new games");
+				continue;
+			}
 
-					try {
+			RatingHistoryWriter history = new RatingHistoryWriter(kFactor, dictionary);
+			InputStream in = fs.open(historyPath);
+			try {
+				history.read(in);
+			} finally {
+				in.close();
+			}
+			ratingHistories.put(kFactor, history);
+		}
+	}
 
-						game.getHomeTeam().getPlayer(playerId).setStartElo(playerEloMap.get(playerId).getElo());
+	@Override
+	public void reduce(KFactorDateWritable key, Iterable<GameWritable> values, Context context)
+			throws IOException, InterruptedException {
 
-					} catch (PlayerNotFoundException e) {
-						System.err.println("Could not find player: " + playerId + " even though they were in keyset");
-						e.printStackTrace();
+		// Games are sorted earliest to latest so we can calc Elo one by one
+		if (KFactorPartitioner.isSingleShuffleSweep()) {
+
+			// Every game was sent once for the block, so rate it for every K
+			// Factor of the block before moving on to the next game. The
+			// expected scores of all of them are computed together first.
+			int firstKFactor = key.getKFactor();
+			int lastKFactor = KFactorPartitioner.getLastKFactor(firstKFactor, context.getNumReduceTasks());
+			for (GameWritable game : values) {
+
+				int count = 0;
+				try {
+					for (int kFactor = firstKFactor; kFactor <= lastKFactor; kFactor += Constants.K_FACTOR_STEP) {
+
+						RatingTable ratingTable = checkpoint.getRatingTable(kFactor);
+						homeElos[count] = ratingTable.getStartElo(game.getHomeTeam());
+						awayElos[count] = ratingTable.getStartElo(game.getAwayTeam());
+						++count;
 					}
+				} catch (TeamNotFoundException e) {
+					System.err.println("Could not get home and away team for gameId: " + game.getGameId());
+					e.printStackTrace();
+					continue;
 				}
+				EloExpectation.getExpectedScores(homeElos, awayElos, expectedScores, 0, count);
 
-				for (Writable id : game.getAwayTeam().getPlayers().keySet()) {
+				count = 0;
+				for (int kFactor = firstKFactor; kFactor <= lastKFactor; kFactor += Constants.K_FACTOR_STEP) {
+					writeGameElo(game, kFactor, checkpoint.getRatingTable(kFactor), expectedScores[count], context);
+					++count;
+				}
+			}
 
-					String playerId = ((Text) id).toString();
-					String playerName = "";
-					try {
+		} else {
 
-						PlayerGameWritable player = game.getAwayTeam().getPlayer(playerId);
-						playerName = player.getName();
+			int kFactor = key.getKFactor();
 
-					} catch (PlayerNotFoundException e) {
-						System.err.println("Could not find player: " + playerId + " even though they were in keyset");
-						e.printStackTrace();
-					}
+			RatingTable ratingTable = checkpoint.getRatingTable(kFactor);
+			for (GameWritable game : values) {
+				writeGameElo(game, kFactor, ratingTable, context);
+			}
+		}
+	}
 
-					if (!playerEloMap.containsKey(playerId)) {
+	@Override
+	public void cleanup(Context context) throws IOException, InterruptedException {
 
-						playerEloMap.put(playerId, new PlayerEloWritable(playerId, playerName));
-					}
+		// The Elos after the last game, a later run can start from here
+		checkpoint.write(multipleOutputs, dictionary);
 
-					try {
+		// Side files in the work directory are committed with the task
+		if (Constants.WRITE_RATING_HISTORY) {
 
-						game.getAwayTeam().getPlayer(playerId).setStartElo(playerEloMap.get(playerId).getElo());
+			Path workPath = FileOutputFormat.getWorkOutputPath(context);
+			for (Integer kFactor : ratingHistories.keySet()) {
 
-					} catch (PlayerNotFoundException e) {
-						System.err.println("Could not find player: " + playerId + " even though they were in keyset");
-						e.printStackTrace();
-					}
+				Path historyPath = new Path(workPath, RatingHistoryWriter.getFileName(kFactor));
+				OutputStream out = historyPath.getFileSystem(context.getConfiguration()).create(historyPath);
+				try {
+					ratingHistories.get(kFactor).write(out);
+				} finally {
+					out.close();
 				}
+			}
+		}
 
-				// 2. Get the starting elo for both teams
-				double homeElo = game.getHomeTeam().getStartElo();
-				double awayElo = game.getAwayTeam().getStartElo();
+		// The recommendations only need the final K Factor, only one
+		// reducer rates it
+		if (checkpoint.hasKFactor(Constants.FINAL_K_FACTOR)) {
 
-				// 3. Figure out who won
-				boolean homeWin = game.isHomeWinner();
-				boolean awayWin = game.isAwayWinner();
+			RatingTable ratingTable = checkpoint.getRatingTable(Constants.FINAL_K_FACTOR);
+			for (int playerId = 0; playerId < ratingTable.getCapacity(); ++playerId) {
+				if (ratingTable.contains(playerId)) {
 
-				// 4. Calculate the change in Elo
-				double rHome = Math.pow(10, homeElo / 400);
-				double rAway = Math.pow(10, awayElo / 400);
+					PlayerEloWritable player = ratingTable.getPlayerElo(playerId, dictionary);
+					multipleOutputs.write(MOST_RECENT_ELO_OUTPUT, new Text(player.getPlayerId()), player);
+				}
+			}
+		}
 
-				double eHome = rHome / (rHome + rAway);
-				double eAway = rAway / (rHome + rAway);
+		if (Constants.INLINE_METRICS) {
 
-				// Start with numbers that represent tie
-				double sHome = 0.5;
-				double sAway = 0.5;
-				if (homeWin) {
+			// Every game of a K Factor goes to the same reducer, so the
+			// metrics are complete and can be written out as they are
+			for (Integer kFactor : kFactorMetrics.keySet()) {
 
-					sHome = 1;
-					sAway = 0;
+				KFactorMetricsWritable metrics = kFactorMetrics.get(kFactor);
+				if (metrics.getTotalPredictions() > 0) {
+					KFactorMetricsReducer.writeMetrics(multipleOutputs, new DoubleWritable(kFactor), metrics);
+				}
+			}
+		}
+		multipleOutputs.close();
+	}
 
-				} else if (awayWin) {
+	/**
+	 * Rates a single game and writes it with its before/after Elos, adding it to
+	 * the K Factor's metrics when {@link Constants#INLINE_METRICS} is set
+	 *
+	 * @param game
+	 *            The {@link GameWritable} to rate
+	 * @param kFactor
+	 *            The K Factor to rate the game with
+	 * @param ratingTable
+	 *            The current Elo of every player seen so far for this K Factor
+	 * @param context
+	 *            The reducer context to write to
+	 */
+	private void writeGameElo(GameWritable game, int kFactor, RatingTable ratingTable, Context context)
+			throws IOException, InterruptedException {
 
-					sHome = 0;
-					sAway = 1;
-				}
+		try {
+			double eHome = rateGame(game, kFactor, ratingTable);
+			writeRatedGame(game, kFactor, eHome, context);
+		} catch (TeamNotFoundException e) {
+			System.err.println("Could not get home and away team for gameId: " + game.getGameId());
+			e.printStackTrace();
+		}
+	}
 
-				double homeEloChange = kFactor * (sHome - eHome);
-				double awayEloChange = kFactor * (sAway - eAway);
+	/**
+	 * {@link GameEloReducer#writeGameElo} with the home team's expected score
+	 * already computed from {@link RatingTable#getStartElo}
+	 *
+	 * @param game
+	 *            The {@link GameWritable} to rate
+	 * @param kFactor
+	 *            The K Factor to rate the game with
+	 * @param ratingTable
+	 *            The current Elo of every player seen so far for this K Factor
+	 * @param eHome
+	 *            The expected score of the home team for this K Factor
+	 * @param context
+	 *            The reducer context to write to
+	 */
+	private void writeGameElo(GameWritable game, int kFactor, RatingTable ratingTable, double eHome,
+			Context context) throws IOException, InterruptedException {
+
+		try {
+			rateGame(game, kFactor, ratingTable, eHome);
+			writeRatedGame(game, kFactor, eHome, context);
+		} catch (TeamNotFoundException e) {
+			System.err.println("Could not get home and away team for gameId: " + game.getGameId());
+			e.printStackTrace();
+		}
+	}
 
-				// 5. Update the change in Elo for the teams
-				game.getHomeTeam().changeElo(homeEloChange);
-				game.getAwayTeam().changeElo(awayEloChange);
+	/**
+	 * Writes a game rated for a K Factor and adds it to the K Factor's rating
+	 * history and metrics
+	 */
+	private void writeRatedGame(GameWritable game, int kFactor, double eHome, Context context)
+			throws IOException, InterruptedException, TeamNotFoundException {
 
-				// 6. Update the elo value for the players in the playerEloMap
-				// so we
-				MapWritable homePlayers = game.getHomeTeam().getPlayers();
-				for (Writable homeId : homePlayers.keySet()) {
+		checkpoint.setLastGame(kFactor, game);
 
-					PlayerGameWritable homePlayer = (PlayerGameWritable) homePlayers.get(homeId);
-					double endElo = homePlayer.getEndElo();
+		if (Constants.WRITE_RATING_HISTORY) {
 
-					String homePlayerId = ((Text) homeId).toString();
-					if (playerEloMap.containsKey(homePlayerId)) {
-						playerEloMap.get(homePlayerId).setElo(endElo);
-					} else {
-						playerEloMap.put(homePlayerId,
-								new PlayerEloWritable(homePlayer.getPlayerId(), homePlayer.getName(), endElo));
-					}
-				}
+			RatingHistoryWriter history = ratingHistories.get(kFactor);
+			if (history == null) {
+				history = new RatingHistoryWriter(kFactor, dictionary);
+				ratingHistories.put(kFactor, history);
+			}
+			history.addGame(game);
+		}
 
-				MapWritable awayPlayers = game.getAwayTeam().getPlayers();
-				for (Writable awayId : awayPlayers.keySet()) {
+		// Write Game Elo Info out
+		context.write(new DoubleWritable(kFactor), game);
 
-					PlayerGameWritable awayPlayer = (PlayerGameWritable) awayPlayers.get(awayId);
-					double endElo = awayPlayer.getEndElo();
+		if (Constants.INLINE_METRICS) {
 
-					String awayPlayerId = ((Text) awayId).toString();
-					if (playerEloMap.containsKey(awayPlayerId)) {
-						playerEloMap.get(awayPlayerId).setElo(endElo);
-					} else {
-						playerEloMap.put(awayPlayerId,
-								new PlayerEloWritable(awayPlayer.getPlayerId(), awayPlayer.getName(), endElo));
-					}
-				}
+			KFactorMetricsWritable metrics = kFactorMetrics.get(kFactor);
+			if (metrics == null) {
+				metrics = new KFactorMetricsWritable();
+				kFactorMetrics.put(kFactor, metrics);
+			}
+			metrics.addGame(game.getHomeTeam().getStartElo(), game.getAwayTeam().getStartElo(),
+					game.getHomeTeam().getPoints(), game.getAwayTeam().getPoints(), eHome);
+		}
+	}
 
-				// Write this game to our output
-				String str = "";
+	/**
+	 * Calculates the change in Elo for a single game and updates the
+	 * ratingTable so the next game gets the correct values. The game is
+	 * modified so every player has the start and end Elo for this K Factor.
+	 *
+	 * @param game
+	 *            The {@link GameWritable} to rate
+	 * @param kFactor
+	 *            The K Factor to rate the game with
+	 * @param ratingTable
+	 *            The current Elo of every player seen so far for this K
+	 *            Factor
+	 * @return The expected score of the home team
+	 * @throws TeamNotFoundException
+	 *             If the game is missing its home or away team
+	 */
+	public static double rateGame(GameWritable game, double kFactor, RatingTable ratingTable)
+			throws TeamNotFoundException {
+
+		// 1. Set the starting elo for all the players
+		// 2. Get the starting elo for both teams
+		// 3. Figure out who won
+		// 4. Calculate the change in Elo
+		// 5. Update the change in Elo for the teams
+		// 6. Update the elo value for the players in the ratingTable so we
+		// get correct values for the next game
+
+		// 1. Set the starting elo for all the players
+		ratingTable.getElos(game.getHomeTeam());
+		ratingTable.getElos(game.getAwayTeam());
+
+		// 2. Get the starting elo for both teams
+		double homeElo = game.getHomeTeam().getStartElo();
+		double awayElo = game.getAwayTeam().getStartElo();
+
+		// 3. - 6. Calculate and apply the change in Elo
+		double eHome = EloExpectation.getExpectedScore(homeElo, awayElo);
+		changeElos(game, kFactor, ratingTable, eHome);
+		return eHome;
+	}
 
-				// Game
-				str += game.getGameId() + "," + game.getYear() + "," + game.getMonth() + "," + game.getDay();
+	/**
+	 * {@link GameEloReducer#rateGame} with the home team's expected score
+	 * already computed, so the expected scores of a game can be computed for
+	 * many K Factors at once
+	 *
+	 * @param game
+	 *            The {@link GameWritable} to rate
+	 * @param kFactor
+	 *            The K Factor to rate the game with
+	 * @param ratingTable
+	 *            The current Elo of every player seen so far for this K
+	 *            Factor
+	 * @param eHome
+	 *            The expected score of the home team from the start Elos
+	 *            {@link RatingTable#getStartElo} gives for this K Factor
+	 * @throws TeamNotFoundException
+	 *             If the game is missing its home or away team
+	 */
+	public static void rateGame(GameWritable game, double kFactor, RatingTable ratingTable, double eHome)
+			throws TeamNotFoundException {
+
+		// 1. Set the starting elo for all the players
+		ratingTable.getElos(game.getHomeTeam());
+		ratingTable.getElos(game.getAwayTeam());
+
+		changeElos(game, kFactor, ratingTable, eHome);
+	}
 
-				// Home Team
-				TeamGameWritable homeTeam = game.getHomeTeam();
-				str += "," + homeTeam.getTeamId() + "," + homeTeam.getPoints() + "," + homeTeam.getStartElo() + ","
-						+ homeTeam.getEndElo();
+	/**
+	 * Steps 3 to 6 of {@link GameEloReducer#rateGame}, once the players have
+	 * their start Elos and the home team's expected score is known
+	 */
+	private static void changeElos(GameWritable game, double kFactor, RatingTable ratingTable, double eHome)
+			throws TeamNotFoundException {
 
-				// Away Team
-				TeamGameWritable awayTeam = game.getAwayTeam();
-				str += "," + awayTeam.getTeamId() + "," + awayTeam.getPoints() + "," + awayTeam.getStartElo() + ","
-						+ awayTeam.getEndElo();
+		// 3. Figure out who won
+		boolean homeWin = game.isHomeWinner();
+		boolean awayWin = game.isAwayWinner();
 
-				// Home Players
-				str += "," + homeTeam.getTeamId();
-				for (Writable homeId : homePlayers.keySet()) {
+		// 4. Calculate the change in Elo
+		double eAway = 1 - eHome;
 
-					PlayerGameWritable player = (PlayerGameWritable) homePlayers.get(homeId);
-					str += "," + player.getPlayerId() + "," + player.getStartElo() + "," + player.getEndElo();
-				}
+		// Start with numbers that represent tie
+		double sHome = 0.5;
+		double sAway = 0.5;
+		if (homeWin) {
 
-				// Away Players
-				str += "," + awayTeam.getTeamId();
-				for (Writable awayId : awayPlayers.keySet()) {
+			sHome = 1;
+			sAway = 0;
 
-					PlayerGameWritable player = (PlayerGameWritable) awayPlayers.get(awayId);
-					str += "," + player.getPlayerId() + "," + player.getStartElo() + "," + player.getEndElo();
-				}
+		} else if (awayWin) {
 
-				// Write Game Elo Info out
-				context.write(new DoubleWritable(kFactor), new Text(str));
+			sHome = 0;
+			sAway = 1;
+		}
 
-			} catch (TeamNotFoundException e) {
-				System.err.println("Could not get home and away team for gameId: " + game.getGameId());
-				e.printStackTrace();
-			}
+		double homeEloChange = kFactor * (sHome - eHome);
+		double awayEloChange = kFactor * (sAway - eAway);
 
+		// 5. Update the change in Elo for the teams
+		game.getHomeTeam().changeElo(homeEloChange);
+		game.getAwayTeam().changeElo(awayEloChange);
+
+		// 6. Update the elo value for the players in the ratingTable
+		ratingTable.setElos(game.getHomeTeam());
+		ratingTable.setElos(game.getAwayTeam());
+	}
+
+	/**
+	 * Adds the named output with the most recent Elos to Job 2
+	 *
+	 * @param job
+	 *            The job that writes the most recent Elos
+	 */
+	public static void addMostRecentEloOutput(Job job) {
+		MultipleOutputs.addNamedOutput(job, MOST_RECENT_ELO_OUTPUT, SequenceFileOutputFormat.class, Text.class,
+				PlayerEloWritable.class);
+	}
+
+	/**
+	 * Builds the before/after Elo line of a rated game
+	 *
+	 * @param game
+	 *            The {@link GameWritable} after {@link GameEloReducer#rateGame}
+	 * @param dictionary
+	 *            The {@link IdDictionary} to decode the player and team
+	 *            indexes with
+	 * @return The before/after Elo line for this game
+	 * @throws TeamNotFoundException
+	 *             If the game is missing its home or away team
+	 */
+	public static String toBeforeAfterElo(GameWritable game, IdDictionary dictionary) throws TeamNotFoundException {
+
+		String str = "";
+
+		// Game
+		str += game.getGameId() + "," + game.getYear() + "," + game.getMonth() + "," + game.getDay();
+
+		// Home Team
+		TeamGameWritable homeTeam = game.getHomeTeam();
+		String homeTeamId = dictionary.getTeamId(homeTeam.getTeamId());
+		str += "," + homeTeamId + "," + homeTeam.getPoints() + "," + homeTeam.getStartElo() + ","
+				+ homeTeam.getEndElo();
+
+		// Away Team
+		TeamGameWritable awayTeam = game.getAwayTeam();
+		String awayTeamId = dictionary.getTeamId(awayTeam.getTeamId());
+		str += "," + awayTeamId + "," + awayTeam.getPoints() + "," + awayTeam.getStartElo() + ","
+				+ awayTeam.getEndElo();
+
+		// Home Players
+		str += "," + homeTeamId;
+		for (int index = 0; index < homeTeam.getPlayerCount(); ++index) {
+			str += "," + dictionary.getPlayerId(homeTeam.getPlayerIdAt(index)) + "," + homeTeam.getStartEloAt(index)
+					+ "," + homeTeam.getEndEloAt(index);
+		}
+
+		// Away Players
+		str += "," + awayTeamId;
+		for (int index = 0; index < awayTeam.getPlayerCount(); ++index) {
+			str += "," + dictionary.getPlayerId(awayTeam.getPlayerIdAt(index)) + "," + awayTeam.getStartEloAt(index)
+					+ "," + awayTeam.getEndEloAt(index);
 		}
+
+		return str;
 	}
 }
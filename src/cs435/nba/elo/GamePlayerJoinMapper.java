@@ -0,0 +1,205 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.util.LineReader;
+
+/**
+ * Map side version of {@link GamePlayerMapper} and {@link GamePlayerReducer}.
+ * The games file is small enough to hold in memory, so it is broadcast to the
+ * mapper through the cache and the players file is streamed past it. The
+ * players file must be a single file that fits in one split, with the players
+ * of each game on consecutive lines, which
+ * {@link GamePlayerJoinMapper#isGroupedByGame} checks before the job is
+ * submitted.
+ *
+ * @author nate
+ *
+ */
+public class GamePlayerJoinMapper extends Mapper<LongWritable, Text, Text, GameWritable> {
+
+	/**
+	 * Every game in the games file that has not been written yet
+	 */
+	private Map<String, GameWritable> games;
+
+	/**
+	 * Ids of the games that have been written
+	 */
+	private Set<String> writtenGameIds;
+
+	/**
+	 * The game whose players we are reading
+	 */
+	private String currentGameId;
+	private Set<PlayerGameWritable> currentPlayers;
+
+	private FieldCursor cursor = new FieldCursor(',');
+
+	private IdDictionary dictionary;
+
+	@Override
+	public void setup(Context context) throws IOException {
+
+		games = new LinkedHashMap<String, GameWritable>();
+		writtenGameIds = new HashSet<String>();
+		currentPlayers = new HashSet<PlayerGameWritable>();
+
+		dictionary = IdDictionary.read(context);
+
+		Configuration conf = context.getConfiguration();
+		for (URI cacheFile : context.getCacheFiles()) {
+
+			// The dictionary is the other cache file
+			if (IdDictionary.isDictionary(cacheFile)) {
+				continue;
+			}
+
+			Path path = new Path(cacheFile);
+			FileSystem fs = path.getFileSystem(conf);
+			LineReader reader = new LineReader(fs.open(path), conf);
+			try {
+				Text line = new Text();
+				while (reader.readLine(line) > 0) {
+
+					int fieldCount = cursor.reset(line).getFieldCount();
+					if (fieldCount == GamePlayerReducer.GAME_COLS) {
+
+						try {
+							GameWritable game = GamePlayerReducer.parseGame(cursor, dictionary);
+							games.put(game.getGameId(), game);
+						} catch (TeamNotFoundException e) {
+							System.err.println("Could not encode line: " + line);
+							e.printStackTrace();
+						}
+					} else {
+						System.err.println("File has vals length = " + fieldCount + ". expecting "
+								+ GamePlayerReducer.GAME_COLS);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Override
+	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+
+		int fieldCount = cursor.reset(value).getFieldCount();
+		if (fieldCount != GamePlayerReducer.PLAYER_COLS) {
+			System.err.println(
+					"File has vals length = " + fieldCount + ". expecting " + GamePlayerReducer.PLAYER_COLS);
+			return;
+		}
+
+		String gameId = cursor.nextString();
+		if (!gameId.equals(currentGameId)) {
+
+			writeCurrentGame(context);
+
+			// A game we already wrote would be written twice
+			if (writtenGameIds.contains(gameId)) {
+				throw new IOException("Players file is not grouped by gameId, saw gameId: " + gameId + " again");
+			}
+			currentGameId = gameId;
+		}
+
+		try {
+			currentPlayers.add(GamePlayerReducer.parsePlayer(cursor.rewind(), dictionary));
+		} catch (TeamNotFoundException e) {
+			System.err.println("Could not encode line: " + value);
+			e.printStackTrace();
+		} catch (PlayerNotFoundException e) {
+			System.err.println("Could not encode line: " + value);
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void cleanup(Context context) throws IOException, InterruptedException {
+
+		writeCurrentGame(context);
+
+		// The reduce side join writes games without any players too
+		for (GameWritable game : games.values()) {
+			context.write(new Text(game.getGameId()), game);
+		}
+	}
+
+	/**
+	 * Whether the players of each game are on consecutive lines of a players
+	 * file, so the map side join writes each game once
+	 *
+	 * @param conf
+	 *            The configuration to open the file with
+	 * @param playersPath
+	 *            The players file
+	 * @return true if no gameId comes back after another game's players
+	 */
+	public static boolean isGroupedByGame(Configuration conf, Path playersPath) throws IOException {
+
+		Set<String> seenGameIds = new HashSet<String>();
+		String currentGameId = null;
+		FieldCursor cursor = new FieldCursor(',');
+
+		FileSystem fs = playersPath.getFileSystem(conf);
+		LineReader reader = new LineReader(fs.open(playersPath), conf);
+		try {
+			Text line = new Text();
+			while (reader.readLine(line) > 0) {
+
+				if (cursor.reset(line).getFieldCount() != GamePlayerReducer.PLAYER_COLS) {
+					continue;
+				}
+
+				String gameId = cursor.nextString();
+				if (!gameId.equals(currentGameId)) {
+					if (!seenGameIds.add(gameId)) {
+						return false;
+					}
+					currentGameId = gameId;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the game whose players we have been reading
+	 *
+	 * @param context
+	 *            The mapper context to write to
+	 */
+	private void writeCurrentGame(Context context) throws IOException, InterruptedException {
+
+		if (currentGameId == null) {
+			return;
+		}
+
+		GameWritable game = games.remove(currentGameId);
+		if (game != null) {
+			GamePlayerReducer.addPlayers(game, currentPlayers);
+			context.write(new Text(currentGameId), game);
+		} else {
+			System.err.println("Could not get game, homeTeam or awayTeam for gameId: " + currentGameId);
+		}
+
+		writtenGameIds.add(currentGameId);
+		currentGameId = null;
+		currentPlayers.clear();
+	}
+}
@@ -8,14 +8,17 @@ import org.apache.hadoop.mapreduce.Mapper;
 
 public class GamePlayerMapper extends Mapper<LongWritable, Text, Text, Text> {
 
+	private FieldCursor cursor = new FieldCursor(',');
+	private Text gameId = new Text();
+
 	@Override
 	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
 
 		// This map gets 2 files
 		// Both are comma separated
-		String[] vals = value.toString().split(",");
+		int fieldCount = cursor.reset(value).getFieldCount();
 
-		if (vals.length == 23) {
+		if (fieldCount == GamePlayerReducer.GAME_COLS) {
 			// The first file is the games file, it has columns of
 			// 0. gameId
 			// 1. seasonYear
@@ -40,10 +43,9 @@ public class GamePlayerMapper extends Mapper<LongWritable, Text, Text, Text> {
 			// 20. homeTotalBlocks
 			// 21. homeTotalTurnovers
 			// 22. homeTotalPoints (same as 15)
-			String gameId = vals[0];
-			context.write(new Text(gameId), value);
+			context.write(cursor.nextText(gameId), value);
 
-		} else if (vals.length == 11) {
+		} else if (fieldCount == GamePlayerReducer.PLAYER_COLS) {
 
 			// The second file is the player file, it has columns of
 			// 0. gameId
@@ -57,12 +59,10 @@ public class GamePlayerMapper extends Mapper<LongWritable, Text, Text, Text> {
 			// 8. blocks
 			// 9. turnovers
 			// 10. points
-
-			String gameId = vals[0];
-			context.write(new Text(gameId), value);
+			context.write(cursor.nextText(gameId), value);
 
 		} else {
-			System.err.println("File has vals length = " + vals.length + ". expecting 23 or 11");
+			System.err.println("File has vals length = " + fieldCount + ". expecting 23 or 11");
 		}
 	}
 }
@@ -1,14 +1,33 @@
 package cs435.nba.elo;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
-public class GamePlayerReducer extends Reducer<Text, Text, NullWritable, Text> {
+public class GamePlayerReducer extends Reducer<Text, Text, Text, GameWritable> {
+
+	/**
+	 * Number of columns in a line of the games file
+	 */
+	public static final int GAME_COLS = 23;
+
+	/**
+	 * Number of columns in a line of the players file
+	 */
+	public static final int PLAYER_COLS = 11;
+
+	private FieldCursor cursor = new FieldCursor(',');
+
+	private IdDictionary dictionary;
+
+	@Override
+	public void setup(Context context) throws IOException {
+		dictionary = IdDictionary.read(context);
+	}
 
 	@Override
 	public void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
@@ -16,143 +35,197 @@ public class GamePlayerReducer extends Reducer<Text, Text, NullWritable, Text> {
 		// This reduce gets output from 2 files
 		// Both are comma separated
 		GameWritable game = null;
-		TeamGameWritable awayTeam = null;
-		TeamGameWritable homeTeam = null;
 		Set<PlayerGameWritable> players = new HashSet<PlayerGameWritable>();
 
 		for (Text value : values) {
 
-			String[] vals = value.toString().split(",");
-
-			if (vals.length == 23) {
-				// The first file is the games file, it has columns of
-				// 0. gameId
-				// 1. seasonYear
-				// 2. actualYear
-				// 3. month
-				// 4. day
-				// 5. awayTeamId
-				// 6. awayPoints (same as 13)
-				// 7. awayTotalMinPlayed
-				// 8. awayTotalRebounds
-				// 9. awayTotalAssists
-				// 10. awayTotalSteals
-				// 11. awayTotalBlocks
-				// 12. awayTotalTurnovers
-				// 13. awayTotalPoints (same as 6)
-				// 14. homeTeamId
-				// 15. homePoints (same as 22)
-				// 16. homeTotalMinPlayed
-				// 17. homeTotalRebounds
-				// 18. homeTotalAssists
-				// 19. homeTotalSteals
-				// 20. homeTotalBlocks
-				// 21. homeTotalTurnovers
-				// 22. homeTotalPoints (same as 15)
-				String gameId = vals[0];
-				int seasonYear = Integer.parseInt(vals[1]);
-				int year = Integer.parseInt(vals[2]);
-				int month = Integer.parseInt(vals[3]);
-				int day = Integer.parseInt(vals[4]);
-
-				game = new GameWritable(gameId, seasonYear, year, month, day);
-
-				String awayTeamId = vals[5];
-				double awayPoints = Double.parseDouble(vals[6]);
-				double awayMinPlayed = Double.parseDouble(vals[7]);
-				double awayRebounds = Double.parseDouble(vals[8]);
-				double awayAssists = Double.parseDouble(vals[9]);
-				double awaySteals = Double.parseDouble(vals[10]);
-				double awayBlocks = Double.parseDouble(vals[11]);
-				double awayTurnovers = Double.parseDouble(vals[12]);
-
-				awayTeam = new TeamGameWritable(seasonYear, awayTeamId, awayPoints, awayMinPlayed, awayRebounds,
-						awayAssists, awaySteals, awayBlocks, awayTurnovers);
-
-				String homeTeamId = vals[14];
-				double homePoints = Double.parseDouble(vals[15]);
-				double homeMinPlayed = Double.parseDouble(vals[16]);
-				double homeRebounds = Double.parseDouble(vals[17]);
-				double homeAssists = Double.parseDouble(vals[18]);
-				double homeSteals = Double.parseDouble(vals[19]);
-				double homeBlocks = Double.parseDouble(vals[20]);
-				double homeTurnovers = Double.parseDouble(vals[21]);
-
-				homeTeam = new TeamGameWritable(seasonYear, homeTeamId, homePoints, homeMinPlayed, homeRebounds,
-						homeAssists, homeSteals, homeBlocks, homeTurnovers);
-
-			} else if (vals.length == 11) {
-
-				// The second file is the player file, it has columns of
-				// 0. gameId
-				// 1. teamId
-				// 2. playerId
-				// 3. playerName
-				// 4. minPlayed
-				// 5. rebounds
-				// 6. assists
-				// 7. steals
-				// 8. blocks
-				// 9. turnovers
-				// 10. points
-				// String gameId = vals[0];
-				String teamId = vals[1];
-				String playerId = vals[2];
-				String playerName = vals[3];
-				double minPlayed = Double.parseDouble(vals[4]);
-				double rebounds = Double.parseDouble(vals[5]);
-				double assists = Double.parseDouble(vals[6]);
-				double steals = Double.parseDouble(vals[7]);
-				double blocks = Double.parseDouble(vals[8]);
-				double turnovers = Double.parseDouble(vals[9]);
-				double points = Double.parseDouble(vals[10]);
-
-				// Just add this player to the home team?
-				PlayerGameWritable player = new PlayerGameWritable(teamId, playerId, playerName, points, minPlayed,
-						rebounds, assists, steals, blocks, turnovers);
-
-				players.add(player);
-
-			} else {
-
-				System.err.println("File has vals length = " + vals.length + ". expecting 23 or 11");
-			}
-		}
+			int fieldCount = cursor.reset(value).getFieldCount();
 
-		String str = "";
-		if (game != null && homeTeam != null && awayTeam != null) {
+			try {
+				if (fieldCount == GAME_COLS) {
 
-			// IMPORTANT: If you change the order here you must change the order
-			// in {@link GameEloMapper}
+					game = parseGame(cursor, dictionary);
 
-			// Game info
-			str += game.getGameId() + "," + game.getSeasonYear() + "," + game.getYear() + "," + game.getMonth() + ","
-					+ game.getDay();
+				} else if (fieldCount == PLAYER_COLS) {
 
-			// awayTeam Info
-			str += "," + awayTeam.getTeamId() + "," + awayTeam.getPoints() + "," + awayTeam.getMinPlayed() + ","
-					+ awayTeam.getRebounds() + "," + awayTeam.getAssists() + "," + awayTeam.getSteals() + ","
-					+ awayTeam.getBlocks() + "," + awayTeam.getTurnovers();
+					players.add(parsePlayer(cursor, dictionary));
 
-			// homeTeam Info
-			str += "," + homeTeam.getTeamId() + "," + homeTeam.getPoints() + "," + homeTeam.getMinPlayed() + ","
-					+ homeTeam.getRebounds() + "," + homeTeam.getAssists() + "," + homeTeam.getSteals() + ","
-					+ homeTeam.getBlocks() + "," + homeTeam.getTurnovers();
+				} else {
 
-			// Player info
-			for (PlayerGameWritable player : players) {
-
-				str += "," + player.getTeamId() + "," + player.getPlayerId() + "," + player.getName() + ","
-						+ player.getMinPlayed() + "," + player.getRebounds() + "," + player.getAssists() + ","
-						+ player.getSteals() + "," + player.getBlocks() + "," + player.getTurnovers() + ","
-						+ player.getPoints();
+					System.err.println("File has vals length = " + fieldCount + ". expecting 23 or 11");
+				}
+			} catch (TeamNotFoundException e) {
+				System.err.println("Could not encode line: " + value);
+				e.printStackTrace();
+			} catch (PlayerNotFoundException e) {
+				System.err.println("Could not encode line: " + value);
+				e.printStackTrace();
 			}
+		}
 
-			context.write(NullWritable.get(), new Text(str));
+		if (game != null) {
+
+			addPlayers(game, players);
+			context.write(key, game);
 
 		} else {
 			System.err.println("Could not get game, homeTeam or awayTeam for gameId: " + key);
 		}
 
 	}
+
+	/**
+	 * Parses a line of the games file, it has columns of
+	 * <ol start="0">
+	 * <li>gameId</li>
+	 * <li>seasonYear</li>
+	 * <li>actualYear</li>
+	 * <li>month</li>
+	 * <li>day</li>
+	 * <li>awayTeamId</li>
+	 * <li>awayPoints (same as 13)</li>
+	 * <li>awayTotalMinPlayed</li>
+	 * <li>awayTotalRebounds</li>
+	 * <li>awayTotalAssists</li>
+	 * <li>awayTotalSteals</li>
+	 * <li>awayTotalBlocks</li>
+	 * <li>awayTotalTurnovers</li>
+	 * <li>awayTotalPoints (same as 6)</li>
+	 * <li>homeTeamId</li>
+	 * <li>homePoints (same as 22)</li>
+	 * <li>homeTotalMinPlayed</li>
+	 * <li>homeTotalRebounds</li>
+	 * <li>homeTotalAssists</li>
+	 * <li>homeTotalSteals</li>
+	 * <li>homeTotalBlocks</li>
+	 * <li>homeTotalTurnovers</li>
+	 * <li>homeTotalPoints (same as 15)</li>
+	 * </ol>
+	 *
+	 * @param cursor
+	 *            A comma separated cursor reset to the line
+	 * @param dictionary
+	 *            The {@link IdDictionary} to encode the team IDs with
+	 * @return The game with its home and away team, but no players
+	 * @throws TeamNotFoundException
+	 *             If a team is not in the dictionary
+	 */
+	public static GameWritable parseGame(FieldCursor cursor, IdDictionary dictionary) throws TeamNotFoundException {
+
+		String gameId = cursor.nextString();
+		int seasonYear = cursor.nextInt();
+		int year = cursor.nextInt();
+		int month = cursor.nextInt();
+		int day = cursor.nextInt();
+
+		GameWritable game = new GameWritable(gameId, seasonYear, year, month, day);
+		game.setAwayTeam(parseTeam(cursor, seasonYear, dictionary));
+
+		// Skip awayTotalPoints, it is the same as awayPoints
+		cursor.skip(1);
+		game.setHomeTeam(parseTeam(cursor, seasonYear, dictionary));
+		return game;
+	}
+
+	/**
+	 * Parses a line of the players file, it has columns of
+	 * <ol start="0">
+	 * <li>gameId</li>
+	 * <li>teamId</li>
+	 * <li>playerId</li>
+	 * <li>playerName</li>
+	 * <li>minPlayed</li>
+	 * <li>rebounds</li>
+	 * <li>assists</li>
+	 * <li>steals</li>
+	 * <li>blocks</li>
+	 * <li>turnovers</li>
+	 * <li>points</li>
+	 * </ol>
+	 *
+	 * @param cursor
+	 *            A comma separated cursor reset to the line
+	 * @param dictionary
+	 *            The {@link IdDictionary} to encode the team and player IDs
+	 *            with
+	 * @return The player
+	 * @throws TeamNotFoundException
+	 *             If the team is not in the dictionary
+	 * @throws PlayerNotFoundException
+	 *             If the player is not in the dictionary
+	 */
+	public static PlayerGameWritable parsePlayer(FieldCursor cursor, IdDictionary dictionary)
+			throws TeamNotFoundException, PlayerNotFoundException {
+
+		// The gameId is the key
+		cursor.skip(1);
+		int teamId = dictionary.getTeamIndex(cursor.nextString());
+		int playerId = dictionary.getPlayerIndex(cursor.nextString());
+		String playerName = cursor.nextString();
+		double minPlayed = cursor.nextDouble();
+		double rebounds = cursor.nextDouble();
+		double assists = cursor.nextDouble();
+		double steals = cursor.nextDouble();
+		double blocks = cursor.nextDouble();
+		double turnovers = cursor.nextDouble();
+		double points = cursor.nextDouble();
+
+		// Stats go in the file's column order, which is how the Elo job has
+		// always rated players. Changing it changes every player's Elo.
+		return new PlayerGameWritable(teamId, playerId, playerName, minPlayed, rebounds, assists, steals, blocks,
+				turnovers, points);
+	}
+
+	/**
+	 * Builds a team from the 8 team columns (teamId, points, minPlayed,
+	 * rebounds, assists, steals, blocks, turnovers) of a line of the games
+	 * file
+	 *
+	 * @param cursor
+	 *            A comma separated cursor on the field before the teamId
+	 *            column, it is left on the turnovers column
+	 * @param seasonYear
+	 *            The season year of the game
+	 * @param dictionary
+	 *            The {@link IdDictionary} to encode the team ID with
+	 * @return The {@link TeamGameWritable}
+	 * @throws TeamNotFoundException
+	 *             If the team is not in the dictionary
+	 */
+	public static TeamGameWritable parseTeam(FieldCursor cursor, int seasonYear, IdDictionary dictionary)
+			throws TeamNotFoundException {
+
+		int teamId = dictionary.getTeamIndex(cursor.nextString());
+		double points = cursor.nextDouble();
+		double minPlayed = cursor.nextDouble();
+		double rebounds = cursor.nextDouble();
+		double assists = cursor.nextDouble();
+		double steals = cursor.nextDouble();
+		double blocks = cursor.nextDouble();
+		double turnovers = cursor.nextDouble();
+
+		return new TeamGameWritable(seasonYear, teamId, points, minPlayed, rebounds, assists, steals, blocks,
+				turnovers);
+	}
+
+	/**
+	 * Adds the players to their team in the game
+	 *
+	 * @param game
+	 *            The game with its home and away team
+	 * @param players
+	 *            The players of the game
+	 */
+	public static void addPlayers(GameWritable game, Collection<PlayerGameWritable> players) {
+
+		for (PlayerGameWritable player : players) {
+
+			try {
+				game.addPlayer(player);
+			} catch (TeamNotFoundException e) {
+				System.err.println("could NOT add player: " + player.getPlayerId() + " to game: " + game.getGameId());
+				e.printStackTrace();
+			}
+		}
+	}
 }
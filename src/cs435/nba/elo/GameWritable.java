@@ -19,6 +19,13 @@ import org.apache.hadoop.io.WritableUtils;
  */
 public class GameWritable implements WritableComparable<GameWritable> {
 
+	/**
+	 * The version of the binary format written by
+	 * {@link GameWritable#write(DataOutput)}. Bump this when the layout changes,
+	 * {@link BeforeAfterEloRecord} reads the same layout
+	 */
+	static final byte VERSION = 1;
+
 	/**
 	 * The ID of the game
 	 */
@@ -112,6 +119,7 @@ public class GameWritable implements WritableComparable<GameWritable> {
 			this.seasonYear = game.getSeasonYear();
 			this.year = game.getYear();
 			this.month = game.getMonth();
+			this.day = game.getDay();
 
 			try {
 				this.setHomeTeam(new TeamGameWritable(game.getHomeTeam()));
@@ -279,10 +287,10 @@ public class GameWritable implements WritableComparable<GameWritable> {
 		}
 
 		boolean playerAdded = false;
-		String teamId = player.getTeamId();
+		int teamId = player.getTeamId();
 		if (awayTeam != null) {
 
-			if (awayTeam.equals(teamId)) {
+			if (awayTeam.getTeamId() == teamId) {
 
 				awayTeam.addPlayer(player);
 				playerAdded = true;
@@ -291,7 +299,7 @@ public class GameWritable implements WritableComparable<GameWritable> {
 
 		if (homeTeam != null) {
 
-			if (homeTeam.equals(teamId)) {
+			if (homeTeam.getTeamId() == teamId) {
 
 				homeTeam.addPlayer(player);
 				playerAdded = true;
@@ -304,7 +312,8 @@ public class GameWritable implements WritableComparable<GameWritable> {
 	}
 
 	/**
-	 * Reads fields from HDFS into this class
+	 * Reads fields from HDFS into this class. The layout is a version byte,
+	 * the gameId, the date as variable length ints and then both teams.
 	 * 
 	 * @param in
 	 *            The {@link DataInput}
@@ -312,11 +321,16 @@ public class GameWritable implements WritableComparable<GameWritable> {
 	@Override
 	public void readFields(DataInput in) throws IOException {
 
+		byte version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported GameWritable version: " + version);
+		}
+
 		gameId = WritableUtils.readString(in);
-		seasonYear = Integer.parseInt(WritableUtils.readString(in));
-		year = Integer.parseInt(WritableUtils.readString(in));
-		month = Integer.parseInt(WritableUtils.readString(in));
-		day = Integer.parseInt(WritableUtils.readString(in));
+		seasonYear = WritableUtils.readVInt(in);
+		year = WritableUtils.readVInt(in);
+		month = WritableUtils.readVInt(in);
+		day = WritableUtils.readVInt(in);
 
 		if (homeTeam == null) {
 			homeTeam = new TeamGameWritable();
@@ -337,11 +351,12 @@ public class GameWritable implements WritableComparable<GameWritable> {
 	 */
 	@Override
 	public void write(DataOutput out) throws IOException {
+		out.writeByte(VERSION);
 		WritableUtils.writeString(out, gameId);
-		WritableUtils.writeString(out, Integer.toString(seasonYear));
-		WritableUtils.writeString(out, Integer.toString(year));
-		WritableUtils.writeString(out, Integer.toString(month));
-		WritableUtils.writeString(out, Integer.toString(day));
+		WritableUtils.writeVInt(out, seasonYear);
+		WritableUtils.writeVInt(out, year);
+		WritableUtils.writeVInt(out, month);
+		WritableUtils.writeVInt(out, day);
 
 		if (homeTeam == null) {
 			homeTeam = new TeamGameWritable();
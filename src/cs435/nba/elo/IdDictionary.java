@@ -0,0 +1,298 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.util.LineReader;
+
+/**
+ * Dense int indexes for every player and team ID of the games and players
+ * files, so the jobs after Job 0 carry ints instead of strings and only decode
+ * them back to IDs when they write a final output. Indexes are assigned from 0
+ * in sorted ID order, so sorting by index sorts the same as sorting by ID.
+ *
+ * Job 0 writes the dictionary as lines of kind, index and ID separated by
+ * tabs, and the jobs that need it get it through the distributed cache under
+ * {@link IdDictionary#CACHE_NAME}.
+ *
+ * @author nate
+ *
+ */
+public class IdDictionary {
+
+	/**
+	 * The kind of a player line of the dictionary file
+	 */
+	public static final String PLAYER = "P";
+
+	/**
+	 * The kind of a team line of the dictionary file
+	 */
+	public static final String TEAM = "T";
+
+	/**
+	 * The name of the dictionary in the distributed cache
+	 */
+	public static final String CACHE_NAME = "IdDictionary";
+
+	/**
+	 * The dictionary file Job 0 writes, it has a single reducer
+	 */
+	private static final String FILE_NAME = "part-r-00000";
+
+	private List<String> playerIds;
+	private Map<String, Integer> playerIndexes;
+
+	private List<String> teamIds;
+	private Map<String, Integer> teamIndexes;
+
+	/**
+	 * Constructor for an empty dictionary
+	 */
+	public IdDictionary() {
+
+		this.playerIds = new ArrayList<String>();
+		this.playerIndexes = new HashMap<String, Integer>();
+		this.teamIds = new ArrayList<String>();
+		this.teamIndexes = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Constructor that indexes the IDs in the order given
+	 *
+	 * @param playerIds
+	 *            Every player ID, sorted
+	 * @param teamIds
+	 *            Every team ID, sorted
+	 */
+	public IdDictionary(Iterable<String> playerIds, Iterable<String> teamIds) {
+
+		this();
+		for (String playerId : playerIds) {
+			addPlayer(playerId);
+		}
+		for (String teamId : teamIds) {
+			addTeam(teamId);
+		}
+	}
+
+	/**
+	 * @param playerId
+	 *            The ID of the player
+	 * @return The index of the player
+	 * @throws PlayerNotFoundException
+	 *             If the player is not in the dictionary
+	 */
+	public int getPlayerIndex(String playerId) throws PlayerNotFoundException {
+
+		Integer index = playerIndexes.get(playerId);
+		if (index == null) {
+			throw new PlayerNotFoundException("Player with ID: " + playerId + " is not in the dictionary");
+		}
+		return index;
+	}
+
+	/**
+	 * @param playerIndex
+	 *            The index of the player
+	 * @return The ID of the player
+	 */
+	public String getPlayerId(int playerIndex) {
+		return playerIds.get(playerIndex);
+	}
+
+	/**
+	 * Adds a player after the ones already in the dictionary. The index only
+	 * means something to this copy of the dictionary, it is used for players
+	 * read back from an {@link EloCheckpoint} that are not in this run's files.
+	 *
+	 * @param playerId
+	 *            The ID of the player
+	 * @return The index of the player, the existing one if it is already in
+	 *         the dictionary
+	 */
+	public int addPlayer(String playerId) {
+
+		Integer index = playerIndexes.get(playerId);
+		if (index == null) {
+			index = playerIds.size();
+			playerIds.add(playerId);
+			playerIndexes.put(playerId, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return The number of players, every player index is below it
+	 */
+	public int getPlayerCount() {
+		return playerIds.size();
+	}
+
+	/**
+	 * @param teamId
+	 *            The ID of the team
+	 * @return The index of the team
+	 * @throws TeamNotFoundException
+	 *             If the team is not in the dictionary
+	 */
+	public int getTeamIndex(String teamId) throws TeamNotFoundException {
+
+		Integer index = teamIndexes.get(teamId);
+		if (index == null) {
+			throw new TeamNotFoundException("Team with ID: " + teamId + " is not in the dictionary");
+		}
+		return index;
+	}
+
+	/**
+	 * @param teamIndex
+	 *            The index of the team
+	 * @return The ID of the team
+	 */
+	public String getTeamId(int teamIndex) {
+		return teamIds.get(teamIndex);
+	}
+
+	/**
+	 * Adds a team after the ones already in the dictionary, it is used for
+	 * the teams of players read back from an {@link EloCheckpoint}
+	 *
+	 * @param teamId
+	 *            The ID of the team
+	 * @return The index of the team, the existing one if it is already in the
+	 *         dictionary
+	 */
+	public int addTeam(String teamId) {
+
+		Integer index = teamIndexes.get(teamId);
+		if (index == null) {
+			index = teamIds.size();
+			teamIds.add(teamId);
+			teamIndexes.put(teamId, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return The number of teams, every team index is below it
+	 */
+	public int getTeamCount() {
+		return teamIds.size();
+	}
+
+	/**
+	 * Reads the dictionary a job was given with
+	 * {@link IdDictionary#addCacheFile}
+	 *
+	 * @param context
+	 *            The context of the task
+	 * @return The dictionary
+	 * @throws IOException
+	 *             If the job has no dictionary or it could not be read
+	 */
+	public static IdDictionary read(JobContext context) throws IOException {
+
+		URI[] cacheFiles = context.getCacheFiles();
+		if (cacheFiles != null) {
+			for (URI cacheFile : cacheFiles) {
+				if (isDictionary(cacheFile)) {
+
+					// The fragment is only the cache name, not part of the path
+					Path path = new Path(cacheFile.getScheme(), cacheFile.getAuthority(), cacheFile.getPath());
+					return read(context.getConfiguration(), path);
+				}
+			}
+		}
+		throw new IOException("No " + CACHE_NAME + " in the cache files of the job");
+	}
+
+	/**
+	 * Reads a dictionary file written by Job 0
+	 *
+	 * @param conf
+	 *            The configuration
+	 * @param path
+	 *            The dictionary file
+	 * @return The dictionary
+	 * @throws IOException
+	 *             If the file could not be read or is malformed
+	 */
+	public static IdDictionary read(Configuration conf, Path path) throws IOException {
+
+		IdDictionary dictionary = new IdDictionary();
+		FieldCursor cursor = new FieldCursor('\t');
+
+		FileSystem fs = path.getFileSystem(conf);
+		LineReader reader = new LineReader(fs.open(path), conf);
+		try {
+			Text line = new Text();
+			while (reader.readLine(line) > 0) {
+
+				cursor.reset(line);
+				String kind = cursor.nextString();
+				int index = cursor.nextInt();
+				String id = cursor.nextString();
+
+				// Lines are in index order, so adding them gives every ID its
+				// index back
+				int added;
+				if (PLAYER.equals(kind)) {
+					added = dictionary.addPlayer(id);
+				} else if (TEAM.equals(kind)) {
+					added = dictionary.addTeam(id);
+				} else {
+					throw new IOException("Unknown kind " + kind + " in " + path);
+				}
+
+				if (added != index) {
+					throw new IOException(path + " has " + id + " at index " + index + ", expecting " + added);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Adds the dictionary Job 0 writes to the cache files of a job
+	 *
+	 * @param job
+	 *            The job that reads the dictionary
+	 * @param dictionaryDir
+	 *            The output directory of Job 0, it does not have to exist
+	 *            until the job is submitted
+	 */
+	public static void addCacheFile(Job job, String dictionaryDir) throws IOException {
+
+		Path path = new Path(dictionaryDir, FILE_NAME);
+		URI uri = path.getFileSystem(job.getConfiguration()).makeQualified(path).toUri();
+		try {
+			job.addCacheFile(new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), null, CACHE_NAME));
+		} catch (URISyntaxException e) {
+			throw new IOException("Could not add " + path + " to the cache files", e);
+		}
+	}
+
+	/**
+	 * @param cacheFile
+	 *            A cache file of a job
+	 * @return true if it is the dictionary added by
+	 *         {@link IdDictionary#addCacheFile}
+	 */
+	public static boolean isDictionary(URI cacheFile) {
+		return CACHE_NAME.equals(cacheFile.getFragment());
+	}
+}
@@ -0,0 +1,19 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+public class IdDictionaryCombiner extends Reducer<Text, NullWritable, Text, NullWritable> {
+
+	@Override
+	public void reduce(Text key, Iterable<NullWritable> values, Context context) throws IOException,
+			InterruptedException {
+
+		// Key = kind and ID
+		// Only send every ID once, a team is on every line of its games
+		context.write(key, NullWritable.get());
+	}
+}
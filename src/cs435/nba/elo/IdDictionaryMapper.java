@@ -0,0 +1,45 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+public class IdDictionaryMapper extends Mapper<LongWritable, Text, Text, NullWritable> {
+
+	private FieldCursor cursor = new FieldCursor(',');
+	private Text id = new Text();
+
+	@Override
+	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+
+		// This map gets the same 2 files as Job 1, told apart by their column
+		// counts. Keys are the kind and the ID, so the reducer gets every ID
+		// once in sorted order.
+		int fieldCount = cursor.reset(value).getFieldCount();
+
+		if (fieldCount == GamePlayerReducer.GAME_COLS) {
+
+			// 5. awayTeamId and 14. homeTeamId
+			writeId(IdDictionary.TEAM, cursor.skip(5).nextString(), context);
+			writeId(IdDictionary.TEAM, cursor.skip(8).nextString(), context);
+
+		} else if (fieldCount == GamePlayerReducer.PLAYER_COLS) {
+
+			// 1. teamId and 2. playerId
+			writeId(IdDictionary.TEAM, cursor.skip(1).nextString(), context);
+			writeId(IdDictionary.PLAYER, cursor.nextString(), context);
+
+		} else {
+			System.err.println("File has vals length = " + fieldCount + ". expecting 23 or 11");
+		}
+	}
+
+	private void writeId(String kind, String value, Context context) throws IOException, InterruptedException {
+
+		id.set(kind + "\t" + value);
+		context.write(id, NullWritable.get());
+	}
+}
@@ -0,0 +1,54 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Writes the {@link IdDictionary} file. There is a single reducer and the IDs
+ * come in sorted order, so numbering them as they come gives the dense
+ * indexes in ID order.
+ *
+ * @author nate
+ *
+ */
+public class IdDictionaryReducer extends Reducer<Text, NullWritable, Text, NullWritable> {
+
+	private FieldCursor cursor = new FieldCursor('\t');
+
+	private int playerCount;
+	private int teamCount;
+
+	@Override
+	public void setup(Context context) {
+
+		playerCount = 0;
+		teamCount = 0;
+	}
+
+	@Override
+	public void reduce(Text key, Iterable<NullWritable> values, Context context) throws IOException,
+			InterruptedException {
+
+		// Key = kind and ID
+		cursor.reset(key);
+		String kind = cursor.nextString();
+		String id = cursor.nextString();
+
+		int index;
+		if (IdDictionary.PLAYER.equals(kind)) {
+			index = playerCount++;
+		} else {
+			index = teamCount++;
+		}
+
+		context.write(new Text(kind + "\t" + index + "\t" + id), NullWritable.get());
+	}
+
+	@Override
+	public void cleanup(Context context) {
+		System.out.println("Id dictionary has " + playerCount + " players and " + teamCount + " teams");
+	}
+}
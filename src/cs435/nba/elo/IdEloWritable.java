@@ -10,9 +10,9 @@ import org.apache.hadoop.io.WritableUtils;
 public class IdEloWritable implements WritableComparable<IdEloWritable> {
 
 	/**
-	 * The Id of the team or player
+	 * The {@link IdDictionary} index of the team or player
 	 */
-	private String id;
+	private int id;
 
 	/**
 	 * The year of the elo
@@ -38,7 +38,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	 * Required for hadoop
 	 */
 	public IdEloWritable() {
-		this(Constants.INVALID_ID, Constants.INVALID_DATE, Constants.INVALID_DATE, Constants.INVALID_DATE,
+		this(Constants.INVALID_INDEX, Constants.INVALID_DATE, Constants.INVALID_DATE, Constants.INVALID_DATE,
 				Constants.INVALID_STAT);
 	}
 
@@ -46,7 +46,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	 * Constructor
 	 * 
 	 * @param id
-	 *            The id of the team or player
+	 *            The {@link IdDictionary} index of the team or player
 	 * @param year
 	 *            The year of the elo value
 	 * @param month
@@ -56,7 +56,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	 * @param elo
 	 *            The elo value
 	 */
-	public IdEloWritable(String id, int year, int month, int day, double elo) {
+	public IdEloWritable(int id, int year, int month, int day, double elo) {
 		this.id = id;
 		this.year = year;
 		this.month = month;
@@ -71,7 +71,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	 *            The other {@link IdEloWritable} objec tto copy
 	 */
 	public IdEloWritable(IdEloWritable other) {
-		this.id = new String(other.getId());
+		this.id = other.getId();
 		this.year = other.getYear();
 		this.month = other.getMonth();
 		this.day = other.getDay();
@@ -81,7 +81,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	/**
 	 * @return {@link IdEloWritable#id}
 	 */
-	public String getId() {
+	public int getId() {
 		return id;
 	}
 
@@ -116,7 +116,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	@Override
 	public void readFields(DataInput in) throws IOException {
 
-		id = WritableUtils.readString(in);
+		id = WritableUtils.readVInt(in);
 		year = Integer.parseInt(WritableUtils.readString(in));
 		month = Integer.parseInt(WritableUtils.readString(in));
 		day = Integer.parseInt(WritableUtils.readString(in));
@@ -126,7 +126,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 	@Override
 	public void write(DataOutput out) throws IOException {
 
-		WritableUtils.writeString(out, id);
+		WritableUtils.writeVInt(out, id);
 		WritableUtils.writeString(out, Integer.toString(year));
 		WritableUtils.writeString(out, Integer.toString(month));
 		WritableUtils.writeString(out, Integer.toString(day));
@@ -161,7 +161,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 		if (o instanceof IdEloWritable) {
 
 			IdEloWritable other = (IdEloWritable) o;
-			return id.equals(other.getId());
+			return id == other.getId();
 
 		} else {
 			return false;
@@ -170,6 +170,7 @@ public class IdEloWritable implements WritableComparable<IdEloWritable> {
 
 	@Override
 	public int hashCode() {
-		return new String(id + year).hashCode();
+		// Same fields as equals so ids can be deduped in hashed collections
+		return id;
 	}
 }
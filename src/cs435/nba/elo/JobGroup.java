@@ -3,109 +3,238 @@ package cs435.nba.elo;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileAlreadyExistsException;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
 public class JobGroup {
 
-	private static final int SLEEP_SEC = 5;
-	private static final int SLEEP_TIME = SLEEP_SEC * 1000;
+	/**
+	 * How often the progress of the group is printed while no job finishes,
+	 * the only time the progress of the running jobs is read
+	 */
+	private static final int PROGRESS_SEC = 5;
+	private static final int PROGRESS_TIME = PROGRESS_SEC * 1000;
 
 	private String groupName;
+	private int maxRunningJobs;
 	private List<Job> jobs;
 	private List<String> jobNames;
+	private List<List<Integer>> jobDependencies;
+	private List<JobMonitor> monitors;
+	private List<Integer> jobRetries;
 	private List<Boolean> jobsComplete;
 	private List<Boolean> jobsSuccessful;
 
+	/**
+	 * Whether the first job to fail kills every other job of the group
+	 */
+	private boolean failFast;
+
+	/**
+	 * How many times a failed job is retried unless it was given its own
+	 * number of retries
+	 */
+	private int defaultRetries;
+
+	/**
+	 * How long to wait before the first retry of a job, doubled for every
+	 * retry after it
+	 */
+	private long retryBackoffTime;
+
+	/**
+	 * The index of the job that failed first, -1 until a job fails
+	 */
+	private int firstFailed;
+
+	/**
+	 * Only one job of the group is submitted at a time
+	 */
+	private final Object submitLock = new Object();
+
+	/**
+	 * Monitors put themselves here when their job finishes
+	 */
+	private BlockingQueue<JobMonitor> finishedJobs;
+
 	public JobGroup(String groupName) {
+		this(groupName, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param groupName
+	 *            The name printed with the progress of the group
+	 * @param maxRunningJobs
+	 *            The most jobs of this group that may run at the same time
+	 */
+	public JobGroup(String groupName, int maxRunningJobs) {
 
 		this.groupName = groupName;
+		this.maxRunningJobs = Math.max(maxRunningJobs, 1);
 		this.jobs = new ArrayList<Job>();
 		this.jobNames = new ArrayList<String>();
+		this.jobDependencies = new ArrayList<List<Integer>>();
+		this.monitors = new ArrayList<JobMonitor>();
+		this.jobRetries = new ArrayList<Integer>();
 		this.jobsComplete = new ArrayList<Boolean>();
 		this.jobsSuccessful = new ArrayList<Boolean>();
+		this.finishedJobs = new LinkedBlockingQueue<JobMonitor>();
+		this.failFast = false;
+		this.defaultRetries = 0;
+		this.retryBackoffTime = 0;
+		this.firstFailed = -1;
+	}
+
+	/**
+	 * @param failFast
+	 *            true to kill every running job and skip every waiting job of
+	 *            the group as soon as one job fails for good
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Sets the retry policy of the jobs that were not given their own number
+	 * of retries. A retry deletes the output of the failed attempt and
+	 * submits a copy of the job.
+	 *
+	 * @param retries
+	 *            How many times a failed job is submitted again
+	 * @param backoffTime
+	 *            Milliseconds to wait before the first retry, doubled for
+	 *            every retry after it
+	 */
+	public void setRetryPolicy(int retries, long backoffTime) {
+
+		this.defaultRetries = Math.max(retries, 0);
+		this.retryBackoffTime = Math.max(backoffTime, 0);
+	}
+
+	/**
+	 * Overrides the number of retries of a single job
+	 *
+	 * @param job
+	 *            A job already added to this group
+	 * @param retries
+	 *            How many times the job is submitted again if it fails
+	 */
+	public void setRetries(Job job, int retries) {
+
+		int index = jobs.indexOf(job);
+		if (index < 0) {
+			throw new IllegalArgumentException("Job has to be added to group " + groupName + " first");
+		}
+		jobRetries.set(index, Math.max(retries, 0));
 	}
 
-	public void addJob(Job job, String jobName) {
+	/**
+	 * Adds a job that is submitted as soon as all of its dependencies have
+	 * finished successfully. If a dependency fails the job is never submitted
+	 * and counts as unsuccessful.
+	 *
+	 * @param job
+	 *            The job to run
+	 * @param jobName
+	 *            The name printed with the progress of the job
+	 * @param dependencies
+	 *            Jobs already added to this group that have to succeed first
+	 */
+	public void addJob(Job job, String jobName, Job... dependencies) {
+
+		// Dependencies have to be added first, so the jobs can never form a
+		// cycle
+		List<Integer> dependencyIndexes = new ArrayList<Integer>();
+		for (Job dependency : dependencies) {
+
+			int dependencyIndex = jobs.indexOf(dependency);
+			if (dependencyIndex < 0) {
+				throw new IllegalArgumentException(
+						"Dependency of " + jobName + " has to be added to group " + groupName + " first");
+			}
+			dependencyIndexes.add(dependencyIndex);
+		}
+
 		jobs.add(job);
 		jobNames.add(jobName);
+		jobDependencies.add(dependencyIndexes);
+		monitors.add(null);
+		jobRetries.add(null);
 		jobsComplete.add(Boolean.FALSE);
 		jobsSuccessful.add(Boolean.FALSE);
 	}
 
 	public void runAndWait() throws IOException, InterruptedException, ClassNotFoundException {
 
-		for (Job job : jobs) {
-			job.submit();
+		// Nothing to wait on, a group can be left empty by the run mode
+		if (jobs.isEmpty()) {
+			return;
 		}
 
-		boolean allJobsComplete = false;
-
-		float mapProgress = 0;
-		float reduceProgress = 0;
-		float prevMapProgress = -1;
-		float prevReduceProgress = -1;
-		System.out.println("Group " + groupName + ": Map (" + mapProgress * 100 + "%)" + "\tReduce ("
-				+ reduceProgress * 100 + "%)");
-
-		boolean progressUpdate = true;
-		while (!allJobsComplete) {
-
-			prevMapProgress = mapProgress;
-			prevReduceProgress = reduceProgress;
-			mapProgress = 0;
-			reduceProgress = 0;
-
-			allJobsComplete = true;
-			for (int index = 0; index < jobs.size(); ++index) {
+		System.out.println("Group " + groupName + ": Map (0.0%)\tReduce (0.0%)");
+		submitReadyJobs();
 
-				Job job = jobs.get(index);
+		float prevMapProgress = 0;
+		float prevReduceProgress = 0;
+		while (!isAllComplete()) {
 
-				if (!jobsComplete.get(index)) {
+			// Wakes up as soon as a monitor sees its job finish, otherwise
+			// only to print the progress
+			JobMonitor finished = finishedJobs.poll(PROGRESS_TIME, TimeUnit.MILLISECONDS);
+			boolean jobFinished = finished != null;
+			while (finished != null) {
 
-					jobsComplete.set(index, job.isComplete());
-
-					if (jobsComplete.get(index)) {
-
-						jobsSuccessful.set(index, job.isSuccessful());
-						if (progressUpdate) {
-							printJobStatus(jobNames.get(index), 1, 1);
-						}
-						mapProgress += 1;
-						reduceProgress += 1;
+				finishJob(finished);
+				finished = finishedJobs.poll();
+			}
 
-					} else {
+			if (jobFinished) {
+				submitReadyJobs();
+			}
 
-						float jobMapProgress = job.mapProgress();
-						float jobReduceProgress = job.reduceProgress();
-						if (progressUpdate) {
-							printJobStatus(jobNames.get(index), jobMapProgress, jobReduceProgress);
-						}
-						mapProgress += jobMapProgress;
-						reduceProgress += jobReduceProgress;
+			float mapProgress = 0;
+			float reduceProgress = 0;
+			for (int index = 0; index < jobs.size(); ++index) {
 
-					}
-				} else {
+				if (jobsComplete.get(index)) {
 
 					mapProgress += 1;
 					reduceProgress += 1;
-				}
 
-				allJobsComplete = allJobsComplete && jobsComplete.get(index);
-			}
+				} else if (monitors.get(index) != null) {
 
+					monitors.get(index).readProgress();
+					mapProgress += monitors.get(index).mapProgress;
+					reduceProgress += monitors.get(index).reduceProgress;
+				}
+			}
 			mapProgress /= jobs.size();
 			reduceProgress /= jobs.size();
 
-			progressUpdate = prevMapProgress != mapProgress || prevReduceProgress != reduceProgress;
-			Thread.sleep(SLEEP_TIME);
+			if (jobFinished || prevMapProgress != mapProgress || prevReduceProgress != reduceProgress) {
 
-			if (progressUpdate) {
+				for (int index = 0; index < jobs.size(); ++index) {
+					if (monitors.get(index) != null && !jobsComplete.get(index)) {
+						printJobStatus(jobNames.get(index), monitors.get(index).mapProgress,
+								monitors.get(index).reduceProgress);
+					}
+				}
 				System.out.println("Group " + groupName + ": Map (" + mapProgress * 100 + "%)" + "\tReduce ("
 						+ reduceProgress * 100 + "%)");
 			}
+			prevMapProgress = mapProgress;
+			prevReduceProgress = reduceProgress;
 		}
 
+		printJobTimes();
 	}
 
 	public boolean isSuccessful() {
@@ -116,7 +245,15 @@ public class JobGroup {
 		return success;
 	}
 
+	/**
+	 * @return The number of the job that failed first, in the order it was
+	 *         added starting at 1. Jobs that were killed or skipped because of
+	 *         it are not counted. -1 if every job was successful.
+	 */
 	public int getFirstUnsuccessful() {
+		if (firstFailed >= 0) {
+			return firstFailed + 1;
+		}
 		for (int index = 0; index < jobsSuccessful.size(); ++index) {
 			boolean jobSuccessful = jobsSuccessful.get(index);
 			if (!jobSuccessful) {
@@ -126,8 +263,367 @@ public class JobGroup {
 		return -1;
 	}
 
+	/**
+	 * @param jobNumber
+	 *            The number of the job, as returned by
+	 *            {@link JobGroup#getFirstUnsuccessful}
+	 * @return The name the job was added with
+	 */
+	public String getJobName(int jobNumber) {
+		return jobNames.get(jobNumber - 1);
+	}
+
+	/**
+	 * @param jobNumber
+	 *            The number of the job, in the order it was added starting at 1
+	 * @return The wall clock time in milliseconds from submitting the job to
+	 *         seeing it finish, or -1 if it has not run
+	 */
+	public long getJobTime(int jobNumber) {
+
+		JobMonitor monitor = monitors.get(jobNumber - 1);
+		if (monitor == null || !jobsComplete.get(jobNumber - 1)) {
+			return -1;
+		}
+		return monitor.finishTime - monitor.submitTime;
+	}
+
+	/**
+	 * Submits every job whose dependencies have all succeeded, up to
+	 * {@link JobGroup#maxRunningJobs} at a time, and skips every job with a
+	 * failed dependency
+	 */
+	private void submitReadyJobs() {
+
+		int runningJobs = 0;
+		for (int index = 0; index < jobs.size(); ++index) {
+			if (monitors.get(index) != null && !jobsComplete.get(index)) {
+				++runningJobs;
+			}
+		}
+
+		// Jobs were added after their dependencies, so a single pass in order
+		// also skips the jobs behind a skipped job
+		for (int index = 0; index < jobs.size(); ++index) {
+
+			if (monitors.get(index) != null || jobsComplete.get(index)) {
+				continue;
+			}
+
+			boolean ready = true;
+			boolean dependencyFailed = false;
+			for (int dependencyIndex : jobDependencies.get(index)) {
+
+				if (!jobsComplete.get(dependencyIndex)) {
+					ready = false;
+				} else if (!jobsSuccessful.get(dependencyIndex)) {
+					dependencyFailed = true;
+				}
+			}
+
+			if (dependencyFailed) {
+
+				System.err.println("Group " + groupName + ": Skipping " + jobNames.get(index)
+						+ ", a job it depends on failed");
+				jobsComplete.set(index, Boolean.TRUE);
+
+			} else if (ready && runningJobs < maxRunningJobs) {
+
+				// The monitor submits the job, so a failed submit can be
+				// retried like any other failure
+				Integer retries = jobRetries.get(index);
+				JobMonitor monitor = new JobMonitor(index, jobs.get(index), retries == null ? defaultRetries : retries);
+				monitors.set(index, monitor);
+				++runningJobs;
+				monitor.start();
+			}
+		}
+	}
+
+	/**
+	 * Records a job its monitor saw finish
+	 *
+	 * @param monitor
+	 *            The {@link JobMonitor} of the finished job
+	 */
+	private void finishJob(JobMonitor monitor) {
+
+		jobsComplete.set(monitor.index, Boolean.TRUE);
+		jobsSuccessful.set(monitor.index, monitor.successful);
+
+		String result = " finished";
+		if (monitor.cancelled) {
+			result = " KILLED";
+		} else if (!monitor.successful) {
+			result = " FAILED";
+		}
+		System.out.println("Group " + groupName + ": " + jobNames.get(monitor.index) + result + " after "
+				+ monitor.attempts + " attempt(s) and " + (monitor.finishTime - monitor.submitTime) / 1000.0 + "s");
+
+		if (!monitor.successful && !monitor.cancelled && firstFailed < 0) {
+
+			firstFailed = monitor.index;
+			if (failFast) {
+				cancelAll();
+			}
+		}
+	}
+
+	/**
+	 * Kills every running job and skips every job that has not been
+	 * submitted yet
+	 */
+	private void cancelAll() {
+
+		System.err.println("Group " + groupName + ": " + jobNames.get(firstFailed)
+				+ " failed, stopping the other jobs");
+		for (int index = 0; index < jobs.size(); ++index) {
+
+			if (jobsComplete.get(index)) {
+				continue;
+			}
+
+			if (monitors.get(index) == null) {
+				jobsComplete.set(index, Boolean.TRUE);
+			} else {
+				monitors.get(index).cancel();
+			}
+		}
+	}
+
+	private void printJobTimes() {
+
+		System.out.println("Group " + groupName + " job times:");
+		for (int index = 0; index < jobs.size(); ++index) {
+
+			long jobTime = getJobTime(index + 1);
+			if (jobTime < 0) {
+				System.out.println("\t" + jobNames.get(index) + ": did not run");
+			} else {
+				System.out.println("\t" + jobNames.get(index) + ": " + jobTime / 1000.0 + "s");
+			}
+		}
+	}
+
+	private boolean isAllComplete() {
+		for (Boolean jobComplete : jobsComplete) {
+			if (!jobComplete) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private void printJobStatus(String jobName, float mapProgress, float reduceProgress) throws IOException {
 		System.out.println(
 				"\t" + jobName + ": Map (" + mapProgress * 100 + "%) / Reduce (" + reduceProgress * 100 + "%)");
 	}
+
+	/**
+	 * Submits and waits for a single job on its own thread, so the group can
+	 * wake up as soon as any of its jobs finishes instead of checking every
+	 * job in turn. Failed attempts are retried here with a backoff.
+	 */
+	private class JobMonitor implements Runnable {
+
+		private final int index;
+		private final int retries;
+		private final long submitTime;
+		private final Thread thread;
+		private volatile Job job;
+		private volatile int attempts;
+		private volatile long finishTime;
+		private volatile float mapProgress;
+		private volatile float reduceProgress;
+		private volatile boolean successful;
+		private volatile boolean cancelled;
+
+		/**
+		 * Whether the last attempt was submitted, so the output path is one
+		 * that attempt created rather than one that was there before the group
+		 * ran
+		 */
+		private boolean submitted;
+
+		/**
+		 * Cleared when the job fails in a way another attempt cannot fix
+		 */
+		private boolean retryable = true;
+
+		public JobMonitor(int index, Job job, int retries) {
+
+			this.index = index;
+			this.job = job;
+			this.retries = retries;
+			this.attempts = 0;
+			this.submitTime = System.currentTimeMillis();
+			this.thread = new Thread(this, groupName + " " + jobNames.get(index) + " monitor");
+			this.thread.setDaemon(true);
+		}
+
+		public void start() {
+			thread.start();
+		}
+
+		/**
+		 * Kills the job, it is not retried after this
+		 */
+		public void cancel() {
+
+			cancelled = true;
+			thread.interrupt();
+
+			// A job is either submitted already or sees it was cancelled
+			// before submitting
+			synchronized (submitLock) {
+				killJob(job);
+			}
+		}
+
+		@Override
+		public void run() {
+
+			try {
+
+				while (!cancelled) {
+
+					++attempts;
+					if (runAttempt()) {
+						successful = !cancelled;
+						break;
+					}
+
+					if (attempts > retries || cancelled || !retryable) {
+						break;
+					}
+
+					long backoffTime = retryBackoffTime << (attempts - 1);
+					System.err.println("Group " + groupName + ": " + jobNames.get(index) + " failed attempt "
+							+ attempts + ", retrying in " + backoffTime / 1000.0 + "s");
+					Thread.sleep(backoffTime);
+
+					job = copyJob(job);
+				}
+
+			} catch (InterruptedException e) {
+				if (!cancelled) {
+					System.err.println("Stopped waiting on " + jobNames.get(index));
+					e.printStackTrace();
+				}
+			} catch (IOException e) {
+				System.err.println("Could not retry " + jobNames.get(index));
+				e.printStackTrace();
+			} finally {
+				finishTime = System.currentTimeMillis();
+				finishedJobs.add(this);
+			}
+		}
+
+		/**
+		 * Submits the job and waits for it to finish
+		 *
+		 * @return true if the job succeeded
+		 */
+		private boolean runAttempt() throws InterruptedException {
+
+			try {
+
+				synchronized (submitLock) {
+					if (cancelled) {
+						return false;
+					}
+					System.out.println("Group " + groupName + ": Submitting " + jobNames.get(index));
+					submitted = false;
+					job.submit();
+					submitted = true;
+				}
+
+				// Only the completion is polled here, as often as the client
+				// is configured to, the progress is read by the group
+				int pollTime = Job.getCompletionPollInterval(job.getConfiguration());
+				while (!job.isComplete()) {
+					Thread.sleep(pollTime);
+				}
+				return job.isSuccessful();
+
+			} catch (FileAlreadyExistsException e) {
+
+				// The output was there before this attempt, it is not ours to
+				// delete and a retry would find it again
+				System.err.println("Could not submit " + jobNames.get(index));
+				e.printStackTrace();
+				retryable = false;
+				return false;
+
+			} catch (IOException e) {
+
+				// The job may still be running, so kill it before a retry
+				// writes to the same output
+				System.err.println("Could not run " + jobNames.get(index));
+				e.printStackTrace();
+				killJob(job);
+				return false;
+
+			} catch (ClassNotFoundException e) {
+				System.err.println("Could not submit " + jobNames.get(index));
+				e.printStackTrace();
+				return false;
+			}
+		}
+
+		/**
+		 * A job can only be submitted once, so a retry runs a copy with the
+		 * same configuration after deleting the output of the failed attempt.
+		 * Submitting checks that the output path does not exist yet, so the
+		 * output is only deleted when the failed attempt was submitted and
+		 * created it.
+		 *
+		 * @param failed
+		 *            The job that failed
+		 * @return A copy of the job that has not been submitted
+		 */
+		private Job copyJob(Job failed) throws IOException {
+
+			Job copy = Job.getInstance(failed.getConfiguration());
+			Path outputPath = FileOutputFormat.getOutputPath(copy);
+			if (submitted && outputPath != null) {
+				outputPath.getFileSystem(copy.getConfiguration()).delete(outputPath, true);
+			}
+			return copy;
+		}
+
+		/**
+		 * Reads the progress of the running attempt, the last progress read
+		 * is kept if it can't be read
+		 */
+		public void readProgress() {
+
+			Job running = job;
+			try {
+				if (running.getJobID() != null) {
+					mapProgress = running.mapProgress();
+					reduceProgress = running.reduceProgress();
+				}
+			} catch (IOException e) {
+				System.err.println("Could not read the progress of " + jobNames.get(index));
+				e.printStackTrace();
+			} catch (IllegalStateException e) {
+				// Not submitted yet, or a retry is being set up
+			}
+		}
+
+		private void killJob(Job running) {
+
+			try {
+				if (running.getJobID() != null) {
+					running.killJob();
+				}
+			} catch (IOException e) {
+				System.err.println("Could not kill " + jobNames.get(index));
+				e.printStackTrace();
+			} catch (IllegalStateException e) {
+				// Not submitted yet, nothing to kill
+			}
+		}
+	}
 }
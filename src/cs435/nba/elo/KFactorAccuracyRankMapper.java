@@ -8,19 +8,22 @@ import org.apache.hadoop.mapreduce.Mapper;
 
 public class KFactorAccuracyRankMapper extends Mapper<LongWritable, Text, Text, KFactorAccuracyWritable> {
 
+	private Text outputKey = new Text("key");
+
+	private FieldCursor cursor = new FieldCursor(FieldCursor.WHITESPACE);
+
 	@Override
 	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
 
 		// Value is: kFactor accuracy
-		String[] tokens = value.toString().split("\\s+");
-		if (tokens.length == 2) {
+		if (cursor.reset(value).getFieldCount() == 2) {
 
-			double kFactor = Double.parseDouble(tokens[0]);
-			double accuracy = Double.parseDouble(tokens[1]);
+			double kFactor = cursor.nextDouble();
+			double accuracy = cursor.nextDouble();
 
 			KFactorAccuracyWritable kFactorAccuracy = new KFactorAccuracyWritable(kFactor, accuracy);
 
-			context.write(new Text("key"), kFactorAccuracy);
+			context.write(outputKey, kFactorAccuracy);
 		}
 	}
 }
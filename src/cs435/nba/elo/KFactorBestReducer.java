@@ -1,11 +1,6 @@
 package cs435.nba.elo;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
@@ -13,57 +8,50 @@ import org.apache.hadoop.mapreduce.Reducer;
 
 public class KFactorBestReducer extends Reducer<DoubleWritable, IdEloWritable, DoubleWritable, Text> {
 
+	private int bestN;
+
+	/**
+	 * Whether the values are team indexes instead of player indexes
+	 */
+	private boolean teams;
+
+	/**
+	 * Decodes the indexes back to IDs, this is the final output
+	 */
+	private IdDictionary dictionary;
+
+	@Override
+	public void setup(Context context) throws IOException {
+
+		bestN = context.getConfiguration().getInt(Constants.BEST_N_KEY, Constants.DEFAULT_BEST_N);
+		teams = context.getConfiguration().getBoolean(Constants.BEST_TEAMS_KEY, false);
+		dictionary = IdDictionary.read(context);
+	}
+
 	@Override
 	public void reduce(DoubleWritable key, Iterable<IdEloWritable> values, Context context)
 			throws IOException, InterruptedException {
 
 		// Key is kFactor
 		// values are IdEloWritable
-		List<Double> highestValues = new ArrayList<Double>();
-		int numElosAdded = 0;
-		List<IdEloWritable> idEloList = new ArrayList<IdEloWritable>();
+		BestIdElos best = new BestIdElos(bestN);
 		for (IdEloWritable value : values) {
+			best.offer(value);
+		}
 
-			// Add everything til we get 10
-			if (numElosAdded < 10) {
-
-				// Add it
-				highestValues.add(value.getElo());
-				// sort using DoubleGreaterComparator so highest values come
-				// first instead of lowest
-				Collections.sort(highestValues, new DoubleGreaterComparator());
-				idEloList.add(new IdEloWritable(value));
-				++numElosAdded;
+		// Output top N
+		for (IdEloWritable idElo : best.getBest()) {
 
+			String id;
+			if (teams) {
+				id = dictionary.getTeamId(idElo.getId());
 			} else {
-
-				// After we have 10 only add if it is higher than the tenth
-				// lowest we have
-				if (value.getElo() > highestValues.get(9)) {
-					highestValues.add(value.getElo());
-					// sort using DoubleGreaterComparator so highest values come
-					// first instead of lowest
-					Collections.sort(highestValues);
-					idEloList.add(new IdEloWritable(value));
-				}
-
+				id = dictionary.getPlayerId(idElo.getId());
 			}
-		}
 
-		Collections.sort(idEloList);
-
-		// Output top 10
-		Set<IdEloWritable> idsWritten = new HashSet<IdEloWritable>();
-		for (int index = 0; index < idEloList.size() && idsWritten.size() < 10; ++index) {
-
-			IdEloWritable idElo = idEloList.get(index);
-			if (!idsWritten.contains(idElo)) {
-
-				idsWritten.add(idElo);
-				String str = idElo.getId() + " " + idElo.getYear() + " " + idElo.getMonth() + " " + idElo.getDay()
-						+ "\t" + idElo.getElo();
-				context.write(key, new Text(str));
-			}
+			String str = id + " " + idElo.getYear() + " " + idElo.getMonth() + " " + idElo.getDay() + "\t"
+					+ idElo.getElo();
+			context.write(key, new Text(str));
 		}
 	}
 
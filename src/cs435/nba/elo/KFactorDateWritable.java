@@ -5,7 +5,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import org.apache.hadoop.io.WritableComparable;
-import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.WritableComparator;
 
 /**
  * This class is so that the games are sorted correctly when they get to our
@@ -13,11 +13,31 @@ import org.apache.hadoop.io.WritableUtils;
  * factors still go to the same reducer, but they will show up in correct order
  * because we will override the compareTo method to compare the year
  * 
+ * The serialized form is fixed width so it can be sorted without
+ * deserializing: the K Factor as a big endian int with its sign bit flipped,
+ * followed by the date packed into a big endian long. Comparing the bytes
+ * gives the same order as {@link KFactorDateWritable#compareTo}.
+ * 
  * @author nate
  *
  */
 public class KFactorDateWritable implements WritableComparable<KFactorDateWritable> {
 
+	/**
+	 * Number of bytes the K Factor takes up at the start of the serialized key
+	 */
+	static final int K_FACTOR_BYTES = 4;
+
+	/**
+	 * Number of bytes of the whole serialized key
+	 */
+	static final int SERIALIZED_BYTES = K_FACTOR_BYTES + 8;
+
+	static {
+		// Register the raw comparator so the sort never deserializes keys
+		WritableComparator.define(KFactorDateWritable.class, new Comparator());
+	}
+
 	/**
 	 * The K Factor
 	 */
@@ -117,11 +137,13 @@ public class KFactorDateWritable implements WritableComparable<KFactorDateWritab
 	@Override
 	public void readFields(DataInput in) throws IOException {
 
-		kFactor = Integer.parseInt(WritableUtils.readString(in));
-		seasonYear = Integer.parseInt(WritableUtils.readString(in));
-		year = Integer.parseInt(WritableUtils.readString(in));
-		month = Integer.parseInt(WritableUtils.readString(in));
-		day = Integer.parseInt(WritableUtils.readString(in));
+		kFactor = in.readInt() ^ Integer.MIN_VALUE;
+
+		long packedDate = in.readLong();
+		seasonYear = (int) (packedDate >>> 32);
+		year = (int) ((packedDate >>> 16) & 0xFFFF);
+		month = (int) ((packedDate >>> 8) & 0xFF);
+		day = (int) (packedDate & 0xFF);
 	}
 
 	/**
@@ -133,11 +155,38 @@ public class KFactorDateWritable implements WritableComparable<KFactorDateWritab
 	@Override
 	public void write(DataOutput out) throws IOException {
 
-		WritableUtils.writeString(out, Integer.toString(kFactor));
-		WritableUtils.writeString(out, Integer.toString(seasonYear));
-		WritableUtils.writeString(out, Integer.toString(year));
-		WritableUtils.writeString(out, Integer.toString(month));
-		WritableUtils.writeString(out, Integer.toString(day));
+		// Flipping the sign bit makes negative K Factors sort first when the
+		// bytes are compared unsigned
+		out.writeInt(kFactor ^ Integer.MIN_VALUE);
+		out.writeLong(getPackedDate());
+	}
+
+	/**
+	 * @return The date of this key packed by
+	 *         {@link KFactorDateWritable#packDate}, without the K Factor
+	 */
+	public long getPackedDate() {
+		return packDate(seasonYear, year, month, day);
+	}
+
+	/**
+	 * Packs the date into a single long that orders the same way as comparing
+	 * seasonYear, year, month and day one after the other. The seasonYear gets
+	 * the upper 32 bits, the year 16 bits and the month and day 8 bits each.
+	 * 
+	 * @param seasonYear
+	 *            The season year
+	 * @param year
+	 *            The year
+	 * @param month
+	 *            The month
+	 * @param day
+	 *            The day
+	 * @return The packed date
+	 */
+	public static long packDate(int seasonYear, int year, int month, int day) {
+
+		return ((long) seasonYear << 32) | ((long) (year & 0xFFFF) << 16) | ((month & 0xFF) << 8) | (day & 0xFF);
 	}
 
 	/**
@@ -254,4 +303,19 @@ public class KFactorDateWritable implements WritableComparable<KFactorDateWritab
 
 	// Don't need hashCode because I am setting a custom partioner for this
 
+	/**
+	 * Sorts serialized {@link KFactorDateWritable} keys by comparing their
+	 * bytes, without deserializing them
+	 */
+	public static class Comparator extends WritableComparator {
+
+		public Comparator() {
+			super(KFactorDateWritable.class);
+		}
+
+		@Override
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			return compareBytes(b1, s1, SERIALIZED_BYTES, b2, s2, SERIALIZED_BYTES);
+		}
+	}
 }
@@ -9,6 +9,15 @@ public class KFactorGroupComparator extends WritableComparator {
 		super(KFactorDateWritable.class, true);
 	}
 
+	/**
+	 * Groups serialized keys by comparing only the K Factor bytes at the start
+	 * of each key, so grouping never deserializes keys
+	 */
+	@Override
+	public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+		return compareBytes(b1, s1, KFactorDateWritable.K_FACTOR_BYTES, b2, s2, KFactorDateWritable.K_FACTOR_BYTES);
+	}
+
 	@SuppressWarnings("rawtypes")
 	@Override
 	public int compare(WritableComparable one, WritableComparable two) {
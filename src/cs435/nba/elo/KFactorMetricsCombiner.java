@@ -0,0 +1,26 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+public class KFactorMetricsCombiner
+		extends Reducer<DoubleWritable, KFactorMetricsWritable, DoubleWritable, KFactorMetricsWritable> {
+
+	@Override
+	public void reduce(DoubleWritable key, Iterable<KFactorMetricsWritable> values, Context context)
+			throws IOException, InterruptedException {
+
+		// Key = K Factor
+		// Value = metrics for one or more games
+		// Only merge here, the reducer calculates the metrics once it has
+		// every game
+		KFactorMetricsWritable metrics = new KFactorMetricsWritable();
+		for (KFactorMetricsWritable value : values) {
+			metrics.merge(value);
+		}
+
+		context.write(key, metrics);
+	}
+}
@@ -0,0 +1,36 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.mapreduce.Mapper;
+
+public class KFactorMetricsMapper extends Mapper<BytesWritable, BytesWritable, DoubleWritable, KFactorMetricsWritable> {
+
+	private BeforeAfterEloRecord game = new BeforeAfterEloRecord();
+	private DoubleWritable kFactor = new DoubleWritable();
+
+	@Override
+	public void map(BytesWritable key, BytesWritable value, Context context) throws IOException,
+			InterruptedException {
+
+		// Key is the K Factor, value is the game with its before/after Elos,
+		// only the team start Elos and points are read
+		kFactor.set(BeforeAfterEloRecord.getKFactor(key));
+		game.reset(value);
+
+		BeforeAfterEloRecord.Team homeTeam = game.getHomeTeam();
+		BeforeAfterEloRecord.Team awayTeam = game.getAwayTeam();
+
+		// All four metrics come from the same values, so build them
+		// together
+		KFactorMetricsWritable metrics = new KFactorMetricsWritable();
+		if (metrics.addGame(homeTeam.getStartElo(), awayTeam.getStartElo(), homeTeam.getPoints(),
+				awayTeam.getPoints())) {
+			context.write(kFactor, metrics);
+		}
+		// else we predicted they would tie, throw it out (should only
+		// happen for first games)
+	}
+}
@@ -0,0 +1,87 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+public class KFactorMetricsReducer
+		extends Reducer<DoubleWritable, KFactorMetricsWritable, DoubleWritable, DoubleWritable> {
+
+	/**
+	 * Named outputs, one per metric. Files are written as
+	 * &lt;name&gt;-r-&lt;part&gt; in the job's output directory.
+	 */
+	public static final String PERCENT_OUTPUT = "KFactorPercent";
+	public static final String ERROR_SQUARE_OUTPUT = "KFactorErrorSquare";
+	public static final String ERROR_OUTPUT = "KFactorError";
+	public static final String TRUE_ERROR_OUTPUT = "KFactorTrueError";
+
+	private MultipleOutputs<DoubleWritable, DoubleWritable> multipleOutputs;
+
+	@Override
+	public void setup(Context context) {
+		multipleOutputs = new MultipleOutputs<DoubleWritable, DoubleWritable>(context);
+	}
+
+	@Override
+	public void reduce(DoubleWritable key, Iterable<KFactorMetricsWritable> values, Context context)
+			throws IOException, InterruptedException {
+
+		// Key = K Factor
+		// Value = partial metrics from the combiner
+		KFactorMetricsWritable metrics = new KFactorMetricsWritable();
+		for (KFactorMetricsWritable value : values) {
+			metrics.merge(value);
+		}
+
+		writeMetrics(multipleOutputs, key, metrics);
+	}
+
+	@Override
+	public void cleanup(Context context) throws IOException, InterruptedException {
+		multipleOutputs.close();
+	}
+
+	/**
+	 * Adds a named output for every metric to the job
+	 *
+	 * @param job
+	 *            The job that writes the metrics
+	 * @param keyClass
+	 *            The class of the K Factor key
+	 */
+	public static void addNamedOutputs(Job job, Class<?> keyClass) {
+
+		MultipleOutputs.addNamedOutput(job, PERCENT_OUTPUT, TextOutputFormat.class, keyClass, DoubleWritable.class);
+		MultipleOutputs.addNamedOutput(job, ERROR_SQUARE_OUTPUT, TextOutputFormat.class, keyClass,
+				DoubleWritable.class);
+		MultipleOutputs.addNamedOutput(job, ERROR_OUTPUT, TextOutputFormat.class, keyClass, DoubleWritable.class);
+		MultipleOutputs.addNamedOutput(job, TRUE_ERROR_OUTPUT, TextOutputFormat.class, keyClass,
+				DoubleWritable.class);
+	}
+
+	/**
+	 * Calculates every metric of a K Factor and writes each to its named
+	 * output
+	 *
+	 * @param multipleOutputs
+	 *            The {@link MultipleOutputs} of the task
+	 * @param key
+	 *            The K Factor
+	 * @param metrics
+	 *            The merged metrics of every game for the K Factor
+	 */
+	public static void writeMetrics(MultipleOutputs<?, ?> multipleOutputs, Writable key,
+			KFactorMetricsWritable metrics) throws IOException, InterruptedException {
+
+		multipleOutputs.write(PERCENT_OUTPUT, key, new DoubleWritable(metrics.getPercentCorrect()));
+		multipleOutputs.write(ERROR_SQUARE_OUTPUT, key, new DoubleWritable(metrics.getErrorSquareSum()));
+		multipleOutputs.write(ERROR_OUTPUT, key, new DoubleWritable(metrics.getErrorSum()));
+		multipleOutputs.write(TRUE_ERROR_OUTPUT, key, new DoubleWritable(metrics.getTrueError()));
+	}
+}
@@ -0,0 +1,417 @@
+package cs435.nba.elo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Holds everything needed to calculate the accuracy, error, error square and
+ * true error of a K Factor, so all four metrics can be built from a single
+ * pass over the BeforeAfterElo output
+ *
+ * @author nate
+ *
+ */
+public class KFactorMetricsWritable implements Writable {
+
+	/**
+	 * The number of correct predictions
+	 */
+	private int correctPredictions;
+
+	/**
+	 * The number of games where we predicted a winner
+	 */
+	private int totalPredictions;
+
+	/**
+	 * Sum of how far the expected score of the predicted winner was from the
+	 * actual result
+	 */
+	private double errorSum;
+
+	/**
+	 * Sum over the games of the square of how far the expected score of the
+	 * predicted winner was from the actual result
+	 */
+	private double errorSquareSum;
+
+	/**
+	 * Sum of the squares of how far the expected scores of both teams were
+	 * from the actual result
+	 */
+	private double trueErrorSquareSum;
+
+	/**
+	 * Required by HDFS
+	 */
+	public KFactorMetricsWritable() {
+		this(0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param correctPredictions
+	 *            The number of correct predictions
+	 * @param totalPredictions
+	 *            The number of games where we predicted a winner
+	 * @param errorSum
+	 *            Sum of the errors
+	 * @param errorSquareSum
+	 *            Sum of the error squares
+	 * @param trueErrorSquareSum
+	 *            Sum of the true error squares
+	 */
+	public KFactorMetricsWritable(int correctPredictions, int totalPredictions, double errorSum,
+			double errorSquareSum, double trueErrorSquareSum) {
+
+		this.correctPredictions = correctPredictions;
+		this.totalPredictions = totalPredictions;
+		this.errorSum = errorSum;
+		this.errorSquareSum = errorSquareSum;
+		this.trueErrorSquareSum = trueErrorSquareSum;
+	}
+
+	/**
+	 * Adds a single game to the metrics. Games where the start Elos do not
+	 * predict a winner are thrown out (should only happen for first games).
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @return true if the game was added, false if it was thrown out
+	 */
+	public boolean addGame(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints) {
+
+		if (!isPrediction(homeTeamStartElo, awayTeamStartElo)) {
+			return false;
+		}
+
+		return addGame(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints,
+				EloExpectation.getExpectedScore(homeTeamStartElo, awayTeamStartElo));
+	}
+
+	/**
+	 * {@link KFactorMetricsWritable#addGame} with the home team's expected
+	 * score already computed, every metric uses it
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @param eHome
+	 *            The expected score of the home team
+	 * @return true if the game was added, false if it was thrown out
+	 */
+	public boolean addGame(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints, double eHome) {
+
+		if (!isPrediction(homeTeamStartElo, awayTeamStartElo)) {
+			return false;
+		}
+
+		correctPredictions += getCorrect(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints);
+		++totalPredictions;
+
+		double error = getError(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints, eHome);
+		errorSum += error;
+		errorSquareSum += Math.pow(error, 2);
+		trueErrorSquareSum += getTrueErrorSquare(homeTeamStartElo, awayTeamStartElo, homeTeamPoints,
+				awayTeamPoints, eHome);
+		return true;
+	}
+
+	/**
+	 * Adds the games of another {@link KFactorMetricsWritable} to this one.
+	 * Merging is associative so partial metrics can be combined in any
+	 * grouping before the metrics are calculated.
+	 *
+	 * @param other
+	 *            The other {@link KFactorMetricsWritable} to merge in
+	 */
+	public void merge(KFactorMetricsWritable other) {
+
+		correctPredictions += other.getCorrectPredictions();
+		totalPredictions += other.getTotalPredictions();
+		errorSum += other.getErrorSum();
+		errorSquareSum += other.getErrorSquareSum();
+		trueErrorSquareSum += other.getTrueErrorSquareSum();
+	}
+
+	/**
+	 * @return {@link KFactorMetricsWritable#correctPredictions}
+	 */
+	public int getCorrectPredictions() {
+		return correctPredictions;
+	}
+
+	/**
+	 * @return {@link KFactorMetricsWritable#totalPredictions}
+	 */
+	public int getTotalPredictions() {
+		return totalPredictions;
+	}
+
+	/**
+	 * @return {@link KFactorMetricsWritable#errorSum}
+	 */
+	public double getErrorSum() {
+		return errorSum;
+	}
+
+	/**
+	 * @return {@link KFactorMetricsWritable#errorSquareSum}
+	 */
+	public double getErrorSquareSum() {
+		return errorSquareSum;
+	}
+
+	/**
+	 * @return {@link KFactorMetricsWritable#trueErrorSquareSum}
+	 */
+	public double getTrueErrorSquareSum() {
+		return trueErrorSquareSum;
+	}
+
+	/**
+	 * @return The percent of predictions that were correct
+	 */
+	public double getPercentCorrect() {
+		return 100 * ((double) correctPredictions / totalPredictions);
+	}
+
+	/**
+	 * @return The root of the mean true error square
+	 */
+	public double getTrueError() {
+		return Math.sqrt(trueErrorSquareSum / (double) totalPredictions);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+
+		correctPredictions = WritableUtils.readVInt(in);
+		totalPredictions = WritableUtils.readVInt(in);
+		errorSum = in.readDouble();
+		errorSquareSum = in.readDouble();
+		trueErrorSquareSum = in.readDouble();
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+
+		WritableUtils.writeVInt(out, correctPredictions);
+		WritableUtils.writeVInt(out, totalPredictions);
+		out.writeDouble(errorSum);
+		out.writeDouble(errorSquareSum);
+		out.writeDouble(trueErrorSquareSum);
+	}
+
+	/**
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @return true if the start Elos predict a winner, false if they predict a
+	 *         tie (should only happen for first games)
+	 */
+	public static boolean isPrediction(double homeTeamStartElo, double awayTeamStartElo) {
+
+		return homeTeamStartElo > awayTeamStartElo || homeTeamStartElo < awayTeamStartElo;
+	}
+
+	/**
+	 * Who we predicted is the team with the higher startElo. Only call this
+	 * when {@link KFactorMetricsWritable#isPrediction} is true.
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @return 1 if the prediction was correct, 0 if it was not
+	 */
+	public static int getCorrect(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints) {
+
+		if (homeTeamStartElo > awayTeamStartElo) {
+
+			// Predicted home win
+			return homeTeamPoints > awayTeamPoints ? 1 : 0;
+
+		} else {
+
+			// Predicted away win
+			return awayTeamPoints > homeTeamPoints ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Only call this when {@link KFactorMetricsWritable#isPrediction} is true.
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @return How far the expected score of the predicted winner was from the
+	 *         actual result
+	 */
+	public static double getError(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints) {
+
+		return getError(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints,
+				EloExpectation.getExpectedScore(homeTeamStartElo, awayTeamStartElo));
+	}
+
+	/**
+	 * {@link KFactorMetricsWritable#getError} with the home team's expected
+	 * score already computed
+	 */
+	private static double getError(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints, double eHome) {
+
+		double eAway = 1 - eHome;
+
+		if (homeTeamStartElo > awayTeamStartElo) {
+
+			// Predicted home win
+			if (homeTeamPoints > awayTeamPoints) {
+
+				// Correctly predicted
+				return 1 - eHome;
+
+			} else {
+
+				// Incorrect prediction
+				return eHome;
+			}
+
+		} else {
+
+			// Predicted away win
+			if (awayTeamPoints > homeTeamPoints) {
+
+				// Correctly predicted
+				return 1 - eAway;
+
+			} else {
+
+				// Incorrect prediction
+				return eAway;
+			}
+		}
+	}
+
+	/**
+	 * Only call this when {@link KFactorMetricsWritable#isPrediction} is true.
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @return The square of how far the expected score of the predicted winner
+	 *         was from the actual result
+	 */
+	public static double getErrorSquare(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints) {
+
+		return Math.pow(getError(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints), 2);
+	}
+
+	/**
+	 * Only call this when {@link KFactorMetricsWritable#isPrediction} is true.
+	 *
+	 * @param homeTeamStartElo
+	 *            The home team's Elo at the start of the game
+	 * @param awayTeamStartElo
+	 *            The away team's Elo at the start of the game
+	 * @param homeTeamPoints
+	 *            The points scored by the home team
+	 * @param awayTeamPoints
+	 *            The points scored by the away team
+	 * @return The square of how far the expected scores of both teams were
+	 *         from the actual result
+	 */
+	public static double getTrueErrorSquare(double homeTeamStartElo, double awayTeamStartElo, double homeTeamPoints,
+			double awayTeamPoints) {
+
+		return getTrueErrorSquare(homeTeamStartElo, awayTeamStartElo, homeTeamPoints, awayTeamPoints,
+				EloExpectation.getExpectedScore(homeTeamStartElo, awayTeamStartElo));
+	}
+
+	/**
+	 * {@link KFactorMetricsWritable#getTrueErrorSquare} with the home team's
+	 * expected score already computed
+	 */
+	private static double getTrueErrorSquare(double homeTeamStartElo, double awayTeamStartElo,
+			double homeTeamPoints, double awayTeamPoints, double eHome) {
+
+		double eAway = 1 - eHome;
+
+		if (homeTeamStartElo > awayTeamStartElo) {
+
+			// Predicted home win
+			if (homeTeamPoints > awayTeamPoints) {
+
+				// Correctly predicted
+				// Expected value home = 1
+				// Expected value away = 0
+				double error = Math.abs(1 - eHome) + Math.abs(0 - eAway);
+				return Math.pow(error, 2);
+
+			} else {
+
+				// Incorrect prediction
+				// Expected value home = 0
+				// Expected value away = 1
+				double error = Math.abs(0 - eHome) + Math.abs(1 - eAway);
+				return Math.pow(error, 2);
+			}
+
+		} else {
+
+			// Predicted away win
+			if (awayTeamPoints > homeTeamPoints) {
+
+				// Correctly predicted
+				// Expected value away = 1
+				// Expected value home = 0
+				double error = Math.abs(1 - eAway) + Math.abs(0 - eHome);
+				return Math.pow(error, 2);
+
+			} else {
+
+				// Incorrect prediction
+				// Expected value away = 0
+				// Expected value home = 1
+				double error = Math.abs(0 - eAway) + Math.abs(1 - eHome);
+				return Math.pow(error, 2);
+			}
+		}
+	}
+}
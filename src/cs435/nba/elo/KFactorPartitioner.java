@@ -6,7 +6,87 @@ public class KFactorPartitioner<K, V> extends Partitioner<KFactorDateWritable, V
 
 	@Override
 	public int getPartition(KFactorDateWritable key, V value, int numReduceTasks) {
-		return key.getKFactor() % numReduceTasks;
+		return getPartition(key.getKFactor(), numReduceTasks);
+	}
+
+	/**
+	 * @param keyKFactor
+	 *            The K Factor of a key, see
+	 *            {@link KFactorPartitioner#getKeyKFactor}
+	 * @param numReduceTasks
+	 *            The number of reducers
+	 * @return The reducer the key goes to. In a single shuffle sweep each
+	 *         block of K Factors has a reducer of its own.
+	 */
+	public static int getPartition(int keyKFactor, int numReduceTasks) {
+
+		if (isSingleShuffleSweep()) {
+			return getSweepBlock(keyKFactor, numReduceTasks) % numReduceTasks;
+		}
+		return keyKFactor % numReduceTasks;
+	}
+
+	/**
+	 * @return true if the Elo job keys games by blocks of K Factors, one block
+	 *         per reducer
+	 */
+	public static boolean isSingleShuffleSweep() {
+		return Constants.SINGLE_SHUFFLE_SWEEP && !Constants.TEST_RUN && !Constants.FINAL_RUN;
+	}
+
+	/**
+	 * @param kFactor
+	 *            A K Factor that is rated
+	 * @param numReduceTasks
+	 *            The number of reducers
+	 * @return The K Factor of the key its games are sent with, the first K
+	 *         Factor of its block in a single shuffle sweep
+	 */
+	public static int getKeyKFactor(int kFactor, int numReduceTasks) {
+
+		if (isSingleShuffleSweep()) {
+			return Constants.MIN_K_FACTOR + getSweepBlock(kFactor, numReduceTasks) * getSweepBlockStep(numReduceTasks);
+		}
+		return kFactor;
+	}
+
+	/**
+	 * @param keyKFactor
+	 *            The first K Factor of a sweep block
+	 * @param numReduceTasks
+	 *            The number of reducers
+	 * @return The last K Factor of the block
+	 */
+	public static int getLastKFactor(int keyKFactor, int numReduceTasks) {
+
+		return Math.min(keyKFactor + getSweepBlockStep(numReduceTasks) - Constants.K_FACTOR_STEP,
+				Constants.MAX_K_FACTOR);
+	}
+
+	/**
+	 * @param numReduceTasks
+	 *            The number of reducers
+	 * @return How many K Factors a sweep block has, enough that there is at
+	 *         most one block per reducer and each game is shuffled at most once
+	 *         to each reducer
+	 */
+	public static int getSweepBlockSize(int numReduceTasks) {
+
+		int kFactorCount = (Constants.MAX_K_FACTOR - Constants.MIN_K_FACTOR) / Constants.K_FACTOR_STEP + 1;
+		return (kFactorCount + numReduceTasks - 1) / numReduceTasks;
+	}
+
+	/**
+	 * @param numReduceTasks
+	 *            The number of reducers
+	 * @return How far apart the first K Factors of two sweep blocks are
+	 */
+	public static int getSweepBlockStep(int numReduceTasks) {
+		return getSweepBlockSize(numReduceTasks) * Constants.K_FACTOR_STEP;
+	}
+
+	private static int getSweepBlock(int kFactor, int numReduceTasks) {
+		return (kFactor - Constants.MIN_K_FACTOR) / getSweepBlockStep(numReduceTasks);
 	}
 
 }
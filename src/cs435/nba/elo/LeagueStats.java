@@ -1,29 +1,73 @@
 package cs435.nba.elo;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.LineReader;
 
 /**
  * Singleton class holds the league average for stats for season years Stats
  * from: http://www.basketball-reference.com/leagues/NBA_stats.html
  * 
+ * The stats are kept in arrays indexed by the season minus the first season,
+ * next to the {@link SeasonWeights} of each season, so rating a game does not
+ * box the season or compute the weights for every player. An instance never
+ * changes once it is built, so the worker threads of {@link LocalPipeline}
+ * can share it. Seasons after the built in ones are read from a file with
+ * {@link LeagueStats#read}.
+ * 
  * @author nolson
  *
  */
 public class LeagueStats {
 
-	private static LeagueStats leagueStats = null;
-	private Map<Integer, Stats> stats;
+	private static volatile LeagueStats leagueStats = null;
+
+	private final int minSeason;
+	private final int maxSeason;
 
-	private static final int MAX_SEASON = 2017;
-	private static final int MIN_SEASON = 1947;
+	/**
+	 * The stats and weights of each season, at the index of the season minus
+	 * {@link LeagueStats#minSeason}
+	 */
+	private final double[] eFGPercents;
+	private final double[] toPercents;
+	private final SeasonWeights[] weights;
 
 	/**
 	 * Private constructor since this class is a singleton
+	 * 
+	 * @param stats
+	 *            The stats of every season from the first to the last
+	 */
+	private LeagueStats(TreeMap<Integer, Stats> stats) {
+
+		minSeason = stats.firstKey();
+		maxSeason = stats.lastKey();
+
+		int seasons = maxSeason - minSeason + 1;
+		eFGPercents = new double[seasons];
+		toPercents = new double[seasons];
+		weights = new SeasonWeights[seasons];
+		for (int index = 0; index < seasons; ++index) {
+
+			Stats season = stats.get(minSeason + index);
+			eFGPercents[index] = season.getEFGPct();
+			toPercents[index] = season.getToPct();
+			weights[index] = new SeasonWeights(season.getEFGPct(), season.getToPct());
+		}
+	}
+
+	/**
+	 * @return The stats of the seasons built into this class
 	 */
-	private LeagueStats() {
+	private static TreeMap<Integer, Stats> getDefaultStats() {
 
-		stats = new HashMap<Integer, Stats>();
+		TreeMap<Integer, Stats> stats = new TreeMap<Integer, Stats>();
 		stats.put(2017, new Stats(0.514, 12.7));
 		stats.put(2016, new Stats(0.502, 13.2));
 		stats.put(2015, new Stats(0.496, 13.3));
@@ -95,41 +139,107 @@ public class LeagueStats {
 		stats.put(1949, new Stats(0.327, 16.5));
 		stats.put(1948, new Stats(0.284, 16.5));
 		stats.put(1947, new Stats(0.279, 16.5));
-
+		return stats;
 	}
 
 	/**
 	 * Method used to get the singleton instance of this class
 	 * 
-	 * @return The singleton instance of {@link LeagueStats}
+	 * @return The singleton instance of {@link LeagueStats}, the built in
+	 *         seasons unless {@link LeagueStats#setInstance} was called
 	 */
 	public static LeagueStats getInstance() {
 
-		if (leagueStats == null) {
-			leagueStats = new LeagueStats();
+		LeagueStats instance = leagueStats;
+		if (instance == null) {
+			synchronized (LeagueStats.class) {
+
+				if (leagueStats == null) {
+					leagueStats = new LeagueStats(getDefaultStats());
+				}
+				instance = leagueStats;
+			}
 		}
 
-		return leagueStats;
+		return instance;
 	}
 
 	/**
+	 * Replaces the singleton instance, before any game is rated
 	 * 
-	 * @param season
-	 *            The season to get the effective field goal percentage of
-	 * @return The effective field goal percentage of the given season
+	 * @param instance
+	 *            The {@link LeagueStats} every later
+	 *            {@link LeagueStats#getInstance} returns
 	 */
-	public double getEffectiveFieldGoalPercent(int season) {
+	public static synchronized void setInstance(LeagueStats instance) {
+		leagueStats = instance;
+	}
 
-		if (season > MAX_SEASON) {
+	/**
+	 * Reads league stats from a file with lines of season, effective field
+	 * goal percentage and turnover percentage separated by commas, the same
+	 * numbers as the basketball-reference table (e.g. 2017,0.514,12.7). The
+	 * seasons in the file replace or extend the built in ones, and together
+	 * they must not skip a season.
+	 * 
+	 * @param conf
+	 *            The configuration
+	 * @param path
+	 *            The league stats file
+	 * @return The league stats
+	 * @throws IOException
+	 *             If the file could not be read or is malformed
+	 */
+	public static LeagueStats read(Configuration conf, Path path) throws IOException {
 
-			season = MAX_SEASON;
+		TreeMap<Integer, Stats> stats = getDefaultStats();
+		FieldCursor cursor = new FieldCursor(',');
 
-		} else if (season < MIN_SEASON) {
+		FileSystem fs = path.getFileSystem(conf);
+		LineReader reader = new LineReader(fs.open(path), conf);
+		try {
+			Text line = new Text();
+			int lineNumber = 0;
+			while (reader.readLine(line) > 0) {
 
-			season = MIN_SEASON;
+				++lineNumber;
+				if (line.getLength() == 0) {
+					continue;
+				}
+
+				cursor.reset(line);
+				if (cursor.getFieldCount() != 3) {
+					throw new IOException(path + " line " + lineNumber + " does not have 3 columns");
+				}
+
+				try {
+					int season = cursor.nextInt();
+					stats.put(season, new Stats(cursor.nextDouble(), cursor.nextDouble()));
+				} catch (NumberFormatException e) {
+					throw new IOException(path + " line " + lineNumber + " is not a number", e);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		for (int season = stats.firstKey(); season <= stats.lastKey(); ++season) {
+			if (!stats.containsKey(season)) {
+				throw new IOException("No league stats for season " + season + " in " + path);
+			}
 		}
 
-		return stats.get(season).getEFGPct();
+		return new LeagueStats(stats);
+	}
+
+	/**
+	 * 
+	 * @param season
+	 *            The season to get the effective field goal percentage of
+	 * @return The effective field goal percentage of the given season
+	 */
+	public double getEffectiveFieldGoalPercent(int season) {
+		return eFGPercents[getSeasonIndex(season)];
 	}
 
 	/**
@@ -138,20 +248,175 @@ public class LeagueStats {
 	 * @return The turnover percentage of the given season
 	 */
 	public double getTurnoverPercent(int season) {
+		return toPercents[getSeasonIndex(season)];
+	}
+
+	/**
+	 * @param season
+	 *            The season to get the weights of
+	 * @return The {@link SeasonWeights} of the given season
+	 */
+	public SeasonWeights getWeights(int season) {
+		return weights[getSeasonIndex(season)];
+	}
+
+	/**
+	 * Seasons before the first or after the last use the first or the last
+	 * 
+	 * @return The index of the season in the arrays
+	 */
+	private int getSeasonIndex(int season) {
 
-		if (season > MAX_SEASON) {
+		if (season > maxSeason) {
 
-			season = MAX_SEASON;
+			season = maxSeason;
 
-		} else if (season < MIN_SEASON) {
+		} else if (season < minSeason) {
 
-			season = MIN_SEASON;
+			season = minSeason;
 		}
 
-		return stats.get(season).getToPct();
+		return season - minSeason;
+	}
+
+	/**
+	 * What each stat of a player is worth in the "Elo Score" of a single
+	 * season. Elo points are the sum of:
+	 * <ul>
+	 * <li>points * 1</li>
+	 * <li>rebounds * 2 * eFG% * (1 - TO%)</li>
+	 * <li>assists * 2</li>
+	 * <li>steals * 2 * eFG% * (1 - TO%)</li>
+	 * <li>blocks * 2 * eFG%</li>
+	 * <li>turnovers * -2 * eFG% * (1 - TO%)</li>
+	 * </ul>
+	 */
+	public static final class SeasonWeights {
+
+		private final double points;
+		private final double rebounds;
+		private final double assists;
+		private final double steals;
+		private final double blocks;
+		private final double turnovers;
+
+		/**
+		 * Constructs the weights
+		 * 
+		 * @param eFGPercent
+		 *            The effective field goal percentage for the season
+		 * @param toPercent
+		 *            The turnover percentage for the season
+		 */
+		private SeasonWeights(double eFGPercent, double toPercent) {
+
+			// We only use 1 - toPercent
+			double noTOPercent = 1 - toPercent;
+
+			/*
+			 * Points count for a single point for the team
+			 */
+			this.points = 1;
+
+			/*
+			 * Rebounds give the team 2 points if they score and don't turn it
+			 * over
+			 */
+			this.rebounds = 2 * eFGPercent * noTOPercent;
+
+			/**
+			 * Assists give the team at least 2 points
+			 */
+			this.assists = 2;
+
+			/**
+			 * Steals give the team 2 poitns if they score and don't turn it
+			 * over
+			 */
+			this.steals = 2 * eFGPercent * noTOPercent;
+
+			/**
+			 * Blocks take 2 points away from the other team assuming they
+			 * would have made the shot. Turnovers are not taken into account
+			 * because we don't know which team has the ball after a block.
+			 */
+			this.blocks = 2 * eFGPercent;
+
+			/**
+			 * Turnovers give the other team 2 points assuming they score and
+			 * don't turn it over
+			 */
+			this.turnovers = -2 * eFGPercent * noTOPercent;
+		}
+
+		/**
+		 * Calculates a player's "Elo Score" for a game of the season
+		 * 
+		 * @param eloPoints
+		 *            The points scored
+		 * @param eloRebounds
+		 *            The number of rebounds obtained
+		 * @param eloAssists
+		 *            The number of assists given
+		 * @param eloSteals
+		 *            The number of steals obtained
+		 * @param eloBlocks
+		 *            The number of blocks
+		 * @param eloTurnovers
+		 *            The number of turnovers
+		 * @return the "Elo Score" the player got in the game
+		 */
+		public double getEloScore(double eloPoints, double eloRebounds, double eloAssists, double eloSteals,
+				double eloBlocks, double eloTurnovers) {
+
+			return eloPoints * points + eloRebounds * rebounds + eloAssists * assists + eloSteals * steals
+					+ eloBlocks * blocks + eloTurnovers * turnovers;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#points}
+		 */
+		public double getPoints() {
+			return points;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#rebounds}
+		 */
+		public double getRebounds() {
+			return rebounds;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#assists}
+		 */
+		public double getAssists() {
+			return assists;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#steals}
+		 */
+		public double getSteals() {
+			return steals;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#blocks}
+		 */
+		public double getBlocks() {
+			return blocks;
+		}
+
+		/**
+		 * @return {@link SeasonWeights#turnovers}
+		 */
+		public double getTurnovers() {
+			return turnovers;
+		}
 	}
 
-	private class Stats {
+	private static class Stats {
 
 		/**
 		 * The effective field goal percentage for the year
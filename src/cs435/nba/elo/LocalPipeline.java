@@ -0,0 +1,565 @@
+package cs435.nba.elo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Runs the whole pipeline in this JVM without submitting any MapReduce jobs.
+ * The games, players and salary files are read once and kept in memory, then
+ * every K Factor is rated in parallel on a {@link ForkJoinPool} using the same
+ * rating and metric logic as the MapReduce jobs. Writes the same
+ * BeforeAfterElo, KFactor*Ranked and RecommendationsRanked outputs that
+ * {@link Main} does.
+ *
+ * @author nate
+ *
+ */
+public class LocalPipeline {
+
+	private String gamesFile;
+	private String playersFile;
+	private String salaryFile;
+	private String tmpDir;
+	private String outDir;
+
+	private Configuration conf;
+
+	/**
+	 * The player and team indexes of the games, built the same way Job 0
+	 * builds them
+	 */
+	private IdDictionary dictionary;
+
+	/**
+	 * Constructor, takes the same paths as {@link Main}
+	 *
+	 * @param gamesFile
+	 *            The games file
+	 * @param playersFile
+	 *            The players file
+	 * @param salaryFile
+	 *            The salary file
+	 * @param tmpDir
+	 *            The directory for intermediate outputs
+	 * @param outDir
+	 *            The directory for the final output
+	 */
+	public LocalPipeline(String gamesFile, String playersFile, String salaryFile, String tmpDir, String outDir) {
+		this.gamesFile = gamesFile;
+		this.playersFile = playersFile;
+		this.salaryFile = salaryFile;
+		this.tmpDir = tmpDir;
+		this.outDir = outDir;
+		this.conf = new Configuration();
+	}
+
+	/**
+	 * Runs every stage of the pipeline
+	 */
+	public void run() throws IOException, InterruptedException, ExecutionException {
+
+		long startTime = System.currentTimeMillis();
+
+		List<GameWritable> games = readGames();
+		System.out.println("Local pipeline read " + games.size() + " games");
+
+		// Games are rated earliest to latest
+		Collections.sort(games);
+
+		List<Integer> kFactors = getKFactors();
+
+		// Build the league stats before any worker threads need them
+		LeagueStats.getInstance();
+
+		ForkJoinPool pool = new ForkJoinPool();
+		List<KFactorResult> results = new ArrayList<KFactorResult>();
+		try {
+
+			List<Callable<KFactorResult>> tasks = new ArrayList<Callable<KFactorResult>>();
+			Path beforeAfterEloPath = createOutputDir(tmpDir, Main.JOB_TWO_OUT_DIR);
+			for (int index = 0; index < kFactors.size(); ++index) {
+				tasks.add(new KFactorTask(games, kFactors.get(index), new Path(beforeAfterEloPath, partName(index))));
+			}
+
+			for (Future<KFactorResult> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+
+		} finally {
+			pool.shutdown();
+		}
+
+		writeRanked(results, Main.JOB_FOUR_A_OUT_DIR, KFactorResult.PERCENT);
+		writeRanked(results, Main.JOB_FOUR_B_OUT_DIR, KFactorResult.ERROR_SQUARE);
+		writeRanked(results, Main.JOB_FOUR_C_OUT_DIR, KFactorResult.ERROR);
+		writeRanked(results, Main.JOB_FOUR_D_OUT_DIR, KFactorResult.TRUE_ERROR);
+
+		if (Constants.FINAL_RUN) {
+
+			for (KFactorResult result : results) {
+				if (result.kFactor == Constants.FINAL_K_FACTOR) {
+					writeRecommendations(result.mostRecentElo);
+				}
+			}
+		}
+
+		System.out.println("Local pipeline finished in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	/**
+	 * @return The K Factors to rate for this run
+	 */
+	private List<Integer> getKFactors() {
+
+		List<Integer> kFactors = new ArrayList<Integer>();
+		if (Constants.TEST_RUN) {
+			kFactors.add(Constants.TEST_K_FACTOR);
+		} else if (Constants.FINAL_RUN) {
+			kFactors.add(Constants.FINAL_K_FACTOR);
+		} else {
+			for (int kFactor = Constants.MIN_K_FACTOR; kFactor <= Constants.MAX_K_FACTOR; kFactor += Constants.K_FACTOR_STEP) {
+				kFactors.add(kFactor);
+			}
+		}
+		return kFactors;
+	}
+
+	/**
+	 * Joins the games file and the players file into games with all of their
+	 * players, the same way Job 1 does
+	 *
+	 * @return All the games that were in the games file
+	 */
+	private List<GameWritable> readGames() throws IOException {
+
+		// Same column counts Job 1 uses to tell the files apart
+		int gameCols = GamePlayerReducer.GAME_COLS;
+		int playerCols = GamePlayerReducer.PLAYER_COLS;
+
+		FieldCursor cursor = new FieldCursor(',');
+
+		List<String> gameLines = readLines(gamesFile);
+		List<String> playerLines = readLines(playersFile);
+		dictionary = buildDictionary(gameLines, playerLines, cursor);
+
+		Map<String, GameWritable> gameRows = new LinkedHashMap<String, GameWritable>();
+		for (String line : gameLines) {
+
+			int fieldCount = cursor.reset(line).getFieldCount();
+			if (fieldCount == gameCols) {
+
+				try {
+					GameWritable game = GamePlayerReducer.parseGame(cursor, dictionary);
+					gameRows.put(game.getGameId(), game);
+				} catch (TeamNotFoundException e) {
+					System.err.println("Could not encode line: " + line);
+					e.printStackTrace();
+				}
+			} else {
+				System.err.println("File has vals length = " + fieldCount + ". expecting " + gameCols);
+			}
+		}
+
+		Map<String, Set<PlayerGameWritable>> gamePlayers = new HashMap<String, Set<PlayerGameWritable>>();
+		for (String line : playerLines) {
+
+			int fieldCount = cursor.reset(line).getFieldCount();
+			if (fieldCount == playerCols) {
+
+				String gameId = cursor.nextString();
+				Set<PlayerGameWritable> players = gamePlayers.get(gameId);
+				if (players == null) {
+					players = new HashSet<PlayerGameWritable>();
+					gamePlayers.put(gameId, players);
+				}
+
+				try {
+					players.add(GamePlayerReducer.parsePlayer(cursor.rewind(), dictionary));
+				} catch (TeamNotFoundException e) {
+					System.err.println("Could not encode line: " + line);
+					e.printStackTrace();
+				} catch (PlayerNotFoundException e) {
+					System.err.println("Could not encode line: " + line);
+					e.printStackTrace();
+				}
+
+			} else {
+				System.err.println("File has vals length = " + fieldCount + ". expecting " + playerCols);
+			}
+		}
+
+		List<GameWritable> games = new ArrayList<GameWritable>();
+		for (GameWritable game : gameRows.values()) {
+
+			Set<PlayerGameWritable> players = gamePlayers.get(game.getGameId());
+			if (players != null) {
+				GamePlayerReducer.addPlayers(game, players);
+			}
+
+			games.add(game);
+		}
+
+		return games;
+	}
+
+	/**
+	 * Indexes every player and team ID of the files in sorted order, the same
+	 * as {@link IdDictionaryReducer}
+	 *
+	 * @param gameLines
+	 *            The lines of the games file
+	 * @param playerLines
+	 *            The lines of the players file
+	 * @param cursor
+	 *            A comma separated cursor to read the lines with
+	 * @return The dictionary
+	 */
+	private static IdDictionary buildDictionary(List<String> gameLines, List<String> playerLines,
+			FieldCursor cursor) {
+
+		Set<String> playerIds = new TreeSet<String>();
+		Set<String> teamIds = new TreeSet<String>();
+		for (String line : gameLines) {
+			if (cursor.reset(line).getFieldCount() == GamePlayerReducer.GAME_COLS) {
+
+				// 5. awayTeamId and 14. homeTeamId
+				teamIds.add(cursor.skip(5).nextString());
+				teamIds.add(cursor.skip(8).nextString());
+			}
+		}
+		for (String line : playerLines) {
+			if (cursor.reset(line).getFieldCount() == GamePlayerReducer.PLAYER_COLS) {
+
+				// 1. teamId and 2. playerId
+				teamIds.add(cursor.skip(1).nextString());
+				playerIds.add(cursor.nextString());
+			}
+		}
+		return new IdDictionary(playerIds, teamIds);
+	}
+
+	/**
+	 * Joins the most recent Elo of each player with the salary file and writes
+	 * them ranked the same way Jobs 6 and 7 do
+	 *
+	 * @param mostRecentElo
+	 *            The most recent Elo of every player for the final K Factor
+	 */
+	private void writeRecommendations(RatingTable mostRecentElo) throws IOException {
+
+		List<PlayerEloSalaryWritable> playerList = new ArrayList<PlayerEloSalaryWritable>();
+
+		// Salary file is: firstName lastName playerId salary
+		Map<String, String[]> salaries = new HashMap<String, String[]>();
+		for (String line : readLines(salaryFile)) {
+
+			String[] tokens = line.split("\\s+");
+			if (tokens.length == 4) {
+				salaries.put(tokens[2], tokens);
+			}
+		}
+
+		for (int playerId = 0; playerId < mostRecentElo.getCapacity(); ++playerId) {
+
+			if (!mostRecentElo.contains(playerId)) {
+				continue;
+			}
+
+			PlayerEloWritable player = mostRecentElo.getPlayerElo(playerId, dictionary);
+			String[] tokens = salaries.get(player.getPlayerId());
+			if (tokens != null) {
+
+				String name = tokens[0] + " " + tokens[1];
+				playerList.add(new PlayerEloSalaryWritable(player.getPlayerId(), name, player.getTeamId(),
+						player.getElo(), Double.parseDouble(tokens[3])));
+			}
+		}
+
+		Collections.sort(playerList);
+
+		List<String> lines = new ArrayList<String>();
+		for (PlayerEloSalaryWritable player : playerList) {
+			lines.add(player.toRankedString());
+		}
+		writeLines(new Path(createOutputDir(outDir, Main.JOB_SEVEN_OUT_DIR), partName(0)), lines);
+	}
+
+	/**
+	 * Writes the metric of every K Factor ranked the same way
+	 * {@link KFactorAccuracyRankReducer} does
+	 *
+	 * @param results
+	 *            The results of every K Factor
+	 * @param dirName
+	 *            The name of the output directory
+	 * @param metric
+	 *            Which metric of {@link KFactorResult} to rank
+	 */
+	private void writeRanked(List<KFactorResult> results, String dirName, int metric) throws IOException {
+
+		List<KFactorAccuracyWritable> kFactorList = new ArrayList<KFactorAccuracyWritable>();
+		for (KFactorResult result : results) {
+			if (result.metrics.getTotalPredictions() > 0) {
+				kFactorList.add(new KFactorAccuracyWritable(result.kFactor, result.getMetric(metric)));
+			}
+		}
+
+		Collections.sort(kFactorList);
+
+		List<String> lines = new ArrayList<String>();
+		for (KFactorAccuracyWritable kFactor : kFactorList) {
+			lines.add(kFactor.toString());
+		}
+		writeLines(new Path(createOutputDir(tmpDir, dirName), partName(0)), lines);
+	}
+
+	/**
+	 * Creates an output directory, failing like Hadoop does if it already
+	 * exists
+	 *
+	 * @param parent
+	 *            The parent directory
+	 * @param dirName
+	 *            The name of the output directory
+	 * @return The {@link Path} of the created directory
+	 */
+	private Path createOutputDir(String parent, String dirName) throws IOException {
+
+		Path dir = new Path(parent, dirName);
+		FileSystem fs = dir.getFileSystem(conf);
+		if (fs.exists(dir)) {
+			throw new IOException("Output directory " + dir + " already exists");
+		}
+		fs.mkdirs(dir);
+		return dir;
+	}
+
+	/**
+	 * @param index
+	 *            The index of the part file
+	 * @return The name Hadoop would give the part file of that reducer
+	 */
+	private static String partName(int index) {
+		return String.format("part-r-%05d", index);
+	}
+
+	/**
+	 * Reads every line of a file, or of every file in a directory
+	 *
+	 * @param file
+	 *            The file or directory to read
+	 * @return All of the lines
+	 */
+	private List<String> readLines(String file) throws IOException {
+
+		Path path = new Path(file);
+		FileSystem fs = path.getFileSystem(conf);
+
+		List<String> lines = new ArrayList<String>();
+		for (FileStatus status : fs.listStatus(path)) {
+
+			String name = status.getPath().getName();
+			if (status.isDirectory() || name.startsWith("_") || name.startsWith(".")) {
+				continue;
+			}
+
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(fs.open(status.getPath()), StandardCharsets.UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Writes the lines to the given file
+	 *
+	 * @param file
+	 *            The file to write
+	 * @param lines
+	 *            The lines to write
+	 */
+	private void writeLines(Path file, List<String> lines) throws IOException {
+
+		BufferedWriter writer = openWriter(file);
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @param file
+	 *            The file to create
+	 * @return A writer for the new file
+	 */
+	private BufferedWriter openWriter(Path file) throws IOException {
+
+		FileSystem fs = file.getFileSystem(conf);
+		return new BufferedWriter(new OutputStreamWriter(fs.create(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Rates every game for a single K Factor and writes its BeforeAfterElo part
+	 * file, keeping the metrics and most recent Elos in memory
+	 */
+	private class KFactorTask implements Callable<KFactorResult> {
+
+		private List<GameWritable> games;
+		private int kFactor;
+		private Path outputFile;
+
+		public KFactorTask(List<GameWritable> games, int kFactor, Path outputFile) {
+			this.games = games;
+			this.kFactor = kFactor;
+			this.outputFile = outputFile;
+		}
+
+		@Override
+		public KFactorResult call() throws IOException, TeamNotFoundException {
+
+			KFactorResult result = new KFactorResult(kFactor);
+			RatingTable ratingTable = new RatingTable(dictionary.getPlayerCount());
+			RatingHistoryWriter history = new RatingHistoryWriter(kFactor, dictionary);
+			String kFactorStr = Double.toString(kFactor);
+
+			BufferedWriter writer = openWriter(outputFile);
+			try {
+				for (GameWritable sharedGame : games) {
+
+					// Every K Factor sets its own Elos on the players, so each
+					// task rates its own copy of the game
+					GameWritable game = new GameWritable(sharedGame);
+					GameEloReducer.rateGame(game, kFactor, ratingTable);
+					String str = GameEloReducer.toBeforeAfterElo(game, dictionary);
+
+					writer.write(kFactorStr);
+					writer.write('\t');
+					writer.write(str);
+					writer.newLine();
+
+					result.addGame(game);
+					if (Constants.WRITE_RATING_HISTORY) {
+						history.addGame(game);
+					}
+				}
+			} finally {
+				writer.close();
+			}
+
+			// Next to the part file, the same as Job 2
+			if (Constants.WRITE_RATING_HISTORY) {
+
+				Path historyPath = new Path(outputFile.getParent(), RatingHistoryWriter.getFileName(kFactor));
+				OutputStream out = historyPath.getFileSystem(conf).create(historyPath);
+				try {
+					history.write(out);
+				} finally {
+					out.close();
+				}
+			}
+
+			// After the last game the table holds every player's most recent
+			// Elo, the same as Job 2 writes
+			if (kFactor == Constants.FINAL_K_FACTOR) {
+				result.mostRecentElo = ratingTable;
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * The metrics and most recent Elos of a single K Factor
+	 */
+	private static class KFactorResult {
+
+		static final int PERCENT = 0;
+		static final int ERROR_SQUARE = 1;
+		static final int ERROR = 2;
+		static final int TRUE_ERROR = 3;
+
+		private int kFactor;
+
+		private KFactorMetricsWritable metrics;
+
+		/**
+		 * Most recent Elo and team of every player, only for
+		 * {@link Constants#FINAL_K_FACTOR}
+		 */
+		private RatingTable mostRecentElo;
+
+		public KFactorResult(int kFactor) {
+			this.kFactor = kFactor;
+			this.metrics = new KFactorMetricsWritable();
+		}
+
+		/**
+		 * Adds a rated game to the metrics
+		 *
+		 * @param game
+		 *            A game that has been rated for this K Factor
+		 */
+		public void addGame(GameWritable game) throws TeamNotFoundException {
+
+			TeamGameWritable homeTeam = game.getHomeTeam();
+			TeamGameWritable awayTeam = game.getAwayTeam();
+
+			metrics.addGame(homeTeam.getStartElo(), awayTeam.getStartElo(), homeTeam.getPoints(),
+					awayTeam.getPoints());
+		}
+
+		/**
+		 * @param metric
+		 *            Which metric to get
+		 * @return The value of the metric, calculated the same way
+		 *         {@link KFactorMetricsReducer} does
+		 */
+		public double getMetric(int metric) {
+
+			switch (metric) {
+			case PERCENT:
+				return metrics.getPercentCorrect();
+			case ERROR_SQUARE:
+				return metrics.getErrorSquareSum();
+			case ERROR:
+				return metrics.getErrorSum();
+			default:
+				return metrics.getTrueError();
+			}
+		}
+	}
+}
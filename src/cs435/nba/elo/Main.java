@@ -2,41 +2,44 @@ package cs435.nba.elo;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileAsBinaryInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 public class Main {
 
+	private static final String JOB_ZERO_OUT_DIR = "IdDictionary";
 	private static final String JOB_ONE_OUT_DIR = "GamePlayerPerLine";
-	private static final String JOB_TWO_OUT_DIR = "BeforeAfterElo";
+	static final String JOB_TWO_OUT_DIR = "BeforeAfterElo";
 
 	private static final String JOB_THREE_A_OUT_DIR = "BestPlayers";
 	private static final String JOB_THREE_B_OUT_DIR = "BestTeams";
-	private static final String JOB_THREE_C_OUT_DIR = "KFactorPercent";
-	private static final String JOB_THREE_D_OUT_DIR = "KFactorErrorSquare";
-	private static final String JOB_THREE_E_OUT_DIR = "KFactorError";
-	private static final String JOB_THREE_F_OUT_DIR = "KFactorTrueError";
+	private static final String JOB_THREE_C_OUT_DIR = "KFactorMetrics";
 
-	private static final String JOB_FOUR_A_OUT_DIR = "KFactorPercentRanked";
-	private static final String JOB_FOUR_B_OUT_DIR = "KFactorErrorSquareRanked";
-	private static final String JOB_FOUR_C_OUT_DIR = "KFactorErrorRanked";
-	private static final String JOB_FOUR_D_OUT_DIR = "KFactorTrueErrorRanked";
-
-	private static final String JOB_FIVE_OUT_DIR = "MostRecentElo";
+	static final String JOB_FOUR_A_OUT_DIR = "KFactorPercentRanked";
+	static final String JOB_FOUR_B_OUT_DIR = "KFactorErrorSquareRanked";
+	static final String JOB_FOUR_C_OUT_DIR = "KFactorErrorRanked";
+	static final String JOB_FOUR_D_OUT_DIR = "KFactorTrueErrorRanked";
 
 	private static final String JOB_SIX_OUT_DIR = "Recommendations";
 
-	private static final String JOB_SEVEN_OUT_DIR = "RecommendationsRanked";
+	static final String JOB_SEVEN_OUT_DIR = "RecommendationsRanked";
 
 	private static final int NUM_JOBS;
 
@@ -45,14 +48,42 @@ public class Main {
 		if (Constants.FINAL_RUN) {
 			NUM_JOBS = 7;
 		} else {
-			NUM_JOBS = 4;
+			NUM_JOBS = 5;
 		}
 	}
 
 	public static void main(String[] args) throws IOException, ClassNotFoundException, InterruptedException {
 
-		if (args.length != 5) {
-			System.err.println("Usage: <jar file> <games file> <players file> <salary file> <tmp_dir> <output dir>");
+		// League stats for seasons that are not built in, after the other
+		// arguments
+		String leagueStatsFile = null;
+		if (args.length > 2 && args[args.length - 2].equals("-leagueStats")) {
+			leagueStatsFile = args[args.length - 1];
+			args = Arrays.copyOf(args, args.length - 2);
+		}
+
+		if (args.length == 6 && args[5].equals("-local")) {
+
+			// Run every stage in this JVM instead of as MapReduce jobs
+			try {
+				if (leagueStatsFile != null) {
+					LeagueStats.setInstance(LeagueStats.read(new Configuration(), new Path(leagueStatsFile)));
+				}
+				new LocalPipeline(args[0], args[1], args[2], args[3], args[4]).run();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+				System.exit(1);
+			}
+			System.exit(0);
+		}
+
+		// Start the Elos from the checkpoint of an earlier Job 2 output
+		String checkpointDir = null;
+		if (args.length == 7 && args[5].equals("-checkpoint")) {
+			checkpointDir = args[6];
+		} else if (args.length != 5) {
+			System.err.println("Usage: <jar file> <games file> <players file> <salary file> <tmp_dir> <output dir>"
+					+ " [-local | -checkpoint <earlier BeforeAfterElo dir>] [-leagueStats <league stats file>]");
 			System.exit(-1);
 		}
 		String gamesFile = args[0];
@@ -61,55 +92,119 @@ public class Main {
 		String tmpDir = args[3];
 		String outDir = args[4];
 
+		String jobZeroOutputPath = tmpDir + File.separator + JOB_ZERO_OUT_DIR;
 		String jobOneOutputPath = tmpDir + File.separator + JOB_ONE_OUT_DIR;
 		String jobTwoOutputPath = tmpDir + File.separator + JOB_TWO_OUT_DIR;
 		String jobThreeAOutputPath = tmpDir + File.separator + JOB_THREE_A_OUT_DIR;
 		String jobThreeBOutputPath = tmpDir + File.separator + JOB_THREE_B_OUT_DIR;
 		String jobThreeCOutputPath = tmpDir + File.separator + JOB_THREE_C_OUT_DIR;
-		String jobThreeDOutputPath = tmpDir + File.separator + JOB_THREE_D_OUT_DIR;
-		String jobThreeEOutputPath = tmpDir + File.separator + JOB_THREE_E_OUT_DIR;
-		String jobThreeFOutputPath = tmpDir + File.separator + JOB_THREE_F_OUT_DIR;
+
+		// The BeforeAfterElo lines are in the part files of Job 2, its other
+		// files are the metrics, checkpoint and most recent Elo side outputs
+		String jobTwoPartFiles = jobTwoOutputPath + File.separator + "part-*";
+		String mostRecentEloFiles = jobTwoOutputPath + File.separator + GameEloReducer.MOST_RECENT_ELO_OUTPUT
+				+ "-r-*";
+
+		// Where Job 4 finds the metrics
+		String metricsOutputPath = jobThreeCOutputPath;
+		if (Constants.INLINE_METRICS) {
+			metricsOutputPath = jobTwoOutputPath;
+		}
 		String jobFourAOutputPath = tmpDir + File.separator + JOB_FOUR_A_OUT_DIR;
 		String jobFourBOutputPath = tmpDir + File.separator + JOB_FOUR_B_OUT_DIR;
 		String jobFourCOutputPath = tmpDir + File.separator + JOB_FOUR_C_OUT_DIR;
 		String jobFourDOutputPath = tmpDir + File.separator + JOB_FOUR_D_OUT_DIR;
-		String jobFiveOutputPath = tmpDir + File.separator + JOB_FIVE_OUT_DIR;
 		String jobSixOutputPath = tmpDir + File.separator + JOB_SIX_OUT_DIR;
 		String jobSevenOutputPath = outDir + File.separator + JOB_SEVEN_OUT_DIR;
 
-		/* Job 1 */
+		// Every job is submitted as soon as the jobs it reads from succeed
+		JobGroup pipeline = new JobGroup("Pipeline", Constants.MAX_RUNNING_JOBS);
+		pipeline.setFailFast(Constants.FAIL_FAST);
+		pipeline.setRetryPolicy(Constants.JOB_RETRIES, Constants.JOB_RETRY_BACKOFF_TIME);
+
+		/* Job 0 */
 		// Input: GamesFile + PlayersFile
-		// Output: Games with players on single line
-		System.out.println("\n***** Job 1/" + NUM_JOBS + " Starting *****\n");
+		// Output: The IdDictionary with an int index for every player and team
+		// ID, the later jobs get it through the cache
+		Configuration confZero = new Configuration();
+		Job jobZero = Job.getInstance(confZero);
+		jobZero.setJarByClass(Main.class);
+		jobZero.setMapperClass(IdDictionaryMapper.class);
+		jobZero.setCombinerClass(IdDictionaryCombiner.class);
+		jobZero.setReducerClass(IdDictionaryReducer.class);
+		// A single reducer numbers every ID in sorted order
+		jobZero.setNumReduceTasks(1);
+		jobZero.setMapOutputKeyClass(Text.class);
+		jobZero.setMapOutputValueClass(NullWritable.class);
+		jobZero.setOutputKeyClass(Text.class);
+		jobZero.setOutputValueClass(NullWritable.class);
+		jobZero.setInputFormatClass(TextInputFormat.class);
+		jobZero.setOutputFormatClass(TextOutputFormat.class);
+
+		FileInputFormat.setInputPaths(jobZero, new Path(gamesFile), new Path(playersFile));
+		FileOutputFormat.setOutputPath(jobZero, new Path(jobZeroOutputPath));
+
+		pipeline.addJob(jobZero, "Job 0 Id Dictionary");
+		/* End Job 0 */
+
+		/* Job 1 */
+		// Input: GamesFile + PlayersFile + IdDictionary
+		// Output: Games with their players, as binary GameWritables with the
+		// player and team indexes
 		Configuration confOne = new Configuration();
 		Job jobOne = Job.getInstance(confOne);
 		jobOne.setJarByClass(Main.class);
-		jobOne.setMapperClass(GamePlayerMapper.class);
-		jobOne.setReducerClass(GamePlayerReducer.class);
-		jobOne.setMapOutputKeyClass(Text.class);
-		jobOne.setMapOutputValueClass(Text.class);
-		jobOne.setOutputKeyClass(NullWritable.class);
-		jobOne.setOutputValueClass(Text.class);
-		jobOne.setInputFormatClass(TextInputFormat.class);
-		jobOne.setOutputFormatClass(TextOutputFormat.class);
-
-		FileInputFormat.setInputPaths(jobOne, new Path(gamesFile), new Path(playersFile));
-		FileOutputFormat.setOutputPath(jobOne, new Path(jobOneOutputPath));
+		IdDictionary.addCacheFile(jobOne, jobZeroOutputPath);
+
+		if (useMapSideJoin(confOne, gamesFile, playersFile)) {
+
+			// Broadcast the games file and stream the players file past it,
+			// no shuffle needed
+			System.out.println("Job 1 using map side join");
+			jobOne.setMapperClass(GamePlayerJoinMapper.class);
+			jobOne.setNumReduceTasks(0);
+			jobOne.addCacheFile(new Path(gamesFile).toUri());
+			// The players file fits in one block, keep it in one split even
+			// if the split size is set smaller
+			jobOne.setInputFormatClass(NonSplittableTextInputFormat.class);
+			FileInputFormat.setInputPaths(jobOne, new Path(playersFile));
 
-		if (!jobOne.waitForCompletion(true)) {
-			System.err.println("\nERROR: Job 1 FAILED\n");
-			System.exit(1);
+		} else {
+
+			System.out.println("Job 1 using reduce side join");
+			jobOne.setMapperClass(GamePlayerMapper.class);
+			jobOne.setReducerClass(GamePlayerReducer.class);
+			jobOne.setMapOutputKeyClass(Text.class);
+			jobOne.setMapOutputValueClass(Text.class);
+			jobOne.setInputFormatClass(TextInputFormat.class);
+			FileInputFormat.setInputPaths(jobOne, new Path(gamesFile), new Path(playersFile));
 		}
-		System.out.println("\n***** Job 1/" + NUM_JOBS + " Finished *****\n");
+
+		jobOne.setOutputKeyClass(Text.class);
+		jobOne.setOutputValueClass(GameWritable.class);
+		jobOne.setOutputFormatClass(SequenceFileOutputFormat.class);
+
+		FileOutputFormat.setOutputPath(jobOne, new Path(jobOneOutputPath));
+
+		pipeline.addJob(jobOne, "Job 1 Game Players", jobZero);
 		/* End Job 1 */
 
 		/* Job 2 */
 		// Input: Output from Job 1
-		// Output: Print of games with teams and players before/after elo
-		System.out.println("\n***** Job 2/" + NUM_JOBS + " Starting *****\n");
+		// Output: Games with teams and players before/after elo, as binary
+		// GameWritables keyed by K Factor
+		// and the EloCheckpoint a later run can start from
 		Configuration confTwo = new Configuration();
+		if (checkpointDir != null) {
+			confTwo.set(Constants.CHECKPOINT_DIR_KEY, checkpointDir);
+		}
+		if (leagueStatsFile != null) {
+			confTwo.set(Constants.LEAGUE_STATS_FILE_KEY, leagueStatsFile);
+		}
 		Job jobTwo = Job.getInstance(confTwo);
 		jobTwo.setJarByClass(Main.class);
+		// The most recent Elos, checkpoint and rating history are decoded
+		IdDictionary.addCacheFile(jobTwo, jobZeroOutputPath);
 		jobTwo.setMapperClass(GameEloMapper.class);
 		jobTwo.setPartitionerClass(KFactorPartitioner.class);
 		jobTwo.setGroupingComparatorClass(KFactorGroupComparator.class);
@@ -117,24 +212,27 @@ public class Main {
 		jobTwo.setMapOutputKeyClass(KFactorDateWritable.class);
 		jobTwo.setMapOutputValueClass(GameWritable.class);
 		jobTwo.setOutputKeyClass(DoubleWritable.class);
-		jobTwo.setOutputValueClass(Text.class);
-		jobTwo.setInputFormatClass(TextInputFormat.class);
-		jobTwo.setOutputFormatClass(TextOutputFormat.class);
+		jobTwo.setOutputValueClass(GameWritable.class);
+		jobTwo.setInputFormatClass(SequenceFileInputFormat.class);
+		jobTwo.setOutputFormatClass(SequenceFileOutputFormat.class);
 
 		FileInputFormat.setInputPaths(jobTwo, new Path(jobOneOutputPath));
 		FileOutputFormat.setOutputPath(jobTwo, new Path(jobTwoOutputPath));
 
-		if (!jobTwo.waitForCompletion(true)) {
-			System.err.println("\nERROR: Job 2 FAILED\n");
-			System.exit(2);
+		EloCheckpoint.addNamedOutput(jobTwo);
+		GameEloReducer.addMostRecentEloOutput(jobTwo);
+		if (Constants.INLINE_METRICS) {
+			KFactorMetricsReducer.addNamedOutputs(jobTwo, DoubleWritable.class);
 		}
-		System.out.println("\n***** Job 2/" + NUM_JOBS + " Finished *****\n");
+
+		pipeline.addJob(jobTwo, "Job 2 Game Elo", jobOne);
 		/* End Job 2 */
 
 		/* Job 3 */
-		// Group of jobs
-		System.out.println("\n***** Job 3/" + NUM_JOBS + " Starting *****\n");
-		JobGroup jobGroupThree = new JobGroup("Job 3");
+		// Jobs reading the output of Job 2
+
+		// The job that writes the metrics Job 4 ranks
+		Job metricsJob = jobTwo;
 
 		/* Job 3a and 3b are for testing */
 		if (Constants.TEST_RUN || Constants.FINAL_RUN) {
@@ -142,10 +240,12 @@ public class Main {
 			/* Job 3a */
 			// Best Players
 			// Input: Output from Job 2
-			// Output: Top 10 players for each k Value
+			// Output: Top N players for each k Value
 			Configuration confThreeA = new Configuration();
+			confThreeA.setInt(Constants.BEST_N_KEY, Constants.DEFAULT_BEST_N);
 			Job jobThreeA = Job.getInstance(confThreeA);
 			jobThreeA.setJarByClass(Main.class);
+			IdDictionary.addCacheFile(jobThreeA, jobZeroOutputPath);
 			jobThreeA.setMapperClass(KFactorBestPlayerMapper.class);
 			jobThreeA.setCombinerClass(KFactorBestCombiner.class);
 			jobThreeA.setReducerClass(KFactorBestReducer.class);
@@ -153,21 +253,25 @@ public class Main {
 			jobThreeA.setMapOutputValueClass(IdEloWritable.class);
 			jobThreeA.setOutputKeyClass(DoubleWritable.class);
 			jobThreeA.setOutputValueClass(Text.class);
-			jobThreeA.setInputFormatClass(TextInputFormat.class);
+			// Read as raw bytes, the mapper only decodes what it needs
+			jobThreeA.setInputFormatClass(SequenceFileAsBinaryInputFormat.class);
 			jobThreeA.setOutputFormatClass(TextOutputFormat.class);
 
-			FileInputFormat.setInputPaths(jobThreeA, new Path(jobTwoOutputPath));
+			FileInputFormat.setInputPaths(jobThreeA, new Path(jobTwoPartFiles));
 			FileOutputFormat.setOutputPath(jobThreeA, new Path(jobThreeAOutputPath));
-			jobGroupThree.addJob(jobThreeA, "Best Player");
+			pipeline.addJob(jobThreeA, "Job 3a Best Player", jobTwo);
 			/* End Job 3a */
 
 			/* Job 3b */
 			// Best Teams
 			// Input: Output from Job 2
-			// Output: Top 10 teams for each K value
+			// Output: Top N teams for each K value
 			Configuration confThreeB = new Configuration();
+			confThreeB.setInt(Constants.BEST_N_KEY, Constants.DEFAULT_BEST_N);
+			confThreeB.setBoolean(Constants.BEST_TEAMS_KEY, true);
 			Job jobThreeB = Job.getInstance(confThreeB);
 			jobThreeB.setJarByClass(Main.class);
+			IdDictionary.addCacheFile(jobThreeB, jobZeroOutputPath);
 			jobThreeB.setMapperClass(KFactorBestTeamMapper.class);
 			jobThreeB.setCombinerClass(KFactorBestCombiner.class);
 			jobThreeB.setReducerClass(KFactorBestReducer.class);
@@ -175,113 +279,52 @@ public class Main {
 			jobThreeB.setMapOutputValueClass(IdEloWritable.class);
 			jobThreeB.setOutputKeyClass(DoubleWritable.class);
 			jobThreeB.setOutputValueClass(Text.class);
-			jobThreeB.setInputFormatClass(TextInputFormat.class);
+			jobThreeB.setInputFormatClass(SequenceFileAsBinaryInputFormat.class);
 			jobThreeB.setOutputFormatClass(TextOutputFormat.class);
 
-			FileInputFormat.setInputPaths(jobThreeB, new Path(jobTwoOutputPath));
+			FileInputFormat.setInputPaths(jobThreeB, new Path(jobTwoPartFiles));
 			FileOutputFormat.setOutputPath(jobThreeB, new Path(jobThreeBOutputPath));
-			jobGroupThree.addJob(jobThreeB, "Best Team");
+			pipeline.addJob(jobThreeB, "Job 3b Best Team", jobTwo);
 			/* End Job 3b */
 		}
 
-		/* Job 3c */
-		// K Factor accuracy
-		// Input: Output from Job 2
-		// Output: KFactor %Correct
-		Configuration confThreeC = new Configuration();
-		Job jobThreeC = Job.getInstance(confThreeC);
-		jobThreeC.setJarByClass(Main.class);
-		jobThreeC.setMapperClass(KFactorAccuracyMapper.class);
-		jobThreeC.setReducerClass(KFactorAccuracyReducer.class);
-		jobThreeC.setMapOutputKeyClass(Text.class);
-		jobThreeC.setMapOutputValueClass(IntWritable.class);
-		jobThreeC.setOutputKeyClass(Text.class);
-		jobThreeC.setOutputValueClass(DoubleWritable.class);
-		jobThreeC.setInputFormatClass(TextInputFormat.class);
-		jobThreeC.setOutputFormatClass(TextOutputFormat.class);
-
-		FileInputFormat.setInputPaths(jobThreeC, new Path(jobTwoOutputPath));
-		FileOutputFormat.setOutputPath(jobThreeC, new Path(jobThreeCOutputPath));
-		jobGroupThree.addJob(jobThreeC, "K Factor Accuracy");
-		/* End Job 3c */
-
-		/* Job 3d */
-		// K Factor Square Error
-		// Input: Output from Job 2
-		// Output: KFactor SquareError
-		Configuration confThreeD = new Configuration();
-		Job jobThreeD = Job.getInstance(confThreeD);
-		jobThreeD.setJarByClass(Main.class);
-		jobThreeD.setMapperClass(KFactorErrorSquareMapper.class);
-		jobThreeD.setReducerClass(KFactorErrorReducer.class);
-		jobThreeD.setMapOutputKeyClass(Text.class);
-		jobThreeD.setMapOutputValueClass(DoubleWritable.class);
-		jobThreeD.setOutputKeyClass(Text.class);
-		jobThreeD.setOutputValueClass(DoubleWritable.class);
-		jobThreeD.setInputFormatClass(TextInputFormat.class);
-		jobThreeD.setOutputFormatClass(TextOutputFormat.class);
-
-		FileInputFormat.setInputPaths(jobThreeD, new Path(jobTwoOutputPath));
-		FileOutputFormat.setOutputPath(jobThreeD, new Path(jobThreeDOutputPath));
-		jobGroupThree.addJob(jobThreeD, "K Factor Error Square");
-		/* End Job 3d */
-
-		/* Job 3e */
-		// K Factor Error
-		// Input: Output from Job 2
-		// Output: KFactor Error
-		Configuration confThreeE = new Configuration();
-		Job jobThreeE = Job.getInstance(confThreeE);
-		jobThreeE.setJarByClass(Main.class);
-		jobThreeE.setMapperClass(KFactorErrorMapper.class);
-		jobThreeE.setReducerClass(KFactorErrorReducer.class);
-		jobThreeE.setMapOutputKeyClass(Text.class);
-		jobThreeE.setMapOutputValueClass(DoubleWritable.class);
-		jobThreeE.setOutputKeyClass(Text.class);
-		jobThreeE.setOutputValueClass(DoubleWritable.class);
-		jobThreeE.setInputFormatClass(TextInputFormat.class);
-		jobThreeE.setOutputFormatClass(TextOutputFormat.class);
-
-		FileInputFormat.setInputPaths(jobThreeE, new Path(jobTwoOutputPath));
-		FileOutputFormat.setOutputPath(jobThreeE, new Path(jobThreeEOutputPath));
-		jobGroupThree.addJob(jobThreeE, "K Factor Error");
-		/* End Job 3e */
-
-		// K Factor True Error
-		// Input: Output from Job 2
-		// Output: KFactor True Error
-		Configuration confThreeF = new Configuration();
-		Job jobThreeF = Job.getInstance(confThreeF);
-		jobThreeF.setJarByClass(Main.class);
-		jobThreeF.setMapperClass(KFactorTrueErrorMapper.class);
-		jobThreeF.setReducerClass(KFactorTrueErrorReducer.class);
-		jobThreeF.setMapOutputKeyClass(Text.class);
-		jobThreeF.setMapOutputValueClass(DoubleWritable.class);
-		jobThreeF.setOutputKeyClass(Text.class);
-		jobThreeF.setOutputValueClass(DoubleWritable.class);
-		jobThreeF.setInputFormatClass(TextInputFormat.class);
-		jobThreeF.setOutputFormatClass(TextOutputFormat.class);
-
-		FileInputFormat.setInputPaths(jobThreeF, new Path(jobTwoOutputPath));
-		FileOutputFormat.setOutputPath(jobThreeF, new Path(jobThreeFOutputPath));
-		jobGroupThree.addJob(jobThreeF, "K Factor True Error");
-		/* End Job 3f */
-
-		jobGroupThree.runAndWait();
-		if (!jobGroupThree.isSuccessful()) {
-			System.err.println("\nERROR: Job 3 FAILED\n");
-			System.exit(3);
+		/* Job 3c is not needed when Job 2 writes the metrics */
+		if (!Constants.INLINE_METRICS) {
+
+			/* Job 3c */
+			// K Factor metrics
+			// Input: Output from Job 2
+			// Output: KFactor %Correct, SquareError, Error and True Error, each
+			// in its own named output
+			Configuration confThreeC = new Configuration();
+			Job jobThreeC = Job.getInstance(confThreeC);
+			jobThreeC.setJarByClass(Main.class);
+			jobThreeC.setMapperClass(KFactorMetricsMapper.class);
+			jobThreeC.setCombinerClass(KFactorMetricsCombiner.class);
+			jobThreeC.setReducerClass(KFactorMetricsReducer.class);
+			jobThreeC.setMapOutputKeyClass(DoubleWritable.class);
+			jobThreeC.setMapOutputValueClass(KFactorMetricsWritable.class);
+			jobThreeC.setOutputKeyClass(DoubleWritable.class);
+			jobThreeC.setOutputValueClass(DoubleWritable.class);
+			jobThreeC.setInputFormatClass(SequenceFileAsBinaryInputFormat.class);
+			LazyOutputFormat.setOutputFormatClass(jobThreeC, TextOutputFormat.class);
+			KFactorMetricsReducer.addNamedOutputs(jobThreeC, DoubleWritable.class);
+
+			FileInputFormat.setInputPaths(jobThreeC, new Path(jobTwoPartFiles));
+			FileOutputFormat.setOutputPath(jobThreeC, new Path(jobThreeCOutputPath));
+			pipeline.addJob(jobThreeC, "Job 3c K Factor Metrics", jobTwo);
+			metricsJob = jobThreeC;
+			/* End Job 3c */
 		}
-		System.out.println("\n***** Job 3/" + NUM_JOBS + " Finished *****\n");
+
 		/* End Job 3 */
 
 		/* Job 4 */
-		System.out.println("\n***** Job 4/" + NUM_JOBS + " Starting *****\n");
-		JobGroup jobGroupFour = new JobGroup("Job 4");
+		// Rankers, each only waits on the metrics
 
 		/* Job 4a */
 		// K Factor accuracy ranker
-		// Input: Output from job 3c
+		// Input: Output from job 3c (or job 2 for inline metrics)
 		// Output: KFactor %Correct (ranked highest percent to lowest percent)
 		Configuration confFourA = new Configuration();
 		Job jobFourA = Job.getInstance(confFourA);
@@ -295,14 +338,15 @@ public class Main {
 		jobFourA.setInputFormatClass(TextInputFormat.class);
 		jobFourA.setOutputFormatClass(TextOutputFormat.class);
 
-		FileInputFormat.setInputPaths(jobFourA, new Path(jobThreeCOutputPath));
+		FileInputFormat.setInputPaths(jobFourA,
+				new Path(metricsOutputPath, KFactorMetricsReducer.PERCENT_OUTPUT + "-r-*"));
 		FileOutputFormat.setOutputPath(jobFourA, new Path(jobFourAOutputPath));
-		jobGroupFour.addJob(jobFourA, "KFactor Accuracy Ranked");
+		pipeline.addJob(jobFourA, "Job 4a KFactor Accuracy Ranked", metricsJob);
 		/* End Job 4a */
 
 		/* Job 4b */
 		// K Factor errorsquare ranker
-		// Input: Output from job 3d
+		// Input: Output from job 3c (or job 2 for inline metrics)
 		// Output: KFactor errorSquare (ranked highest percent to lowest
 		// percent)
 		Configuration confFourB = new Configuration();
@@ -317,14 +361,15 @@ public class Main {
 		jobFourB.setInputFormatClass(TextInputFormat.class);
 		jobFourB.setOutputFormatClass(TextOutputFormat.class);
 
-		FileInputFormat.setInputPaths(jobFourB, new Path(jobThreeDOutputPath));
+		FileInputFormat.setInputPaths(jobFourB,
+				new Path(metricsOutputPath, KFactorMetricsReducer.ERROR_SQUARE_OUTPUT + "-r-*"));
 		FileOutputFormat.setOutputPath(jobFourB, new Path(jobFourBOutputPath));
-		jobGroupFour.addJob(jobFourB, "KFactor Error Square Ranked");
+		pipeline.addJob(jobFourB, "Job 4b KFactor Error Square Ranked", metricsJob);
 		/* End Job 4b */
 
 		/* Job 4c */
 		// K Factor error ranker
-		// Input: Output from job 3e
+		// Input: Output from job 3c (or job 2 for inline metrics)
 		// Output: KFactor error (ranked highest percent to lowest percent)
 		Configuration confFourC = new Configuration();
 		Job jobFourC = Job.getInstance(confFourC);
@@ -338,14 +383,15 @@ public class Main {
 		jobFourC.setInputFormatClass(TextInputFormat.class);
 		jobFourC.setOutputFormatClass(TextOutputFormat.class);
 
-		FileInputFormat.setInputPaths(jobFourC, new Path(jobThreeEOutputPath));
+		FileInputFormat.setInputPaths(jobFourC,
+				new Path(metricsOutputPath, KFactorMetricsReducer.ERROR_OUTPUT + "-r-*"));
 		FileOutputFormat.setOutputPath(jobFourC, new Path(jobFourCOutputPath));
-		jobGroupFour.addJob(jobFourC, "KFactor Error Ranked");
+		pipeline.addJob(jobFourC, "Job 4c KFactor Error Ranked", metricsJob);
 		/* End Job 4c */
 
 		/* Job 4d */
 		// K Factor true error ranker
-		// Input: Output from job 3f
+		// Input: Output from job 3c (or job 2 for inline metrics)
 		// Output: KFactor true error (ranked highest percent to lowest percent)
 		Configuration confFourD = new Configuration();
 		Job jobFourD = Job.getInstance(confFourD);
@@ -359,108 +405,116 @@ public class Main {
 		jobFourD.setInputFormatClass(TextInputFormat.class);
 		jobFourD.setOutputFormatClass(TextOutputFormat.class);
 
-		FileInputFormat.setInputPaths(jobFourD, new Path(jobThreeFOutputPath));
+		FileInputFormat.setInputPaths(jobFourD,
+				new Path(metricsOutputPath, KFactorMetricsReducer.TRUE_ERROR_OUTPUT + "-r-*"));
 		FileOutputFormat.setOutputPath(jobFourD, new Path(jobFourDOutputPath));
-		jobGroupFour.addJob(jobFourD, "KFactor True Error Ranked");
+		pipeline.addJob(jobFourD, "Job 4d KFactor True Error Ranked", metricsJob);
 		/* End Job 4d */
 
-		jobGroupFour.runAndWait();
-		if (!jobGroupFour.isSuccessful()) {
-			System.err.println("\nERROR: Job 4 FAILED\n");
-			System.exit(4);
-		}
-		System.out.println("\n***** Job 4/" + NUM_JOBS + " Finished *****\n");
 		/* End Job 4 */
 
 		if (Constants.FINAL_RUN) {
 
-			/* Job 5 */
-			// Most recent elo mapper
-			// Input: Output from job 2
-			// Output: players with their most recent elo
-			System.out.println("\n***** Job 5/" + NUM_JOBS + " Starting *****\n");
-			Configuration confFive = new Configuration();
-			Job jobFive = Job.getInstance(confFive);
-			jobFive.setJarByClass(Main.class);
-			jobFive.setMapperClass(MostRecentEloMapper.class);
-			jobFive.setPartitionerClass(KFactorPartitioner.class);
-			jobFive.setGroupingComparatorClass(KFactorGroupComparator.class);
-			jobFive.setReducerClass(MostRecentEloReducer.class);
-			jobFive.setMapOutputKeyClass(KFactorDateWritable.class);
-			jobFive.setMapOutputValueClass(Text.class);
-			jobFive.setOutputKeyClass(NullWritable.class);
-			jobFive.setOutputValueClass(Text.class);
-			jobFive.setInputFormatClass(TextInputFormat.class);
-			jobFive.setOutputFormatClass(TextOutputFormat.class);
-
-			FileInputFormat.setInputPaths(jobFive, new Path(jobTwoOutputPath));
-			FileOutputFormat.setOutputPath(jobFive, new Path(jobFiveOutputPath));
-
-			if (!jobFive.waitForCompletion(true)) {
-				System.err.println("\nERROR: Job 5 FAILED\n");
-				System.exit(5);
-			}
-			System.out.println("\n***** Job 5/" + NUM_JOBS + " Finished *****\n");
-			/* End Job 5 */
+			/* Job 5 is gone, Job 2 writes the most recent Elos */
 
 			/* Job 6 */
 			// Recommendations
-			// Input: Output from job 5 and salary file
+			// Input: Most recent Elos from job 2 and salary file
 			// Output: Recommendations
-			System.out.println("\n***** Job 6/" + NUM_JOBS + " Starting *****\n");
 			Configuration confSix = new Configuration();
 			Job jobSix = Job.getInstance(confSix);
 			jobSix.setJarByClass(Main.class);
-			jobSix.setMapperClass(RecommendationMapper.class);
 			jobSix.setReducerClass(RecommendationReducer.class);
 			jobSix.setMapOutputKeyClass(Text.class);
-			jobSix.setMapOutputValueClass(Text.class);
+			jobSix.setMapOutputValueClass(PlayerEloSalaryWritable.class);
 			jobSix.setOutputKeyClass(PlayerEloSalaryWritable.class);
 			jobSix.setOutputValueClass(NullWritable.class);
-			jobSix.setInputFormatClass(TextInputFormat.class);
-			jobSix.setOutputFormatClass(TextOutputFormat.class);
+			jobSix.setOutputFormatClass(SequenceFileOutputFormat.class);
 
-			FileInputFormat.setInputPaths(jobSix, new Path(jobFiveOutputPath), new Path(salaryFile));
+			// The Elos are binary, the salary file is text
+			MultipleInputs.addInputPath(jobSix, new Path(mostRecentEloFiles), SequenceFileInputFormat.class,
+					RecommendationEloMapper.class);
+			MultipleInputs.addInputPath(jobSix, new Path(salaryFile), TextInputFormat.class,
+					RecommendationMapper.class);
 			FileOutputFormat.setOutputPath(jobSix, new Path(jobSixOutputPath));
 
-			if (!jobSix.waitForCompletion(true)) {
-				System.err.println("\nERROR: Job 6 FAILED\n");
-				System.exit(6);
-			}
-			System.out.println("\n***** Job 6/" + NUM_JOBS + " Finished *****\n");
+			pipeline.addJob(jobSix, "Job 6 Recommendations", jobTwo);
 			/* End Job 6 */
 
 			/* Job 7 */
 			// Ranked recommendations
 			// Input: Output from job 6
 			// Output: Recommendations sorted
-			System.out.println("\n***** Job 7 /" + NUM_JOBS + " Starting *****\n");
 			Configuration confSeven = new Configuration();
 			Job jobSeven = Job.getInstance(confSeven);
 			jobSeven.setJarByClass(Main.class);
 			jobSeven.setMapperClass(RecommendationRankMapper.class);
 			jobSeven.setReducerClass(RecommendationRankReducer.class);
 			jobSeven.setMapOutputKeyClass(Text.class);
-			jobSeven.setMapOutputValueClass(Text.class);
+			jobSeven.setMapOutputValueClass(PlayerEloSalaryWritable.class);
 			jobSeven.setOutputKeyClass(NullWritable.class);
 			jobSeven.setOutputValueClass(Text.class);
-			jobSeven.setInputFormatClass(TextInputFormat.class);
+			jobSeven.setInputFormatClass(SequenceFileInputFormat.class);
 			jobSeven.setOutputFormatClass(TextOutputFormat.class);
 
 			FileInputFormat.setInputPaths(jobSeven, new Path(jobSixOutputPath));
 			FileOutputFormat.setOutputPath(jobSeven, new Path(jobSevenOutputPath));
 
-			if (!jobSeven.waitForCompletion(true)) {
-				System.err.println("\nERROR: Job 7 FAILED\n");
-				System.exit(7);
-			}
-			System.out.println("\n***** Job 7/" + NUM_JOBS + " Finished *****\n");
+			pipeline.addJob(jobSeven, "Job 7 Recommendations Ranked", jobSix);
 			/* End Job 7 */
 
 		}
 
+		System.out.println("\n***** Running " + NUM_JOBS + " stages *****\n");
+		pipeline.runAndWait();
+		if (!pipeline.isSuccessful()) {
+			int failedJob = pipeline.getFirstUnsuccessful();
+			System.err.println("\nERROR: " + pipeline.getJobName(failedJob) + " FAILED\n");
+			System.exit(failedJob);
+		}
+		System.out.println("\n***** All " + NUM_JOBS + " stages Finished *****\n");
+
 		System.exit(0);
 
 	}
 
+	/**
+	 * Whether Job 1 can join the games and players on the map side. The games
+	 * file has to be small enough to broadcast, and the players file has to be
+	 * a single file no larger than one block so its one split goes to one
+	 * mapper anyway, with the players of each game on consecutive lines.
+	 * Anything else falls back to the reduce side join, a large players file
+	 * is never forced through a single mapper.
+	 *
+	 * @param conf
+	 *            The configuration of Job 1
+	 * @param gamesFile
+	 *            The games file
+	 * @param playersFile
+	 *            The players file
+	 * @return true to use the map side join
+	 */
+	private static boolean useMapSideJoin(Configuration conf, String gamesFile, String playersFile)
+			throws IOException {
+
+		if (!Constants.MAP_SIDE_JOIN) {
+			return false;
+		}
+
+		Path gamesPath = new Path(gamesFile);
+		FileStatus gamesStatus = gamesPath.getFileSystem(conf).getFileStatus(gamesPath);
+		Path playersPath = new Path(playersFile);
+		FileStatus playersStatus = playersPath.getFileSystem(conf).getFileStatus(playersPath);
+
+		if (!gamesStatus.isFile() || gamesStatus.getLen() > Constants.MAP_SIDE_JOIN_MAX_BYTES
+				|| !playersStatus.isFile() || playersStatus.getLen() > playersStatus.getBlockSize()) {
+			return false;
+		}
+
+		if (!GamePlayerJoinMapper.isGroupedByGame(conf, playersPath)) {
+			System.out.println("Players file is not grouped by gameId");
+			return false;
+		}
+		return true;
+	}
 }
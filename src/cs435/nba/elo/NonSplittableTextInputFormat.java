@@ -0,0 +1,20 @@
+package cs435.nba.elo;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+
+/**
+ * A {@link TextInputFormat} that gives each file to a single mapper, so a
+ * mapper sees every line of a file in order
+ *
+ * @author nate
+ *
+ */
+public class NonSplittableTextInputFormat extends TextInputFormat {
+
+	@Override
+	protected boolean isSplitable(JobContext context, Path file) {
+		return false;
+	}
+}
@@ -116,6 +116,13 @@ public class PlayerEloSalaryWritable implements WritableComparable<PlayerEloSala
 		}
 	}
 
+	/**
+	 * @return The line written for this player in the ranked recommendations
+	 */
+	public String toRankedString() {
+		return name + "\t" + team + "\t" + getEloPerMillion() + "\t" + elo + "\t" + getSalaryInMillions();
+	}
+
 	@Override
 	public String toString() {
 		return name + "\t" + team + "\t" + getEloPerMillion() + "\t" + elo + "\t" + salary;
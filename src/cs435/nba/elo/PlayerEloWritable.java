@@ -9,7 +9,8 @@ import org.apache.hadoop.io.WritableUtils;
 
 /**
  * This is to keep track of a single player for all games, it will simply hold
- * their ID and Elo value. The Elo value will be updated over time. Implements
+ * their ID, the team of their latest game and Elo value. The Elo value will be
+ * updated over time. Implements
  * {@link WritableComparable} so we can use it in Hadoop's map and reduce.
  * 
  * TODO Need to override the toString method of this to make printing to files
@@ -30,6 +31,11 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 	 */
 	private String name;
 
+	/**
+	 * The ID of the team this player played for in their latest game
+	 */
+	private String teamId;
+
 	/**
 	 * The elo value of this player
 	 */
@@ -66,9 +72,26 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 	 *            The Elo value of the player
 	 */
 	public PlayerEloWritable(String playerId, String name, double elo) {
+		this(playerId, name, Constants.INVALID_ID, elo);
+	}
+
+	/**
+	 * Constructs this class with the ID, name, team and the given Elo value
+	 * 
+	 * @param playerId
+	 *            The ID of the player
+	 * @param name
+	 *            The name of the player
+	 * @param teamId
+	 *            The ID of the team of the player's latest game
+	 * @param elo
+	 *            The Elo value of the player
+	 */
+	public PlayerEloWritable(String playerId, String name, String teamId, double elo) {
 
 		this.playerId = playerId;
 		this.name = name;
+		this.teamId = teamId;
 		this.elo = elo;
 	}
 
@@ -86,6 +109,23 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 		return name;
 	}
 
+	/**
+	 * @return {@link PlayerEloWritable#teamId}
+	 */
+	public String getTeamId() {
+		return teamId;
+	}
+
+	/**
+	 * Sets the team of the player's latest game
+	 * 
+	 * @param teamId
+	 *            the value to set {@link PlayerEloWritable#teamId} to
+	 */
+	public void setTeamId(String teamId) {
+		this.teamId = teamId;
+	}
+
 	/**
 	 * @return {@link PlayerEloWritable#elo}
 	 */
@@ -113,6 +153,8 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 	public void readFields(DataInput in) throws IOException {
 
 		playerId = WritableUtils.readString(in);
+		name = WritableUtils.readString(in);
+		teamId = WritableUtils.readString(in);
 		elo = Double.parseDouble(WritableUtils.readString(in));
 	}
 
@@ -126,6 +168,8 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 	public void write(DataOutput out) throws IOException {
 
 		WritableUtils.writeString(out, playerId);
+		WritableUtils.writeString(out, name);
+		WritableUtils.writeString(out, teamId);
 		WritableUtils.writeString(out, Double.toString(elo));
 	}
 
@@ -161,9 +205,6 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 	 *         <ul>
 	 *         <li>The given object is an {@link PlayerEloWritable} with a
 	 *         {@link PlayerEloWritable#playerId} equal to this one</li>
-	 *         <li>The given object is an {@link PlayerGameWritable} with a
-	 *         {@link PlayerGameWritable#getPlayerId} equal to this
-	 *         {@link PlayerEloWritable#playerId}</li>
 	 *         <li>If it is a {@link String} equal to this
 	 *         {@link PlayerEloWritable#playerId}
 	 *         <li>
@@ -186,11 +227,6 @@ public class PlayerEloWritable implements WritableComparable<PlayerEloWritable>
 			PlayerEloWritable other = (PlayerEloWritable) o;
 			return playerId.equals(other.getPlayerId());
 
-		} else if (o instanceof PlayerGameWritable) {
-
-			PlayerGameWritable other = (PlayerGameWritable) o;
-			return playerId.equals(other.getPlayerId());
-
 		} else if (o instanceof String) {
 
 			String otherPlayerId = (String) o;
@@ -20,14 +20,21 @@ import org.apache.hadoop.io.WritableUtils;
 public class PlayerGameWritable implements WritableComparable<PlayerGameWritable> {
 
 	/**
-	 * The ID of the team the player plays for
+	 * The version of the binary format written by
+	 * {@link PlayerGameWritable#write(DataOutput)}. Bump this when the layout
+	 * changes
 	 */
-	private String teamId;
+	private static final byte VERSION = 3;
 
 	/**
-	 * The ID of the player
+	 * The {@link IdDictionary} index of the team the player plays for
 	 */
-	private String playerId;
+	private int teamId;
+
+	/**
+	 * The {@link IdDictionary} index of the player
+	 */
+	private int playerId;
 
 	/**
 	 * The name of the player
@@ -83,7 +90,7 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	 * Default constructor, required for Hadoop
 	 */
 	public PlayerGameWritable() {
-		this(Constants.INVALID_ID, Constants.INVALID_ID, Constants.EMPTY_STRING, Constants.INVALID_STAT,
+		this(Constants.INVALID_INDEX, Constants.INVALID_INDEX, Constants.EMPTY_STRING, Constants.INVALID_STAT,
 				Constants.INVALID_STAT, Constants.INVALID_STAT, Constants.INVALID_STAT, Constants.INVALID_STAT,
 				Constants.INVALID_STAT, Constants.INVALID_STAT);
 	}
@@ -92,9 +99,10 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	 * Constructor that initializes all values
 	 * 
 	 * @param teamId
-	 *            The ID of the team this player plays for
+	 *            The {@link IdDictionary} index of the team this player plays
+	 *            for
 	 * @param playerId
-	 *            The ID of this player
+	 *            The {@link IdDictionary} index of this player
 	 * @param name
 	 *            The name of the player
 	 * @param points
@@ -112,7 +120,7 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	 * @param turnovers
 	 *            Total turnovers by this player
 	 */
-	public PlayerGameWritable(String teamId, String playerId, String name, double points, double minPlayed,
+	public PlayerGameWritable(int teamId, int playerId, String name, double points, double minPlayed,
 			double rebounds, double assists, double steals, double blocks, double turnovers) {
 
 		this.teamId = teamId;
@@ -140,8 +148,8 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 		this();
 
 		if (player != null) {
-			this.teamId = new String(player.getTeamId());
-			this.playerId = new String(player.getPlayerId());
+			this.teamId = player.getTeamId();
+			this.playerId = player.getPlayerId();
 			this.name = new String(player.getName());
 			this.points = player.getPoints();
 			this.minPlayed = player.getMinPlayed();
@@ -156,14 +164,14 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	/**
 	 * @return {@link PlayerGameWritable#teamId}
 	 */
-	public String getTeamId() {
+	public int getTeamId() {
 		return teamId;
 	}
 
 	/**
 	 * @return {@link PlayerGameWritable#playerId}
 	 */
-	public String getPlayerId() {
+	public int getPlayerId() {
 		return playerId;
 	}
 
@@ -266,16 +274,13 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	@Override
 	public void readFields(DataInput in) throws IOException {
 
-		teamId = WritableUtils.readString(in);
-		playerId = WritableUtils.readString(in);
-		name = WritableUtils.readString(in);
-		points = Double.parseDouble(WritableUtils.readString(in));
-		minPlayed = Double.parseDouble(WritableUtils.readString(in));
-		rebounds = Double.parseDouble(WritableUtils.readString(in));
-		assists = Double.parseDouble(WritableUtils.readString(in));
-		steals = Double.parseDouble(WritableUtils.readString(in));
-		blocks = Double.parseDouble(WritableUtils.readString(in));
-		turnovers = Double.parseDouble(WritableUtils.readString(in));
+		byte version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported PlayerGameWritable version: " + version);
+		}
+
+		int readTeamId = WritableUtils.readVInt(in);
+		readRosterEntry(in, readTeamId);
 	}
 
 	/**
@@ -287,16 +292,55 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	@Override
 	public void write(DataOutput out) throws IOException {
 
-		WritableUtils.writeString(out, teamId);
-		WritableUtils.writeString(out, playerId);
+		out.writeByte(VERSION);
+		WritableUtils.writeVInt(out, teamId);
+		writeRosterEntry(out);
+	}
+
+	/**
+	 * Reads this player as an entry of a {@link TeamGameWritable} roster. The
+	 * entry has no version byte or teamId, those come from the team.
+	 * 
+	 * @param in
+	 *            The {@link DataInput}
+	 * @param rosterTeamId
+	 *            The index of the team whose roster this entry is in
+	 */
+	void readRosterEntry(DataInput in, int rosterTeamId) throws IOException {
+
+		teamId = rosterTeamId;
+		playerId = WritableUtils.readVInt(in);
+		name = WritableUtils.readString(in);
+		points = in.readDouble();
+		minPlayed = in.readDouble();
+		rebounds = in.readDouble();
+		assists = in.readDouble();
+		steals = in.readDouble();
+		blocks = in.readDouble();
+		turnovers = in.readDouble();
+		startElo = in.readDouble();
+		endElo = in.readDouble();
+	}
+
+	/**
+	 * Writes this player as an entry of a {@link TeamGameWritable} roster
+	 * 
+	 * @param out
+	 *            {@link DataOutput}
+	 */
+	void writeRosterEntry(DataOutput out) throws IOException {
+
+		WritableUtils.writeVInt(out, playerId);
 		WritableUtils.writeString(out, name);
-		WritableUtils.writeString(out, Double.toString(points));
-		WritableUtils.writeString(out, Double.toString(minPlayed));
-		WritableUtils.writeString(out, Double.toString(rebounds));
-		WritableUtils.writeString(out, Double.toString(assists));
-		WritableUtils.writeString(out, Double.toString(steals));
-		WritableUtils.writeString(out, Double.toString(blocks));
-		WritableUtils.writeString(out, Double.toString(turnovers));
+		out.writeDouble(points);
+		out.writeDouble(minPlayed);
+		out.writeDouble(rebounds);
+		out.writeDouble(assists);
+		out.writeDouble(steals);
+		out.writeDouble(blocks);
+		out.writeDouble(turnovers);
+		out.writeDouble(startElo);
+		out.writeDouble(endElo);
 	}
 
 	/**
@@ -316,13 +360,13 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 			return -1;
 		}
 
-		return playerId.compareTo(other.getPlayerId());
+		return Integer.compare(playerId, other.getPlayerId());
 	}
 
 	/**
 	 * This function compares equality. The only thing we care about when
 	 * comparing players is if their ID's are equal. If this object's ID is
-	 * equal to {@link Constants#INVALID_ID} it should always return false
+	 * equal to {@link Constants#INVALID_INDEX} it should always return false
 	 *
 	 * @param o
 	 *            The object to compare to
@@ -330,10 +374,7 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	 *         <ul>
 	 *         <li>The given object is an {@link PlayerGameWritable} with a
 	 *         {@link PlayerGameWritable#playerId} equal to this one</li>
-	 *         <li>The given object is an {@link PlayerEloWritable} with a
-	 *         {@link PlayerEloWritable#getPlayerId} equal to this
-	 *         {@link PlayerGameWritable#playerId}</li>
-	 *         <li>If it is a {@link String} equal to this
+	 *         <li>If it is an {@link Integer} equal to this
 	 *         {@link PlayerGameWritable#playerId}
 	 *         <li>
 	 *         </ul>
@@ -342,7 +383,7 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 	@Override
 	public boolean equals(Object o) {
 
-		if (playerId.equals(Constants.INVALID_ID)) {
+		if (playerId == Constants.INVALID_INDEX) {
 			return false;
 		}
 
@@ -353,17 +394,12 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 		if (o instanceof PlayerGameWritable) {
 
 			PlayerGameWritable other = (PlayerGameWritable) o;
-			return playerId.equals(other.getPlayerId());
-
-		} else if (o instanceof PlayerEloWritable) {
+			return playerId == other.getPlayerId();
 
-			PlayerEloWritable other = (PlayerEloWritable) o;
-			return playerId.equals(other.getPlayerId());
+		} else if (o instanceof Integer) {
 
-		} else if (o instanceof String) {
-
-			String otherPlayerId = (String) o;
-			return playerId.equals(otherPlayerId);
+			int otherPlayerId = (Integer) o;
+			return playerId == otherPlayerId;
 
 		} else {
 
@@ -375,14 +411,14 @@ public class PlayerGameWritable implements WritableComparable<PlayerGameWritable
 
 	/**
 	 * It is required in Hadoop to return consistent hashcodes across instances
-	 * of JVMs. Luckily for us {@link String#hashCode} already does this. This
-	 * is also so when adding to HashSets or HashMaps, we properly add or don't
-	 * add.
+	 * of JVMs. The index is the same in every JVM that read the same
+	 * {@link IdDictionary}. This is also so when adding to HashSets or
+	 * HashMaps, we properly add or don't add.
 	 * 
-	 * @return The hashCode of {@link PlayerGameWritable#playerId}
+	 * @return {@link PlayerGameWritable#playerId}
 	 */
 	@Override
 	public int hashCode() {
-		return playerId.hashCode();
+		return playerId;
 	}
 }
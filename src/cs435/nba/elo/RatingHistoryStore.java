@@ -0,0 +1,371 @@
+package cs435.nba.elo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rating history of every player for a single K Factor, as written
+ * by {@link RatingHistoryWriter}. The file is memory mapped and only the
+ * entries a lookup touches are read, so it never has to fit on the heap.
+ *
+ * The file is made of three fixed width sections:
+ * <ul>
+ * <li>A header with the K Factor and the number of players and entries</li>
+ * <li>A directory with an entry for every player sorted by ID, holding the
+ * index and count of the player's entries</li>
+ * <li>The entries of every player one after the other, each player's sorted
+ * by date, holding the date of the game and the player's Elo before and after
+ * it</li>
+ * </ul>
+ * Finding a player is a binary search of the directory and finding a date is
+ * a binary search of the player's entries. Lookups only use absolute reads of
+ * the buffer, so a store can be shared between threads.
+ *
+ * @author nate
+ *
+ */
+public class RatingHistoryStore {
+
+	/**
+	 * Marks a rating history file
+	 */
+	static final int MAGIC = 0x454c4f48;
+
+	static final int VERSION = 1;
+
+	/**
+	 * magic, version, K Factor, player count and entry count
+	 */
+	static final int HEADER_BYTES = 4 * 5;
+
+	/**
+	 * Player IDs are stored as UTF-8 padded with zeros to this many bytes
+	 */
+	static final int ID_BYTES = 16;
+
+	/**
+	 * ID, index of the first entry and entry count
+	 */
+	static final int DIRECTORY_ENTRY_BYTES = ID_BYTES + 4 + 4;
+
+	/**
+	 * Date, start Elo and end Elo
+	 */
+	static final int ENTRY_BYTES = 4 + 8 + 8;
+
+	/**
+	 * The mapped file
+	 */
+	private ByteBuffer buffer;
+
+	private int kFactor;
+	private int playerCount;
+	private int entryCount;
+
+	/**
+	 * Where the entries start in {@link RatingHistoryStore#buffer}
+	 */
+	private int entriesOffset;
+
+	/**
+	 * Maps a rating history file
+	 *
+	 * @param file
+	 *            A file written by {@link RatingHistoryWriter}
+	 * @throws IOException
+	 *             If the file could not be mapped or is not a rating history
+	 */
+	public RatingHistoryStore(File file) throws IOException {
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			// The mapping stays valid after the file is closed
+			FileChannel channel = randomAccessFile.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			randomAccessFile.close();
+		}
+
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a rating history file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException(file + " has rating history version " + buffer.getInt(4) + ", expecting "
+					+ VERSION);
+		}
+
+		kFactor = buffer.getInt(8);
+		playerCount = buffer.getInt(12);
+		entryCount = buffer.getInt(16);
+		entriesOffset = HEADER_BYTES + playerCount * DIRECTORY_ENTRY_BYTES;
+
+		if (buffer.capacity() != entriesOffset + (long) entryCount * ENTRY_BYTES) {
+			throw new IOException(file + " is truncated");
+		}
+	}
+
+	/**
+	 * @return The K Factor the ratings were calculated with
+	 */
+	public int getKFactor() {
+		return kFactor;
+	}
+
+	/**
+	 * @return The number of players in the store
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	/**
+	 * @param playerId
+	 *            The ID of the player
+	 * @return true if the player has played a game in the store
+	 */
+	public boolean hasPlayer(String playerId) {
+		return findPlayer(playerId) >= 0;
+	}
+
+	/**
+	 * The rating of a player at the end of a date, after any game they played
+	 * that day
+	 *
+	 * @param playerId
+	 *            The ID of the player
+	 * @param date
+	 *            The date, see {@link RatingHistoryStore#toDate}
+	 * @return The end Elo of the player's last game on or before the date, or
+	 *         the start Elo of their first game if the date is before it
+	 * @throws PlayerNotFoundException
+	 *             If the player is not in the store
+	 */
+	public double getRating(String playerId, int date) throws PlayerNotFoundException {
+
+		int directoryOffset = getDirectoryOffset(playerId);
+		int first = buffer.getInt(directoryOffset + ID_BYTES);
+		int count = buffer.getInt(directoryOffset + ID_BYTES + 4);
+
+		int last = findLastOnOrBefore(first, count, date);
+		if (last < first) {
+			return buffer.getDouble(getEntryOffset(first) + 4);
+		}
+		return buffer.getDouble(getEntryOffset(last) + 4 + 8);
+	}
+
+	/**
+	 * The games of a player between two dates
+	 *
+	 * @param playerId
+	 *            The ID of the player
+	 * @param fromDate
+	 *            The first date to include, see
+	 *            {@link RatingHistoryStore#toDate}
+	 * @param toDate
+	 *            The last date to include
+	 * @return The entries of the player's games between the dates, earliest
+	 *         first
+	 * @throws PlayerNotFoundException
+	 *             If the player is not in the store
+	 */
+	public List<Entry> getHistory(String playerId, int fromDate, int toDate) throws PlayerNotFoundException {
+
+		int directoryOffset = getDirectoryOffset(playerId);
+		int first = buffer.getInt(directoryOffset + ID_BYTES);
+		int count = buffer.getInt(directoryOffset + ID_BYTES + 4);
+
+		// The first entry on or after fromDate follows the last one before it
+		int index = findLastOnOrBefore(first, count, fromDate - 1) + 1;
+
+		List<Entry> entries = new ArrayList<Entry>();
+		for (; index < first + count; ++index) {
+
+			int offset = getEntryOffset(index);
+			int date = buffer.getInt(offset);
+			if (date > toDate) {
+				break;
+			}
+			entries.add(new Entry(date, buffer.getDouble(offset + 4), buffer.getDouble(offset + 4 + 8)));
+		}
+		return entries;
+	}
+
+	/**
+	 * Packs a date into the int the store sorts by
+	 *
+	 * @param year
+	 *            The year
+	 * @param month
+	 *            The month, 1 to 12
+	 * @param day
+	 *            The day of the month
+	 * @return The date as yyyymmdd
+	 */
+	public static int toDate(int year, int month, int day) {
+		return year * 10000 + month * 100 + day;
+	}
+
+	/**
+	 * @return The offset of the player's directory entry
+	 */
+	private int getDirectoryOffset(String playerId) throws PlayerNotFoundException {
+
+		int player = findPlayer(playerId);
+		if (player < 0) {
+			throw new PlayerNotFoundException("Player " + playerId + " is not in the rating history of K Factor "
+					+ kFactor);
+		}
+		return HEADER_BYTES + player * DIRECTORY_ENTRY_BYTES;
+	}
+
+	/**
+	 * Binary search of the directory
+	 *
+	 * @return The index of the player in the directory, or -1 if not found
+	 */
+	private int findPlayer(String playerId) {
+
+		byte[] id = toIdBytes(playerId);
+		if (id == null) {
+			return -1;
+		}
+
+		int low = 0;
+		int high = playerCount - 1;
+		while (low <= high) {
+
+			int middle = (low + high) >>> 1;
+			int compare = compareId(HEADER_BYTES + middle * DIRECTORY_ENTRY_BYTES, id);
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Binary search of a player's entries
+	 *
+	 * @return The index of the last entry on or before the date, first - 1 if
+	 *         every entry is after it
+	 */
+	private int findLastOnOrBefore(int first, int count, int date) {
+
+		int low = first;
+		int high = first + count - 1;
+		while (low <= high) {
+
+			int middle = (low + high) >>> 1;
+			if (buffer.getInt(getEntryOffset(middle)) <= date) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	private int getEntryOffset(int index) {
+		return entriesOffset + index * ENTRY_BYTES;
+	}
+
+	/**
+	 * Compares the ID in the buffer with the given one as unsigned bytes, the
+	 * same order {@link RatingHistoryWriter} sorts by
+	 */
+	private int compareId(int offset, byte[] id) {
+
+		for (int index = 0; index < ID_BYTES; ++index) {
+
+			int compare = (buffer.get(offset + index) & 0xFF) - (id[index] & 0xFF);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param playerId
+	 *            The ID of the player
+	 * @return The ID as UTF-8 padded to {@link RatingHistoryStore#ID_BYTES},
+	 *         null if it is too long
+	 */
+	static byte[] toIdBytes(String playerId) {
+
+		byte[] utf8 = playerId.getBytes(StandardCharsets.UTF_8);
+		if (utf8.length > ID_BYTES) {
+			return null;
+		}
+
+		byte[] id = new byte[ID_BYTES];
+		System.arraycopy(utf8, 0, id, 0, utf8.length);
+		return id;
+	}
+
+	/**
+	 * @param id
+	 *            A player ID as {@link RatingHistoryStore#toIdBytes} stores it
+	 * @return The player ID without its padding
+	 */
+	static String fromIdBytes(byte[] id) {
+
+		int length = ID_BYTES;
+		while (length > 0 && id[length - 1] == 0) {
+			--length;
+		}
+		return new String(id, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A single game of a player
+	 */
+	public static class Entry {
+
+		private int date;
+		private double startElo;
+		private double endElo;
+
+		public Entry(int date, double startElo, double endElo) {
+			this.date = date;
+			this.startElo = startElo;
+			this.endElo = endElo;
+		}
+
+		/**
+		 * @return The date of the game, see {@link RatingHistoryStore#toDate}
+		 */
+		public int getDate() {
+			return date;
+		}
+
+		/**
+		 * @return The player's Elo before the game
+		 */
+		public double getStartElo() {
+			return startElo;
+		}
+
+		/**
+		 * @return The player's Elo after the game
+		 */
+		public double getEndElo() {
+			return endElo;
+		}
+
+		@Override
+		public String toString() {
+			return date + "\t" + startElo + "\t" + endElo;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package cs435.nba.elo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the rating history of every player for a single K Factor while the
+ * games are rated and writes it in the format {@link RatingHistoryStore}
+ * reads. Games have to be added in date order. A run that starts from an
+ * {@link EloCheckpoint} first reads the history the earlier run wrote, so
+ * every run writes the whole history.
+ *
+ * @author nate
+ *
+ */
+public class RatingHistoryWriter {
+
+	/**
+	 * Sorts player IDs the same way {@link RatingHistoryStore} searches them
+	 */
+	private static final Comparator<byte[]> ID_ORDER = new Comparator<byte[]>() {
+
+		@Override
+		public int compare(byte[] one, byte[] two) {
+
+			for (int index = 0; index < RatingHistoryStore.ID_BYTES; ++index) {
+
+				int compare = (one[index] & 0xFF) - (two[index] & 0xFF);
+				if (compare != 0) {
+					return compare;
+				}
+			}
+			return 0;
+		}
+	};
+
+	private int kFactor;
+
+	/**
+	 * Decodes the player indexes when the history is written
+	 */
+	private IdDictionary dictionary;
+
+	/**
+	 * The games of every player so far, by player index
+	 */
+	private Map<Integer, PlayerHistory> players;
+
+	private int entryCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param kFactor
+	 *            The K Factor the games are rated with
+	 * @param dictionary
+	 *            The {@link IdDictionary} the games were encoded with
+	 */
+	public RatingHistoryWriter(int kFactor, IdDictionary dictionary) {
+
+		this.kFactor = kFactor;
+		this.dictionary = dictionary;
+		this.players = new HashMap<Integer, PlayerHistory>();
+		this.entryCount = 0;
+	}
+
+	/**
+	 * Adds every player of a rated game
+	 *
+	 * @param game
+	 *            The {@link GameWritable} after {@link GameEloReducer#rateGame}
+	 * @throws TeamNotFoundException
+	 *             If the game is missing its home or away team
+	 */
+	public void addGame(GameWritable game) throws TeamNotFoundException {
+
+		int date = RatingHistoryStore.toDate(game.getYear(), game.getMonth(), game.getDay());
+		addTeam(game.getHomeTeam(), date);
+		addTeam(game.getAwayTeam(), date);
+	}
+
+	/**
+	 * Adds a single game of a player
+	 *
+	 * @param playerId
+	 *            The {@link IdDictionary} index of the player
+	 * @param date
+	 *            The date of the game, see {@link RatingHistoryStore#toDate}
+	 * @param startElo
+	 *            The player's Elo before the game
+	 * @param endElo
+	 *            The player's Elo after the game
+	 */
+	public void add(int playerId, int date, double startElo, double endElo) {
+
+		PlayerHistory history = players.get(playerId);
+		if (history == null) {
+			history = new PlayerHistory();
+			players.put(playerId, history);
+		}
+		history.add(date, startElo, endElo);
+		++entryCount;
+	}
+
+	/**
+	 * Adds every entry of a history written by an earlier run, before any game
+	 * of this run is added
+	 *
+	 * @param in
+	 *            A file written by {@link RatingHistoryWriter#write}, not
+	 *            closed
+	 * @throws IOException
+	 *             If the file could not be read, is not a rating history or is
+	 *             for another K Factor
+	 */
+	public void read(InputStream in) throws IOException {
+
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != RatingHistoryStore.MAGIC) {
+			throw new IOException("Not a rating history file");
+		}
+		int version = data.readInt();
+		if (version != RatingHistoryStore.VERSION) {
+			throw new IOException("Rating history version " + version + ", expecting "
+					+ RatingHistoryStore.VERSION);
+		}
+		int fileKFactor = data.readInt();
+		if (fileKFactor != kFactor) {
+			throw new IOException("Rating history of K Factor " + fileKFactor + ", expecting " + kFactor);
+		}
+
+		int playerCount = data.readInt();
+		data.readInt();
+
+		// The entries are in the order of the directory
+		int[] playerIds = new int[playerCount];
+		int[] entryCounts = new int[playerCount];
+		byte[] id = new byte[RatingHistoryStore.ID_BYTES];
+		for (int player = 0; player < playerCount; ++player) {
+
+			data.readFully(id);
+			playerIds[player] = dictionary.addPlayer(RatingHistoryStore.fromIdBytes(id));
+			data.readInt();
+			entryCounts[player] = data.readInt();
+		}
+
+		for (int player = 0; player < playerCount; ++player) {
+			for (int entry = 0; entry < entryCounts[player]; ++entry) {
+				add(playerIds[player], data.readInt(), data.readDouble(), data.readDouble());
+			}
+		}
+	}
+
+	/**
+	 * Writes the history, the stream is not closed
+	 *
+	 * @param out
+	 *            Where to write the history
+	 * @throws IOException
+	 *             If a player ID is longer than {@link RatingHistoryStore#ID_BYTES}
+	 *             or the history could not be written
+	 */
+	public void write(OutputStream out) throws IOException {
+
+		// The directory is sorted by the padded ID bytes
+		Map<byte[], PlayerHistory> byId = new HashMap<byte[], PlayerHistory>();
+		List<byte[]> ids = new ArrayList<byte[]>();
+		for (Integer playerIndex : players.keySet()) {
+
+			String playerId = dictionary.getPlayerId(playerIndex);
+			byte[] id = RatingHistoryStore.toIdBytes(playerId);
+			if (id == null) {
+				throw new IOException("Player ID " + playerId + " is longer than " + RatingHistoryStore.ID_BYTES
+						+ " bytes");
+			}
+			ids.add(id);
+			byId.put(id, players.get(playerIndex));
+		}
+		Collections.sort(ids, ID_ORDER);
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+		data.writeInt(RatingHistoryStore.MAGIC);
+		data.writeInt(RatingHistoryStore.VERSION);
+		data.writeInt(kFactor);
+		data.writeInt(ids.size());
+		data.writeInt(entryCount);
+
+		int firstEntry = 0;
+		for (byte[] id : ids) {
+
+			PlayerHistory history = byId.get(id);
+			data.write(id);
+			data.writeInt(firstEntry);
+			data.writeInt(history.size);
+			firstEntry += history.size;
+		}
+
+		for (byte[] id : ids) {
+
+			PlayerHistory history = byId.get(id);
+			for (int index = 0; index < history.size; ++index) {
+
+				data.writeInt(history.dates[index]);
+				data.writeDouble(history.startElos[index]);
+				data.writeDouble(history.endElos[index]);
+			}
+		}
+		data.flush();
+	}
+
+	/**
+	 * @param kFactor
+	 *            The K Factor
+	 * @return The name of the rating history file of the K Factor
+	 */
+	public static String getFileName(int kFactor) {
+		return "RatingHistory-k" + kFactor + ".bin";
+	}
+
+	private void addTeam(TeamGameWritable team, int date) {
+
+		int playerCount = team.getPlayerCount();
+		for (int index = 0; index < playerCount; ++index) {
+			add(team.getPlayerIdAt(index), date, team.getStartEloAt(index), team.getEndEloAt(index));
+		}
+	}
+
+	/**
+	 * The games of a single player, kept in arrays so a long history does not
+	 * need an object per game
+	 */
+	private static class PlayerHistory {
+
+		private int size = 0;
+		private int[] dates = new int[8];
+		private double[] startElos = new double[8];
+		private double[] endElos = new double[8];
+
+		public void add(int date, double startElo, double endElo) {
+
+			if (size == dates.length) {
+				dates = Arrays.copyOf(dates, size * 2);
+				startElos = Arrays.copyOf(startElos, size * 2);
+				endElos = Arrays.copyOf(endElos, size * 2);
+			}
+			dates[size] = date;
+			startElos[size] = startElo;
+			endElos[size] = endElo;
+			++size;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends queries to a {@link RatingQueryServer} from several threads at once
+ * and prints the latency percentiles. Connections are kept alive between
+ * queries, so the latency is the server's and not the cost of connecting.
+ *
+ * @author nate
+ *
+ */
+public class RatingQueryLoadTest {
+
+	/**
+	 * Queried in turn when no paths are given
+	 */
+	private static final String[] DEFAULT_PATHS = { "/top/elo?n=10", "/top/value?n=10", "/top/teams?n=10",
+			"/status" };
+
+	/**
+	 * Every thread sends this many queries per measured query before measuring,
+	 * so the JIT has compiled both sides
+	 */
+	private static final int WARMUP_DIVISOR = 10;
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 3) {
+			System.err.println("Usage: <jar file> <server url> <threads> <queries per thread> [path...]");
+			System.exit(-1);
+		}
+
+		String serverUrl = args[0];
+		int threadCount = Integer.parseInt(args[1]);
+		int queriesPerThread = Integer.parseInt(args[2]);
+
+		String[] paths = DEFAULT_PATHS;
+		if (args.length > 3) {
+			paths = Arrays.copyOfRange(args, 3, args.length);
+		}
+
+		URL[] urls = new URL[paths.length];
+		for (int index = 0; index < paths.length; ++index) {
+			urls[index] = new URL(serverUrl + paths[index]);
+		}
+
+		AtomicInteger errors = new AtomicInteger(0);
+		QueryThread[] threads = new QueryThread[threadCount];
+		for (int index = 0; index < threadCount; ++index) {
+			threads[index] = new QueryThread(urls, index, queriesPerThread, errors);
+		}
+
+		long startTime = System.nanoTime();
+		for (QueryThread thread : threads) {
+			thread.start();
+		}
+		for (QueryThread thread : threads) {
+			thread.join();
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		// Every thread measured the same number of queries
+		long[] latencies = new long[threadCount * queriesPerThread];
+		for (int index = 0; index < threadCount; ++index) {
+			System.arraycopy(threads[index].latencies, 0, latencies, index * queriesPerThread, queriesPerThread);
+		}
+		Arrays.sort(latencies);
+
+		System.out.println("Queries:\t" + latencies.length);
+		System.out.println("Errors:\t" + errors.get());
+		System.out.println("Queries per second:\t" + (long) (latencies.length * 1e9 / elapsedTime));
+		System.out.println("p50 ms:\t" + toMillis(getPercentile(latencies, 50)));
+		System.out.println("p90 ms:\t" + toMillis(getPercentile(latencies, 90)));
+		System.out.println("p99 ms:\t" + toMillis(getPercentile(latencies, 99)));
+		System.out.println("p99.9 ms:\t" + toMillis(getPercentile(latencies, 99.9)));
+		System.out.println("max ms:\t" + toMillis(latencies[latencies.length - 1]));
+
+		if (errors.get() > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @param sortedLatencies
+	 *            The latencies, lowest first
+	 * @param percentile
+	 *            The percentile, 0 to 100
+	 * @return The latency at the percentile, nearest rank
+	 */
+	private static long getPercentile(long[] sortedLatencies, double percentile) {
+
+		int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+		return sortedLatencies[Math.max(0, rank - 1)];
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	/**
+	 * Sends its share of the queries, cycling through the URLs from its own
+	 * starting point
+	 */
+	private static class QueryThread extends Thread {
+
+		private URL[] urls;
+		private int offset;
+		private int queries;
+		private AtomicInteger errors;
+
+		/**
+		 * Nanoseconds each measured query took
+		 */
+		private long[] latencies;
+
+		private byte[] buffer = new byte[8192];
+
+		public QueryThread(URL[] urls, int offset, int queries, AtomicInteger errors) {
+
+			this.urls = urls;
+			this.offset = offset;
+			this.queries = queries;
+			this.errors = errors;
+			this.latencies = new long[queries];
+		}
+
+		@Override
+		public void run() {
+
+			int warmupQueries = queries / WARMUP_DIVISOR;
+			for (int index = 0; index < warmupQueries; ++index) {
+				query(urls[(offset + index) % urls.length]);
+			}
+
+			for (int index = 0; index < queries; ++index) {
+
+				long startTime = System.nanoTime();
+				query(urls[(offset + index) % urls.length]);
+				latencies[index] = System.nanoTime() - startTime;
+			}
+		}
+
+		/**
+		 * Sends a query and reads the whole answer, so the connection can be
+		 * used again
+		 */
+		private void query(URL url) {
+
+			try {
+				HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+				int status = connection.getResponseCode();
+				InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+				if (in != null) {
+					try {
+						while (in.read(buffer) >= 0) {
+						}
+					} finally {
+						in.close();
+					}
+				}
+				if (status != 200) {
+					errors.incrementAndGet();
+				}
+
+			} catch (IOException e) {
+				if (errors.getAndIncrement() == 0) {
+					System.err.println("Query failed: " + url);
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
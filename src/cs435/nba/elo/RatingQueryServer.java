@@ -0,0 +1,495 @@
+package cs435.nba.elo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Answers queries over the final ratings of a pipeline run with the HTTP
+ * server built into the JDK. Every query is answered from a
+ * {@link RatingSnapshot} held in memory, and the snapshot is swapped for a new
+ * one when Job 2 finishes a new output or the salary file changes, without
+ * stopping the server.
+ *
+ * Every response is plain text with one tab separated line per result:
+ * <ul>
+ * <li>/player?id=playerId - playerId name teamId elo salary eloPerMillion</li>
+ * <li>/top/elo?n=10 - the players with the highest Elo</li>
+ * <li>/top/value?n=10 - the players with the highest Elo per million</li>
+ * <li>/team?id=teamId - teamId elo rosterSize, then the roster</li>
+ * <li>/top/teams?n=10 - the teams with the highest Elo</li>
+ * <li>/status - when the ratings were loaded and how many there are</li>
+ * <li>/predict?home=teamId&amp;away=teamId or
+ * /predict?homePlayers=id,id&amp;awayPlayers=id,id - homeElo awayElo
+ * homeWinProbability awayWinProbability</li>
+ * <li>POST /predict/schedule with a schedule file as the body, see
+ * {@link WinProbabilityPredictor.Schedule#read} - a line for every game</li>
+ * </ul>
+ *
+ * @author nate
+ *
+ */
+public class RatingQueryServer {
+
+	private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+	private Configuration conf;
+	private String eloDir;
+	private String salaryFile;
+
+	/**
+	 * The ratings every query is answered from, replaced as a whole on a
+	 * reload so a query never sees two outputs mixed
+	 */
+	private volatile RatingSnapshot snapshot;
+
+	/**
+	 * The modification time of the Job 2 output and salary file
+	 * {@link RatingQueryServer#snapshot} was loaded from, see
+	 * {@link RatingSnapshot#getModificationTime}
+	 */
+	private long snapshotModificationTime;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Scores large schedules, separate from the threads answering queries so
+	 * a query never waits on a thread that is waiting on it
+	 */
+	private ExecutorService scoreExecutor;
+	private WinProbabilityPredictor predictor;
+	private ScheduledExecutorService reloader;
+
+	/**
+	 * Constructor, loads the ratings
+	 *
+	 * @param conf
+	 *            The configuration for the file system of the files
+	 * @param eloDir
+	 *            The output directory of Job 2
+	 * @param salaryFile
+	 *            The salary file
+	 * @throws IOException
+	 *             If the ratings could not be loaded
+	 */
+	public RatingQueryServer(Configuration conf, String eloDir, String salaryFile) throws IOException {
+
+		this.conf = conf;
+		this.eloDir = eloDir;
+		this.salaryFile = salaryFile;
+
+		this.snapshotModificationTime = RatingSnapshot.getModificationTime(conf, eloDir, salaryFile);
+		this.snapshot = RatingSnapshot.load(conf, eloDir, salaryFile);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: <jar file> <Job 2 output dir> <salary file> [port]");
+			System.exit(-1);
+		}
+
+		int port = Constants.QUERY_SERVER_PORT;
+		if (args.length == 3) {
+			port = Integer.parseInt(args[2]);
+		}
+
+		RatingQueryServer server = new RatingQueryServer(new Configuration(), args[0], args[1]);
+		server.start(port);
+		System.out.println("Serving " + server.getSnapshot().getPlayerCount() + " players and "
+				+ server.getSnapshot().getTeamCount() + " teams on port " + port);
+	}
+
+	/**
+	 * Starts answering queries and checking for new outputs
+	 *
+	 * @param port
+	 *            The port to listen on
+	 * @throws IOException
+	 *             If the server could not be started
+	 */
+	public void start(int port) throws IOException {
+
+		// The server writes the headers and the body separately, without
+		// TCP_NODELAY every kept alive query waits on a delayed ACK. It is
+		// read once when the first server is created.
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		server = HttpServer.create(new InetSocketAddress(port), Constants.QUERY_SERVER_BACKLOG);
+		createContexts(server);
+
+		executor = Executors.newFixedThreadPool(Constants.QUERY_SERVER_THREADS, new DaemonThreadFactory(
+				"RatingQuery"));
+		server.setExecutor(executor);
+
+		scoreExecutor = Executors.newFixedThreadPool(Constants.QUERY_SERVER_THREADS, new DaemonThreadFactory(
+				"RatingScore"));
+		predictor = new WinProbabilityPredictor(scoreExecutor, Constants.QUERY_SERVER_THREADS);
+		createPredictionContexts(server);
+
+		server.start();
+
+		reloader = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("RatingReload"));
+		reloader.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				reloadIfChanged();
+			}
+		}, Constants.QUERY_RELOAD_CHECK_TIME, Constants.QUERY_RELOAD_CHECK_TIME, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the server, queries being answered get a second to finish
+	 */
+	public void stop() {
+
+		reloader.shutdownNow();
+		server.stop(1);
+		executor.shutdownNow();
+		scoreExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return The ratings queries are currently answered from
+	 */
+	public RatingSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Loads the ratings again if Job 2 finished a new output or the salary
+	 * file changed since they were loaded. Nothing is loaded while Job 2 is
+	 * still writing its output, and if the new output can't be loaded, the
+	 * old ratings keep being served.
+	 *
+	 * @return true if new ratings were loaded
+	 */
+	public boolean reloadIfChanged() {
+
+		try {
+			// 0 while the output has no _SUCCESS marker
+			long modificationTime = RatingSnapshot.getModificationTime(conf, eloDir, salaryFile);
+			if (modificationTime == 0 || modificationTime <= snapshotModificationTime) {
+				return false;
+			}
+
+			RatingSnapshot newSnapshot = RatingSnapshot.load(conf, eloDir, salaryFile);
+			snapshot = newSnapshot;
+			snapshotModificationTime = modificationTime;
+			System.out.println("Reloaded " + newSnapshot.getPlayerCount() + " players and "
+					+ newSnapshot.getTeamCount() + " teams from " + eloDir);
+			return true;
+
+		} catch (IOException e) {
+			System.err.println("Could not reload the ratings from " + eloDir);
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds a handler for every query
+	 */
+	protected void createContexts(HttpServer server) {
+
+		server.createContext("/player", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) throws PlayerNotFoundException, TeamNotFoundException {
+
+				response.append(snapshot.getPlayer(getParam(params, "id"))).append('\n');
+			}
+		});
+
+		server.createContext("/top/elo", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) {
+				appendLines(snapshot.getTopByElo(getN(params)), response);
+			}
+		});
+
+		server.createContext("/top/value", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) {
+				appendLines(snapshot.getTopByValue(getN(params)), response);
+			}
+		});
+
+		server.createContext("/team", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) throws PlayerNotFoundException, TeamNotFoundException {
+
+				RatingSnapshot.TeamRating team = snapshot.getTeam(getParam(params, "id"));
+				response.append(team).append('\n');
+				appendLines(team.getRoster(), response);
+			}
+		});
+
+		server.createContext("/top/teams", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) {
+				appendLines(snapshot.getTopTeams(getN(params)), response);
+			}
+		});
+
+		server.createContext("/status", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) {
+
+				response.append(snapshot.getLoadTime()).append('\t').append(snapshot.getPlayerCount()).append('\t')
+						.append(snapshot.getTeamCount()).append('\n');
+			}
+		});
+	}
+
+	/**
+	 * Adds a handler for every prediction
+	 */
+	protected void createPredictionContexts(HttpServer server) {
+
+		server.createContext("/predict", new QueryHandler() {
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) throws TeamNotFoundException {
+
+				double homeElo;
+				double awayElo;
+				if (params.containsKey("homePlayers") || params.containsKey("awayPlayers")) {
+					homeElo = snapshot.getRosterElo(getParam(params, "homePlayers").split(","));
+					awayElo = snapshot.getRosterElo(getParam(params, "awayPlayers").split(","));
+				} else {
+					homeElo = snapshot.getTeamElo(getParam(params, "home"));
+					awayElo = snapshot.getTeamElo(getParam(params, "away"));
+				}
+
+				double homeWinProbability = WinProbabilityPredictor.getHomeWinProbability(homeElo, awayElo);
+				response.append(homeElo).append('\t').append(awayElo).append('\t').append(homeWinProbability)
+						.append('\t').append(1 - homeWinProbability).append('\n');
+			}
+		});
+
+		server.createContext("/predict/schedule", new QueryHandler() {
+
+			@Override
+			protected String getMethod() {
+				return "POST";
+			}
+
+			@Override
+			protected void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+					StringBuilder response) throws IOException, TeamNotFoundException {
+
+				WinProbabilityPredictor.Schedule schedule = WinProbabilityPredictor.Schedule.read(
+						new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), snapshot);
+				try {
+					predictor.score(schedule);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while scoring the schedule", e);
+				}
+
+				for (int index = 0; index < schedule.size(); ++index) {
+					response.append(schedule.toString(index)).append('\n');
+				}
+			}
+		});
+	}
+
+	private static void appendLines(List<?> results, StringBuilder response) {
+
+		for (Object result : results) {
+			response.append(result).append('\n');
+		}
+	}
+
+	/**
+	 * Answers a single kind of query from the current snapshot
+	 */
+	protected abstract class QueryHandler implements HttpHandler {
+
+		/**
+		 * Appends the answer to a query
+		 *
+		 * @param snapshot
+		 *            The ratings to answer from, the same for the whole query
+		 * @param params
+		 *            The decoded query string
+		 * @param body
+		 *            The body of the request, only read by POST queries
+		 * @param response
+		 *            Where to append the answer
+		 * @throws IllegalArgumentException
+		 *             If a parameter is missing or bad
+		 */
+		protected abstract void query(RatingSnapshot snapshot, Map<String, String> params, InputStream body,
+				StringBuilder response) throws IOException, PlayerNotFoundException, TeamNotFoundException;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+
+			int status = 200;
+			StringBuilder response = new StringBuilder(256);
+			try {
+				if (!getMethod().equals(exchange.getRequestMethod())) {
+					status = 405;
+					response.append("Only ").append(getMethod()).append(" is supported\n");
+				} else {
+					query(snapshot, parseQuery(exchange.getRequestURI().getRawQuery()), exchange.getRequestBody(),
+							response);
+				}
+
+			} catch (PlayerNotFoundException e) {
+				status = 404;
+				response.setLength(0);
+				response.append(e.getMessage()).append('\n');
+			} catch (TeamNotFoundException e) {
+				status = 404;
+				response.setLength(0);
+				response.append(e.getMessage()).append('\n');
+			} catch (IllegalArgumentException e) {
+				status = 400;
+				response.setLength(0);
+				response.append(e.getMessage()).append('\n');
+			} catch (RuntimeException e) {
+				System.err.println("Failed to answer " + exchange.getRequestURI());
+				e.printStackTrace();
+				status = 500;
+				response.setLength(0);
+				response.append("Internal error\n");
+			}
+
+			byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(status, body.length);
+			OutputStream out = exchange.getResponseBody();
+			try {
+				out.write(body);
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * @return The HTTP method of the query
+		 */
+		protected String getMethod() {
+			return "GET";
+		}
+
+		protected String getParam(Map<String, String> params, String name) {
+
+			String value = params.get(name);
+			if (value == null || value.isEmpty()) {
+				throw new IllegalArgumentException("Missing parameter " + name);
+			}
+			return value;
+		}
+
+		/**
+		 * @return The n parameter, {@link Constants#DEFAULT_BEST_N} if missing
+		 */
+		protected int getN(Map<String, String> params) {
+
+			String value = params.get("n");
+			if (value == null) {
+				return Constants.DEFAULT_BEST_N;
+			}
+
+			int n;
+			try {
+				n = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad n: " + value);
+			}
+			if (n < 0) {
+				throw new IllegalArgumentException("Bad n: " + value);
+			}
+			return n;
+		}
+
+		private Map<String, String> parseQuery(String rawQuery) {
+
+			Map<String, String> params = new HashMap<String, String>();
+			if (rawQuery == null) {
+				return params;
+			}
+
+			for (String pair : rawQuery.split("&")) {
+
+				int equals = pair.indexOf('=');
+				if (equals < 0) {
+					params.put(decode(pair), "");
+				} else {
+					params.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+				}
+			}
+			return params;
+		}
+
+		private String decode(String value) {
+
+			try {
+				return URLDecoder.decode(value, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				// UTF-8 is always supported
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Names the threads of the server and keeps them from holding the JVM open
+	 * on their own
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private String name;
+		private int count = 0;
+
+		public DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized Thread newThread(Runnable runnable) {
+
+			Thread thread = new Thread(runnable, name + "-" + (++count));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,555 @@
+package cs435.nba.elo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+
+/**
+ * The final Elo of every player and team and the salary of every player,
+ * indexed for the queries of {@link RatingQueryServer}. A snapshot never
+ * changes after it is loaded, so it is shared between threads without locking
+ * and a new pipeline output is served by loading a new one.
+ *
+ * The player Elos come from the {@link GameEloReducer#MOST_RECENT_ELO_OUTPUT}
+ * of Job 2. A team's roster is the players in the salary file whose most
+ * recent game was for it, so players who retired or left the league do not
+ * count, and its Elo is the average Elo of the roster, the same average
+ * {@link TeamGameWritable#getStartElo} uses.
+ *
+ * @author nate
+ *
+ */
+public class RatingSnapshot {
+
+	/**
+	 * Highest Elo first
+	 */
+	private static final Comparator<PlayerRating> PLAYER_ELO_ORDER = new Comparator<PlayerRating>() {
+
+		@Override
+		public int compare(PlayerRating one, PlayerRating two) {
+
+			int compare = Double.compare(two.getElo(), one.getElo());
+			if (compare != 0) {
+				return compare;
+			}
+			return one.getPlayerId().compareTo(two.getPlayerId());
+		}
+	};
+
+	/**
+	 * Highest Elo per million first, the same order as the recommendations
+	 */
+	private static final Comparator<PlayerRating> PLAYER_VALUE_ORDER = new Comparator<PlayerRating>() {
+
+		@Override
+		public int compare(PlayerRating one, PlayerRating two) {
+
+			int compare = one.getPlayer().compareTo(two.getPlayer());
+			if (compare != 0) {
+				return compare;
+			}
+			return one.getPlayerId().compareTo(two.getPlayerId());
+		}
+	};
+
+	/**
+	 * Highest Elo first
+	 */
+	private static final Comparator<TeamRating> TEAM_ELO_ORDER = new Comparator<TeamRating>() {
+
+		@Override
+		public int compare(TeamRating one, TeamRating two) {
+
+			int compare = Double.compare(two.getElo(), one.getElo());
+			if (compare != 0) {
+				return compare;
+			}
+			return one.getTeamId().compareTo(two.getTeamId());
+		}
+	};
+
+	private Map<String, PlayerRating> players;
+	private Map<String, TeamRating> teams;
+
+	/**
+	 * Every player, highest Elo first
+	 */
+	private PlayerRating[] playersByElo;
+
+	/**
+	 * Every player with a salary, highest Elo per million first
+	 */
+	private PlayerRating[] playersByValue;
+
+	/**
+	 * Every team, highest Elo first
+	 */
+	private TeamRating[] teamsByElo;
+
+	/**
+	 * When the ratings were loaded, milliseconds since the epoch
+	 */
+	private long loadTime;
+
+	private RatingSnapshot(Map<String, PlayerRating> players, Map<String, TeamRating> teams, long loadTime) {
+
+		this.players = players;
+		this.teams = teams;
+		this.loadTime = loadTime;
+
+		playersByElo = players.values().toArray(new PlayerRating[players.size()]);
+		Arrays.sort(playersByElo, PLAYER_ELO_ORDER);
+
+		List<PlayerRating> withSalary = new ArrayList<PlayerRating>();
+		for (PlayerRating player : playersByElo) {
+			if (player.hasSalary()) {
+				withSalary.add(player);
+			}
+		}
+		playersByValue = withSalary.toArray(new PlayerRating[withSalary.size()]);
+		Arrays.sort(playersByValue, PLAYER_VALUE_ORDER);
+
+		teamsByElo = teams.values().toArray(new TeamRating[teams.size()]);
+		Arrays.sort(teamsByElo, TEAM_ELO_ORDER);
+	}
+
+	/**
+	 * Loads the ratings of a pipeline output
+	 *
+	 * @param conf
+	 *            The configuration for the file system of the files
+	 * @param eloDir
+	 *            The output directory of Job 2, holding its
+	 *            {@link GameEloReducer#MOST_RECENT_ELO_OUTPUT} files
+	 * @param salaryFile
+	 *            The salary file: firstName lastName playerId salary
+	 * @return The snapshot
+	 * @throws IOException
+	 *             If the files could not be read
+	 */
+	public static RatingSnapshot load(Configuration conf, String eloDir, String salaryFile) throws IOException {
+
+		long loadTime = System.currentTimeMillis();
+
+		Map<String, PlayerEloWritable> elos = readMostRecentElos(conf, eloDir);
+		Map<String, PlayerEloSalaryWritable> salaries = readSalaries(conf, salaryFile, elos);
+
+		Map<String, PlayerRating> players = new HashMap<String, PlayerRating>();
+		Map<String, List<PlayerRating>> rosters = new HashMap<String, List<PlayerRating>>();
+		for (PlayerEloWritable elo : elos.values()) {
+
+			PlayerEloSalaryWritable salary = salaries.get(elo.getPlayerId());
+			PlayerRating player;
+			if (salary != null) {
+				player = new PlayerRating(salary, true);
+			} else {
+				player = new PlayerRating(new PlayerEloSalaryWritable(elo.getPlayerId(), elo.getName(),
+						elo.getTeamId(), elo.getElo(), 0), false);
+			}
+			players.put(player.getPlayerId(), player);
+
+			// Only players under contract are on a current roster
+			if (!player.hasSalary()) {
+				continue;
+			}
+
+			List<PlayerRating> roster = rosters.get(player.getTeamId());
+			if (roster == null) {
+				roster = new ArrayList<PlayerRating>();
+				rosters.put(player.getTeamId(), roster);
+			}
+			roster.add(player);
+		}
+
+		Map<String, TeamRating> teams = new HashMap<String, TeamRating>();
+		for (String teamId : rosters.keySet()) {
+
+			List<PlayerRating> roster = rosters.get(teamId);
+			Collections.sort(roster, PLAYER_ELO_ORDER);
+			teams.put(teamId, new TeamRating(teamId, roster));
+		}
+
+		return new RatingSnapshot(players, teams, loadTime);
+	}
+
+	/**
+	 * @param conf
+	 *            The configuration for the file system of the directory
+	 * @param eloDir
+	 *            The output directory of Job 2
+	 * @param salaryFile
+	 *            The salary file
+	 * @return The modification time of the _SUCCESS marker of the directory
+	 *         or the salary file, whichever is newer, 0 if there is no marker.
+	 *         The part files are moved into the directory one at a time and
+	 *         keep the time they were written, the marker is written once all
+	 *         of them are in, so without it the output is not complete.
+	 * @throws IOException
+	 *             If the directory could not be read
+	 */
+	public static long getModificationTime(Configuration conf, String eloDir, String salaryFile)
+			throws IOException {
+
+		Path successPath = new Path(eloDir, FileOutputCommitter.SUCCEEDED_FILE_NAME);
+		FileSystem eloFs = successPath.getFileSystem(conf);
+		if (!eloFs.exists(successPath)) {
+			return 0;
+		}
+		long modificationTime = eloFs.getFileStatus(successPath).getModificationTime();
+
+		Path salaryPath = new Path(salaryFile);
+		FileSystem fs = salaryPath.getFileSystem(conf);
+		if (fs.exists(salaryPath)) {
+			modificationTime = Math.max(modificationTime, fs.getFileStatus(salaryPath).getModificationTime());
+		}
+		return modificationTime;
+	}
+
+	/**
+	 * @param playerId
+	 *            The ID of the player
+	 * @return The player's rating
+	 * @throws PlayerNotFoundException
+	 *             If the player has not played a game
+	 */
+	public PlayerRating getPlayer(String playerId) throws PlayerNotFoundException {
+
+		PlayerRating player = players.get(playerId);
+		if (player == null) {
+			throw new PlayerNotFoundException("Player " + playerId + " has no rating");
+		}
+		return player;
+	}
+
+	/**
+	 * @param teamId
+	 *            The ID of the team
+	 * @return The team's rating
+	 * @throws TeamNotFoundException
+	 *             If no player in the salary file last played for the team
+	 */
+	public TeamRating getTeam(String teamId) throws TeamNotFoundException {
+
+		TeamRating team = teams.get(teamId);
+		if (team == null) {
+			throw new TeamNotFoundException("Team " + teamId + " has no rating");
+		}
+		return team;
+	}
+
+	/**
+	 * The Elo a team plays an upcoming game with, the average Elo of its
+	 * current roster
+	 *
+	 * @param teamId
+	 *            The ID of the team
+	 * @return The Elo of the team
+	 * @throws TeamNotFoundException
+	 *             If no player in the salary file last played for the team
+	 */
+	public double getTeamElo(String teamId) throws TeamNotFoundException {
+		return getTeam(teamId).getElo();
+	}
+
+	/**
+	 * The Elo of a roster, the average of its players the same way
+	 * {@link TeamGameWritable#getStartElo} averages them. A player without a
+	 * rating has not played a game yet, so they count as
+	 * {@link Constants#START_ELO} like they do in their first game in Job 2.
+	 *
+	 * @param playerIds
+	 *            The IDs of the players, a player listed twice counts once
+	 * @return The average Elo of the roster
+	 * @throws IllegalArgumentException
+	 *             If the roster is empty
+	 */
+	public double getRosterElo(String[] playerIds) {
+
+		double sum = 0;
+		int count = 0;
+		for (int index = 0; index < playerIds.length; ++index) {
+
+			if (isListedBefore(playerIds, index)) {
+				continue;
+			}
+
+			PlayerRating player = players.get(playerIds[index]);
+			if (player != null) {
+				sum += player.getElo();
+			} else {
+				sum += Constants.START_ELO;
+			}
+			++count;
+		}
+
+		if (count == 0) {
+			throw new IllegalArgumentException("Empty roster");
+		}
+		return sum / count;
+	}
+
+	/**
+	 * Rosters are small, so checking every ID before it is cheaper than a set
+	 */
+	private static boolean isListedBefore(String[] playerIds, int index) {
+
+		for (int before = 0; before < index; ++before) {
+			if (playerIds[before].equals(playerIds[index])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param n
+	 *            How many players to return
+	 * @return The n players with the highest Elo, highest first
+	 */
+	public List<PlayerRating> getTopByElo(int n) {
+		return Arrays.asList(playersByElo).subList(0, Math.min(n, playersByElo.length));
+	}
+
+	/**
+	 * @param n
+	 *            How many players to return
+	 * @return The n players with a salary with the highest Elo per million,
+	 *         highest first
+	 */
+	public List<PlayerRating> getTopByValue(int n) {
+		return Arrays.asList(playersByValue).subList(0, Math.min(n, playersByValue.length));
+	}
+
+	/**
+	 * @param n
+	 *            How many teams to return
+	 * @return The n teams with the highest Elo, highest first
+	 */
+	public List<TeamRating> getTopTeams(int n) {
+		return Arrays.asList(teamsByElo).subList(0, Math.min(n, teamsByElo.length));
+	}
+
+	/**
+	 * @return The number of players with a rating
+	 */
+	public int getPlayerCount() {
+		return players.size();
+	}
+
+	/**
+	 * @return The number of teams with a current roster
+	 */
+	public int getTeamCount() {
+		return teams.size();
+	}
+
+	/**
+	 * @return When the ratings were loaded, milliseconds since the epoch
+	 */
+	public long getLoadTime() {
+		return loadTime;
+	}
+
+	private static Map<String, PlayerEloWritable> readMostRecentElos(Configuration conf, String eloDir)
+			throws IOException {
+
+		FileStatus[] statuses = getMostRecentEloFiles(conf, eloDir);
+		if (statuses.length == 0) {
+			throw new IOException("No " + GameEloReducer.MOST_RECENT_ELO_OUTPUT + " files found in " + eloDir);
+		}
+
+		Map<String, PlayerEloWritable> elos = new HashMap<String, PlayerEloWritable>();
+		for (FileStatus status : statuses) {
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(status.getPath()));
+			try {
+				Text key = new Text();
+				PlayerEloWritable value = new PlayerEloWritable();
+				while (reader.next(key, value)) {
+
+					elos.put(value.getPlayerId(), value);
+					value = new PlayerEloWritable();
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return elos;
+	}
+
+	/**
+	 * Reads the salaries of the players that have an Elo
+	 */
+	private static Map<String, PlayerEloSalaryWritable> readSalaries(Configuration conf, String salaryFile,
+			Map<String, PlayerEloWritable> elos) throws IOException {
+
+		Path path = new Path(salaryFile);
+		FileSystem fs = path.getFileSystem(conf);
+
+		Map<String, PlayerEloSalaryWritable> salaries = new HashMap<String, PlayerEloSalaryWritable>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				// Salary file is: firstName lastName playerId salary
+				String[] tokens = line.split("\\s+");
+				if (tokens.length != 4) {
+					continue;
+				}
+
+				PlayerEloWritable elo = elos.get(tokens[2]);
+				if (elo != null) {
+					try {
+						salaries.put(elo.getPlayerId(), new PlayerEloSalaryWritable(elo.getPlayerId(), tokens[0]
+								+ " " + tokens[1], elo.getTeamId(), elo.getElo(), Double.parseDouble(tokens[3])));
+					} catch (NumberFormatException e) {
+						System.err.println("Bad salary for player " + tokens[2] + ": " + tokens[3]);
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return salaries;
+	}
+
+	private static FileStatus[] getMostRecentEloFiles(Configuration conf, String eloDir) throws IOException {
+
+		Path pattern = new Path(eloDir, GameEloReducer.MOST_RECENT_ELO_OUTPUT + "-r-*");
+		FileSystem fs = pattern.getFileSystem(conf);
+		FileStatus[] statuses = fs.globStatus(pattern);
+		if (statuses == null) {
+			return new FileStatus[0];
+		}
+		return statuses;
+	}
+
+	/**
+	 * The rating of a single player, with the line the server answers with
+	 * built ahead of time
+	 */
+	public static class PlayerRating {
+
+		private PlayerEloSalaryWritable player;
+		private boolean hasSalary;
+		private String line;
+
+		public PlayerRating(PlayerEloSalaryWritable player, boolean hasSalary) {
+
+			this.player = player;
+			this.hasSalary = hasSalary;
+
+			// playerId name teamId elo salary eloPerMillion
+			if (hasSalary) {
+				this.line = player.getPlayerId() + "\t" + player.getName() + "\t" + player.getTeam() + "\t"
+						+ player.getElo() + "\t" + player.getSalaryInMillions() + "\t" + player.getEloPerMillion();
+			} else {
+				this.line = player.getPlayerId() + "\t" + player.getName() + "\t" + player.getTeam() + "\t"
+						+ player.getElo() + "\t-\t-";
+			}
+		}
+
+		/**
+		 * @return The player's Elo and salary, the salary is 0 if
+		 *         {@link PlayerRating#hasSalary} is false
+		 */
+		public PlayerEloSalaryWritable getPlayer() {
+			return player;
+		}
+
+		public String getPlayerId() {
+			return player.getPlayerId();
+		}
+
+		/**
+		 * @return The team of the player's most recent game
+		 */
+		public String getTeamId() {
+			return player.getTeam();
+		}
+
+		public double getElo() {
+			return player.getElo();
+		}
+
+		/**
+		 * @return true if the player is in the salary file
+		 */
+		public boolean hasSalary() {
+			return hasSalary;
+		}
+
+		@Override
+		public String toString() {
+			return line;
+		}
+	}
+
+	/**
+	 * The rating of a team from its current roster, the players in the salary
+	 * file whose most recent game was for it
+	 */
+	public static class TeamRating {
+
+		private String teamId;
+		private double elo;
+		private List<PlayerRating> roster;
+		private String line;
+
+		public TeamRating(String teamId, List<PlayerRating> roster) {
+
+			this.teamId = teamId;
+			this.roster = Collections.unmodifiableList(roster);
+
+			double totalElo = 0;
+			for (PlayerRating player : roster) {
+				totalElo += player.getElo();
+			}
+			this.elo = totalElo / roster.size();
+
+			// teamId elo rosterSize
+			this.line = teamId + "\t" + elo + "\t" + roster.size();
+		}
+
+		public String getTeamId() {
+			return teamId;
+		}
+
+		/**
+		 * @return The average Elo of the roster
+		 */
+		public double getElo() {
+			return elo;
+		}
+
+		/**
+		 * @return The roster, highest Elo first
+		 */
+		public List<PlayerRating> getRoster() {
+			return roster;
+		}
+
+		@Override
+		public String toString() {
+			return line;
+		}
+	}
+}
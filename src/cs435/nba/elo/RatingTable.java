@@ -0,0 +1,211 @@
+package cs435.nba.elo;
+
+import java.util.Arrays;
+
+/**
+ * The current Elo of every player for a single K Factor, in primitive arrays
+ * indexed by the {@link IdDictionary} index of the player. Rating a game
+ * reads and writes the Elos of a whole roster at once and does not allocate,
+ * unlike a map of {@link PlayerEloWritable}s that boxes the key and looks
+ * every player up several times per game. The IDs are only decoded when the
+ * Elos are written out.
+ *
+ * @author nate
+ *
+ */
+public class RatingTable {
+
+	/**
+	 * Whether a player has been seen, players that have not been are at
+	 * {@link Constants#START_ELO}
+	 */
+	private boolean[] rated;
+	private double[] elos;
+
+	/**
+	 * The index of the team of each player's latest game,
+	 * {@link Constants#INVALID_INDEX} for players added by
+	 * {@link RatingTable#getElos} until their game is rated
+	 */
+	private int[] teamIds;
+	private String[] names;
+
+	private int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity
+	 *            The number of players expected, usually
+	 *            {@link IdDictionary#getPlayerCount}. The table grows for
+	 *            larger indexes.
+	 */
+	public RatingTable(int capacity) {
+
+		capacity = Math.max(capacity, 16);
+		this.rated = new boolean[capacity];
+		this.elos = new double[capacity];
+		this.teamIds = new int[capacity];
+		this.names = new String[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Sets the start Elo of every player on the team to their current Elo, and
+	 * the end Elo to {@link Constants#START_ELO}. Players we have not seen yet
+	 * are added at {@link Constants#START_ELO}.
+	 *
+	 * @param team
+	 *            The {@link TeamGameWritable} to set the starting Elos for
+	 */
+	public void getElos(TeamGameWritable team) {
+
+		int playerCount = team.getPlayerCount();
+		for (int index = 0; index < playerCount; ++index) {
+
+			int playerId = team.getPlayerIdAt(index);
+			if (playerId >= rated.length || !rated[playerId]) {
+				add(playerId, team.getPlayerNameAt(index), Constants.INVALID_INDEX, Constants.START_ELO);
+			}
+
+			// A game rated for several K Factors has to start every K Factor
+			// the same way a freshly read game does
+			team.setElosAt(index, elos[playerId], Constants.START_ELO);
+		}
+	}
+
+	/**
+	 * The start Elo {@link TeamGameWritable#getStartElo} would give the team
+	 * after {@link RatingTable#getElos}, without setting anything on the team
+	 *
+	 * @param team
+	 *            The {@link TeamGameWritable} to average the players of
+	 * @return The average current Elo of the players on the team
+	 */
+	public double getStartElo(TeamGameWritable team) {
+
+		int playerCount = team.getPlayerCount();
+		if (playerCount == 0) {
+			return 0;
+		}
+
+		// Summed in the same order as the team sums its start Elos
+		double sum = 0;
+		for (int index = 0; index < playerCount; ++index) {
+
+			int playerId = team.getPlayerIdAt(index);
+			if (contains(playerId)) {
+				sum += elos[playerId];
+			} else {
+				sum += Constants.START_ELO;
+			}
+		}
+		return sum / playerCount;
+	}
+
+	/**
+	 * Sets the Elo of every player on a rated team to their end Elo, and their
+	 * latest team to the team. Every player must have been read with
+	 * {@link RatingTable#getElos} first.
+	 *
+	 * @param team
+	 *            The rated {@link TeamGameWritable}
+	 */
+	public void setElos(TeamGameWritable team) {
+
+		int teamId = team.getTeamId();
+		int playerCount = team.getPlayerCount();
+		for (int index = 0; index < playerCount; ++index) {
+
+			int playerId = team.getPlayerIdAt(index);
+			elos[playerId] = team.getEndEloAt(index);
+			teamIds[playerId] = teamId;
+		}
+	}
+
+	/**
+	 * Adds a player, or replaces its Elo if it is already in the table
+	 *
+	 * @param playerId
+	 *            The index of the player
+	 * @param name
+	 *            The name of the player
+	 * @param teamId
+	 *            The index of the team of the player's latest game
+	 * @param elo
+	 *            The Elo of the player
+	 */
+	public void add(int playerId, String name, int teamId, double elo) {
+
+		if (playerId >= rated.length) {
+			grow(playerId + 1);
+		}
+		if (!rated[playerId]) {
+			rated[playerId] = true;
+			++size;
+		}
+		elos[playerId] = elo;
+		teamIds[playerId] = teamId;
+		names[playerId] = name;
+	}
+
+	/**
+	 * @param playerId
+	 *            The index of a player
+	 * @return true if the player is in the table
+	 */
+	public boolean contains(int playerId) {
+		return playerId >= 0 && playerId < rated.length && rated[playerId];
+	}
+
+	/**
+	 * @param playerId
+	 *            The index of a player in the table
+	 * @return The current Elo of the player
+	 */
+	public double getElo(int playerId) {
+		return elos[playerId];
+	}
+
+	/**
+	 * @return The number of players in the table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return One more than the largest index a player in the table can have,
+	 *         to walk the table with {@link RatingTable#contains}
+	 */
+	public int getCapacity() {
+		return rated.length;
+	}
+
+	/**
+	 * Decodes a player of the table for an output
+	 *
+	 * @param playerId
+	 *            The index of a player in the table
+	 * @param dictionary
+	 *            The {@link IdDictionary} the indexes are from
+	 * @return The player with its ID, name, latest team and Elo
+	 */
+	public PlayerEloWritable getPlayerElo(int playerId, IdDictionary dictionary) {
+
+		String teamId = Constants.INVALID_ID;
+		if (teamIds[playerId] != Constants.INVALID_INDEX) {
+			teamId = dictionary.getTeamId(teamIds[playerId]);
+		}
+		return new PlayerEloWritable(dictionary.getPlayerId(playerId), names[playerId], teamId, elos[playerId]);
+	}
+
+	private void grow(int minCapacity) {
+
+		int capacity = Math.max(minCapacity, rated.length * 2);
+		rated = Arrays.copyOf(rated, capacity);
+		elos = Arrays.copyOf(elos, capacity);
+		teamIds = Arrays.copyOf(teamIds, capacity);
+		names = Arrays.copyOf(names, capacity);
+	}
+}
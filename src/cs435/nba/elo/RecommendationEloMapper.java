@@ -0,0 +1,20 @@
+package cs435.nba.elo;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+public class RecommendationEloMapper extends Mapper<Text, PlayerEloWritable, Text, PlayerEloSalaryWritable> {
+
+	@Override
+	public void map(Text key, PlayerEloWritable value, Context context) throws IOException, InterruptedException {
+
+		// This map gets the most recent Elos written by Job 2, the salaries
+		// come from RecommendationMapper
+		// Key is playerId, the name and salary are left unset
+		context.write(key, new PlayerEloSalaryWritable(value.getPlayerId(), Constants.EMPTY_STRING,
+				value.getTeamId(), value.getElo(), Constants.INVALID_STAT));
+	}
+
+}
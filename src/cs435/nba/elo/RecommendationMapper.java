@@ -6,31 +6,30 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 
-public class RecommendationMapper extends Mapper<LongWritable, Text, Text, Text> {
+public class RecommendationMapper extends Mapper<LongWritable, Text, Text, PlayerEloSalaryWritable> {
+
+	private FieldCursor cursor = new FieldCursor(FieldCursor.WHITESPACE);
+	private Text playerId = new Text();
 
 	@Override
 	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
 
-		// This map gets 2 files
-		// First file is: playerId teamId endElo
-		// Seoncd file is: firstName lastName playerId salary
-		String[] tokens = value.toString().split("\\s+");
-		if (tokens.length == 3) {
-
-			// elo file
-			String playerId = tokens[0];
-			String teamId = tokens[1];
-			String endElo = tokens[2];
-			context.write(new Text(playerId), new Text(teamId + "\t" + endElo));
-
-		} else if (tokens.length == 4) {
-
-			// salary file
-			String firstName = tokens[0];
-			String lastName = tokens[1];
-			String playerId = tokens[2];
-			String salary = tokens[3];
-			context.write(new Text(playerId), new Text(firstName + "\t" + lastName + "\t" + salary));
+		// This map gets the salary file, the Elos come from
+		// RecommendationEloMapper
+		// Salary file is: firstName lastName playerId salary
+		if (cursor.reset(value).getFieldCount() == 4) {
+
+			// salary file, the team and Elo are left unset
+			String firstName = cursor.nextString();
+			String lastName = cursor.nextString();
+			cursor.nextText(playerId);
+			String salary = cursor.nextString();
+			try {
+				context.write(playerId, new PlayerEloSalaryWritable(playerId.toString(), firstName + " " + lastName,
+						Constants.EMPTY_STRING, Constants.INVALID_STAT, Double.parseDouble(salary)));
+			} catch (NumberFormatException e) {
+				System.err.println("Bad salary for player " + playerId + ": " + salary);
+			}
 		}
 	}
 
@@ -2,17 +2,19 @@ package cs435.nba.elo;
 
 import java.io.IOException;
 
-import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 
-public class RecommendationRankMapper extends Mapper<LongWritable, Text, Text, Text> {
+public class RecommendationRankMapper
+		extends Mapper<PlayerEloSalaryWritable, NullWritable, Text, PlayerEloSalaryWritable> {
 
 	@Override
-	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+	public void map(PlayerEloSalaryWritable key, NullWritable value, Context context)
+			throws IOException, InterruptedException {
 
 		// Just map everything to the same key
-		context.write(new Text("key"), value);
+		context.write(new Text("key"), key);
 
 	}
 
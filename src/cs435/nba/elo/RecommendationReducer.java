@@ -6,39 +6,38 @@ import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
-public class RecommendationReducer extends Reducer<Text, Text, PlayerEloSalaryWritable, NullWritable> {
+public class RecommendationReducer extends Reducer<Text, PlayerEloSalaryWritable, PlayerEloSalaryWritable, NullWritable> {
 
 	@Override
-	public void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException {
+	public void reduce(Text key, Iterable<PlayerEloSalaryWritable> values, Context context) throws IOException,
+			InterruptedException {
 
 		// playerId is key
 		// Gets 2 different inputs:
-		// 1. teamId endElo
-		// 2. firstName lastName salary
+		// 1. teamId endElo, from RecommendationEloMapper
+		// 2. name salary, from RecommendationMapper
 		String playerId = key.toString();
 		String teamId = null;
 		String name = null;
-		String endElo = null;
-		String salary = null;
-		for (Text value : values) {
+		double endElo = Constants.INVALID_STAT;
+		double salary = Constants.INVALID_STAT;
+		for (PlayerEloSalaryWritable value : values) {
 
-			String[] tokens = value.toString().split("\\s+");
-			if (tokens.length == 2) {
+			if (!value.getTeam().isEmpty()) {
 
-				teamId = new String(tokens[0]);
-				endElo = new String(tokens[1]);
+				teamId = value.getTeam();
+				endElo = value.getElo();
 
-			} else if (tokens.length == 3) {
+			} else if (!value.getName().isEmpty()) {
 
-				name = new String(tokens[0] + " " + tokens[1]);
-				salary = new String(tokens[2]);
+				name = value.getName();
+				salary = value.getSalary();
 			}
 		}
 
-		if (teamId != null && name != null && endElo != null && salary != null) {
+		if (teamId != null && name != null) {
 
-			PlayerEloSalaryWritable player = new PlayerEloSalaryWritable(playerId, name, teamId,
-					Double.parseDouble(endElo), Double.parseDouble(salary));
+			PlayerEloSalaryWritable player = new PlayerEloSalaryWritable(playerId, name, teamId, endElo, salary);
 			context.write(player, NullWritable.get());
 		}
 	}
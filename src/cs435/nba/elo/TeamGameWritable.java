@@ -3,11 +3,8 @@ package cs435.nba.elo;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.Set;
+import java.util.Arrays;
 
-import org.apache.hadoop.io.MapWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableUtils;
 
@@ -15,23 +12,39 @@ import org.apache.hadoop.io.WritableUtils;
  * Represents a team in a single game. Implements {@link WritableComparable} so
  * it can be used in Hadoop's map and reduce.
  * 
+ * The roster is kept as parallel arrays, one per player value, sorted by
+ * player index. Position i of every array is the i-th player of the roster, so
+ * the averages and the Elo shares of a team are loops over primitive arrays.
+ * 
  * TODO Need to override the toString method of this to make printing to files
  * easier
  * 
  * @author nate
- *
+ * 
  */
 public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 
+	/**
+	 * The version of the binary format written by
+	 * {@link TeamGameWritable#write(DataOutput)}. Bump this when the layout
+	 * changes, {@link BeforeAfterEloRecord} reads the same layout
+	 */
+	static final byte VERSION = 3;
+
+	/**
+	 * Rosters are rarely bigger than this, so the arrays almost never grow
+	 */
+	private static final int INITIAL_ROSTER_CAPACITY = 16;
+
 	/**
 	 * The season this game was played
 	 */
 	private int seasonYear;
 
 	/**
-	 * The ID of the team
+	 * The {@link IdDictionary} index of the team
 	 */
-	private String teamId;
+	private int teamId;
 
 	/**
 	 * Total points scored by the team
@@ -69,16 +82,50 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	private double turnovers;
 
 	/**
-	 * A {@link MapWritable} for all the players on this team for this game. Has
-	 * keys of {@link Text} and values of {@link PlayerGameWritable}
+	 * The number of players on this team for this game
 	 */
-	private MapWritable players;
+	private int playerCount;
+
+	/**
+	 * The {@link IdDictionary} index of each player, in increasing order
+	 */
+	private int[] playerIds;
+	private String[] playerNames;
+	private double[] playerPoints;
+	private double[] playerMinPlayed;
+	private double[] playerRebounds;
+	private double[] playerAssists;
+	private double[] playerSteals;
+	private double[] playerBlocks;
+	private double[] playerTurnovers;
+	private double[] startElos;
+	private double[] endElos;
+
+	/**
+	 * The Elo Score of each player, only used while
+	 * {@link TeamGameWritable#changeElo} runs
+	 */
+	private double[] eloScores;
+
+	/**
+	 * The sum of {@link TeamGameWritable#startElos}, valid while
+	 * {@link TeamGameWritable#startEloSumValid} is true
+	 */
+	private double startEloSum;
+	private boolean startEloSumValid;
+
+	/**
+	 * The sum of {@link TeamGameWritable#endElos}, valid while
+	 * {@link TeamGameWritable#endEloSumValid} is true
+	 */
+	private double endEloSum;
+	private boolean endEloSumValid;
 
 	/**
 	 * Default constructor, required for Hadoop
 	 */
 	public TeamGameWritable() {
-		this(Constants.INVALID_DATE, Constants.INVALID_ID, Constants.INVALID_STAT, Constants.INVALID_STAT,
+		this(Constants.INVALID_DATE, Constants.INVALID_INDEX, Constants.INVALID_STAT, Constants.INVALID_STAT,
 				Constants.INVALID_STAT, Constants.INVALID_STAT, Constants.INVALID_STAT, Constants.INVALID_STAT,
 				Constants.INVALID_STAT);
 	}
@@ -89,7 +136,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	 * @param seasonYear
 	 *            The season this game was played
 	 * @param teamId
-	 *            The ID of this team
+	 *            The {@link IdDictionary} index of this team
 	 * @param points
 	 *            The points scored by the team
 	 * @param minPlayed
@@ -105,7 +152,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	 * @param turnovers
 	 *            Total turnovers by the team
 	 */
-	public TeamGameWritable(int seasonYear, String teamId, double points, double minPlayed, double rebounds,
+	public TeamGameWritable(int seasonYear, int teamId, double points, double minPlayed, double rebounds,
 			double assists, double steals, double blocks, double turnovers) {
 
 		this.teamId = teamId;
@@ -116,7 +163,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 		this.steals = steals;
 		this.blocks = blocks;
 		this.turnovers = turnovers;
-		this.players = new MapWritable();
+		allocateRoster(INITIAL_ROSTER_CAPACITY);
 	}
 
 	/**
@@ -131,7 +178,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 
 		if (team != null) {
 			this.seasonYear = team.getSeasonYear();
-			this.teamId = new String(team.getTeamId());
+			this.teamId = team.getTeamId();
 			this.points = team.getPoints();
 			this.minPlayed = team.getMinPlayed();
 			this.rebounds = team.getRebounds();
@@ -140,11 +187,20 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 			this.blocks = team.getBlocks();
 			this.turnovers = team.getTurnovers();
 
-			MapWritable teamPlayers = team.getPlayers();
-			Set<Writable> keys = teamPlayers.keySet();
-			for (Writable key : keys) {
-				this.addPlayer(new PlayerGameWritable((PlayerGameWritable) teamPlayers.get(key)));
-			}
+			int capacity = team.playerIds.length;
+			this.playerCount = team.playerCount;
+			this.playerIds = Arrays.copyOf(team.playerIds, capacity);
+			this.playerNames = Arrays.copyOf(team.playerNames, capacity);
+			this.playerPoints = Arrays.copyOf(team.playerPoints, capacity);
+			this.playerMinPlayed = Arrays.copyOf(team.playerMinPlayed, capacity);
+			this.playerRebounds = Arrays.copyOf(team.playerRebounds, capacity);
+			this.playerAssists = Arrays.copyOf(team.playerAssists, capacity);
+			this.playerSteals = Arrays.copyOf(team.playerSteals, capacity);
+			this.playerBlocks = Arrays.copyOf(team.playerBlocks, capacity);
+			this.playerTurnovers = Arrays.copyOf(team.playerTurnovers, capacity);
+			this.startElos = Arrays.copyOf(team.startElos, capacity);
+			this.endElos = Arrays.copyOf(team.endElos, capacity);
+			this.eloScores = new double[capacity];
 		}
 	}
 
@@ -158,7 +214,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	/**
 	 * @return {@link TeamGameWritable#teamId}
 	 */
-	public String getTeamId() {
+	public int getTeamId() {
 		return teamId;
 	}
 
@@ -212,30 +268,94 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	}
 
 	/**
-	 * @return {@link MapWritable} with a key of {@link Text} of the playerID
-	 *         and a value of {@link PlayerGameWritable}
+	 * @return {@link TeamGameWritable#playerCount}, the roster positions go
+	 *         from 0 to one less than it
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	/**
+	 * @param index
+	 *            The position of the player in the roster
+	 * @return The {@link IdDictionary} index of the player
+	 */
+	public int getPlayerIdAt(int index) {
+		return playerIds[index];
+	}
+
+	/**
+	 * @param index
+	 *            The position of the player in the roster
+	 * @return The name of the player
+	 */
+	public String getPlayerNameAt(int index) {
+		return playerNames[index];
+	}
+
+	/**
+	 * @param index
+	 *            The position of the player in the roster
+	 * @return The Elo of the player at the start of this game
+	 */
+	public double getStartEloAt(int index) {
+		return startElos[index];
+	}
+
+	/**
+	 * @param index
+	 *            The position of the player in the roster
+	 * @return The Elo of the player after this game
 	 */
-	public MapWritable getPlayers() {
-		return players;
+	public double getEndEloAt(int index) {
+		return endElos[index];
+	}
+
+	/**
+	 * Sets the Elos of the player at a roster position
+	 * 
+	 * @param index
+	 *            The position of the player in the roster
+	 * @param startElo
+	 *            The Elo of the player at the start of this game
+	 * @param endElo
+	 *            The Elo of the player after this game
+	 */
+	public void setElosAt(int index, double startElo, double endElo) {
+
+		startElos[index] = startElo;
+		endElos[index] = endElo;
+		startEloSumValid = false;
+		endEloSumValid = false;
+	}
+
+	/**
+	 * @param index
+	 *            The position of the player in the roster
+	 * @return A new {@link PlayerGameWritable} with the values of the player,
+	 *         changing it does not change the roster
+	 */
+	public PlayerGameWritable getPlayerAt(int index) {
+
+		PlayerGameWritable player = new PlayerGameWritable(teamId, playerIds[index], playerNames[index],
+				playerPoints[index], playerMinPlayed[index], playerRebounds[index], playerAssists[index],
+				playerSteals[index], playerBlocks[index], playerTurnovers[index]);
+		player.setStartElo(startElos[index]);
+		player.setEndElo(endElos[index]);
+		return player;
 	}
 
 	/**
 	 * Returns the average of the starting Elo values for all players on this
-	 * team
+	 * team. The sum is kept until a starting Elo changes.
 	 * 
 	 * @return The average Elo value of all the players at the start of this
 	 *         game for this team
 	 */
 	public double getStartElo() {
 
-		double sum = 0;
-		Set<Writable> keys = players.keySet();
-		for (Writable playerId : keys) {
-			sum += ((PlayerGameWritable) players.get(playerId)).getStartElo();
-		}
-
-		if (keys.size() != 0) {
-			return sum / keys.size();
+		if (playerCount != 0) {
+			return getStartEloSum() / playerCount;
 		} else {
 			return 0;
 		}
@@ -243,22 +363,15 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 
 	/**
 	 * Returns the average of the Elo values for all players on this team after
-	 * this game completes
+	 * this game completes. The sum is kept until an ending Elo changes.
 	 * 
 	 * @return The average Elo value of all the players after this game finishes
 	 *         for this team
 	 */
 	public double getEndElo() {
 
-		double sum = 0;
-		;
-		Set<Writable> keys = players.keySet();
-		for (Writable playerId : keys) {
-			sum += ((PlayerGameWritable) players.get(playerId)).getEndElo();
-		}
-
-		if (keys.size() != 0) {
-			return sum / keys.size();
+		if (playerCount != 0) {
+			return getEndEloSum() / playerCount;
 		} else {
 			return 0;
 		}
@@ -279,10 +392,9 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 		// The eloChange given is for the team, but the team elo is an average
 		// of all the players elo
 		// Therefore the "overall" change for the team is eloChange * # players
-		Set<Writable> keys = players.keySet();
-		double totalEloChange = eloChange * keys.size();
+		double totalEloChange = eloChange * playerCount;
 
-		if (keys.size() != 0) {
+		if (playerCount != 0) {
 
 			if (eloChange < 0) {
 
@@ -290,314 +402,325 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 				// Each player gets their "equal" share of the loss
 
 				// First get the entire team sum
-				double teamEloSum = 0;
-				for (Writable playerId : keys) {
-					PlayerGameWritable player = (PlayerGameWritable) players.get(playerId);
-					teamEloSum += player.getStartElo();
-				}
+				double teamEloSum = getStartEloSum();
 
 				// Now calculate what each player's "equal" share is
-				for (Writable playerId : keys) {
-					PlayerGameWritable player = (PlayerGameWritable) players.get(playerId);
-					double startElo = player.getStartElo();
+				for (int index = 0; index < playerCount; ++index) {
+					double startElo = startElos[index];
 					double playerShare = totalEloChange * (startElo / teamEloSum);
-					player.setEndElo(startElo + playerShare);
+					endElos[index] = startElo + playerShare;
 				}
+				endEloSumValid = false;
 
 			} else if (eloChange > 0) {
 
 				// The team won
-				// Players are awarded based on their performance
+				// Players are awarded based on their performance, their Elo
+				// Score with the weights of the season
+				LeagueStats.SeasonWeights weights = LeagueStats.getInstance().getWeights(seasonYear);
+
 				double teamEloScore = 0;
-				for (Writable playerId : keys) {
-					PlayerGameWritable player = (PlayerGameWritable) players.get(playerId);
-					teamEloScore += getEloScore(player);
+				for (int index = 0; index < playerCount; ++index) {
+					eloScores[index] = weights.getEloScore(playerPoints[index], playerRebounds[index],
+							playerAssists[index], playerSteals[index], playerBlocks[index], playerTurnovers[index]);
+					teamEloScore += eloScores[index];
 				}
 
 				// Now calculate what change in Elo the player earned
-				for (Writable playerId : keys) {
-					PlayerGameWritable player = (PlayerGameWritable) players.get(playerId);
-					double startElo = player.getStartElo();
-					double playerEloScore = getEloScore(player);
-					double playerShare = totalEloChange * (playerEloScore / teamEloScore);
-					player.setEndElo(startElo + playerShare);
+				for (int index = 0; index < playerCount; ++index) {
+					double startElo = startElos[index];
+					double playerShare = totalEloChange * (eloScores[index] / teamEloScore);
+					endElos[index] = startElo + playerShare;
 				}
+				endEloSumValid = false;
 			}
 		}
 	}
 
 	/**
-	 * Calculates the player's "Elo Score" for a game Elo points are the sum of:
-	 * <ul>
-	 * <li>points * 1</li>
-	 * <li>rebounds * 2 * eFG% * (1 - TO%)</li>
-	 * <li>assists * 2</li>
-	 * <li>steals * 2 * eFG% * (1 - TO%)</li>
-	 * <li>blocks * 2 * eFG%</li>
-	 * <li>turnovers * -2 * eFG% * (1 - TO%)</li>
-	 * </ul>
+	 * Sets the given player's starting Elo to the given startElo
 	 * 
-	 * @param player
-	 *            The {@link PlayerGameWritable} to calculate Elo Score for
-	 * @return the "Elo Score" the player got in this game
+	 * @param playerId
+	 *            The index of the player to set the starting elo for
+	 * @param startElo
+	 *            The starting elo to set
 	 */
-	private double getEloScore(PlayerGameWritable player) {
-
-		double playerPoints = player.getPoints();
-		double playerRebounds = player.getRebounds();
-		double playerAssists = player.getAssists();
-		double playerSteals = player.getSteals();
-		double playerBlocks = player.getBlocks();
-		double playerTurnovers = player.getTurnovers();
+	public void setPlayerStartElo(int playerId, double startElo) {
 
-		return getEloScore(playerPoints, playerRebounds, playerAssists, playerSteals, playerBlocks, playerTurnovers);
+		int index = indexOf(playerId);
+		if (index >= 0) {
+			startElos[index] = startElo;
+			startEloSumValid = false;
+		}
 	}
 
 	/**
-	 * Calculates the player's "Elo Score" for a game Elo points are the sum of:
-	 * <ul>
-	 * <li>points * 1</li>
-	 * <li>rebounds * 2 * eFG% * (1 - TO%)</li>
-	 * <li>assists * 2</li>
-	 * <li>steals * 2 * eFG% * (1 - TO%)</li>
-	 * <li>blocks * 2 * eFG%</li>
-	 * <li>turnovers * -2 * eFG% * (1 - TO%)</li>
-	 * </ul>
-	 * 
-	 * @param eloPoints
-	 *            The points scored
-	 * @param eloRebounds
-	 *            The number of rebounds obtained
-	 * @param eloAssists
-	 *            The number of assists given
-	 * @param eloSteals
-	 *            The number of steals obtained
-	 * @param eloBlocks
-	 *            The number of blocks
-	 * @param eloTurnovers
-	 *            The number of turnovers
-	 * @return the "Elo Score" the player got in this game
-	 */
-	private double getEloScore(double eloPoints, double eloRebounds, double eloAssists, double eloSteals,
-			double eloBlocks, double eloTurnovers) {
-
-		/*
-		 * Get the effective FG percent and turnover percent for this season
-		 */
-		LeagueStats leagueStats = LeagueStats.getInstance();
-		double eFGPercent = leagueStats.getEffectiveFieldGoalPercent(seasonYear);
-		double toPercent = leagueStats.getTurnoverPercent(seasonYear);
-
-		// We only use 1 - toPercent
-		double noTOPercent = 1 - toPercent;
-
-		/*
-		 * Points count for a single point for the team
-		 */
-		double pointsScore = eloPoints * 1;
-
-		/*
-		 * Rebounds give the team 2 points if they score and don't turn it over
-		 */
-		double reboundsScore = eloRebounds * 2 * eFGPercent * noTOPercent;
-
-		/**
-		 * Assists give the team at least 2 points
-		 */
-		double assistsScore = eloAssists * 2;
-
-		/**
-		 * Steals give the team 2 poitns if they score and don't turn it over
-		 */
-		double stealsScore = eloSteals * 2 * eFGPercent * noTOPercent;
-
-		/**
-		 * Blocks take 2 points away from the other team assuming they would
-		 * have made the shot. Turnovers are not taken into account because we
-		 * don't know which team has the ball after a block.
-		 */
-		double blocksScore = eloBlocks * 2 * eFGPercent;
-
-		/**
-		 * Turnovers give the other team 2 points assuming they score and don't
-		 * turn it over
-		 */
-		double turnoversScore = eloTurnovers * -2 * eFGPercent * noTOPercent;
-
-		/*
-		 * Total eloScore is sum of all above contributions
-		 */
-		return pointsScore + reboundsScore + assistsScore + stealsScore + blocksScore + turnoversScore;
-
-	}
-
-	/**
-	 * Sets the given playerId's starting Elo to the given startElo
-	 * 
 	 * @param playerId
-	 *            The playerId to set the starting elo for
-	 * @param startElo
-	 *            The starting elo to set
+	 *            The index of the player to retrieve
+	 * @return A new {@link PlayerGameWritable} with the values of the player
+	 *         represented by the given playerId
+	 * @throws PlayerNotFoundException
+	 *             If the player was not found
 	 */
-	public void setPlayerStartElo(String playerId, double startElo) {
+	public PlayerGameWritable getPlayer(int playerId) throws PlayerNotFoundException {
 
-		if (playerId == null) {
-			return;
+		int index = indexOf(playerId);
+		if (index >= 0) {
+
+			return getPlayerAt(index);
+
+		} else {
+
+			throw new PlayerNotFoundException("Player with index: " + playerId + " was not found");
 		}
+	}
 
-		setPlayerStartElo(new Text(playerId), startElo);
+	/**
+	 * @param playerId
+	 *            The index of the player to check for
+	 * @return true if the roster contains this playerId, false otherwise
+	 */
+	public boolean hasPlayerId(int playerId) {
+		return indexOf(playerId) >= 0;
 	}
 
 	/**
-	 * Sets the given playerId's starting Elo to the given startElo
+	 * Adds a player to the roster. If the given player is already on the
+	 * roster, it will replace it. The roster keeps the values of the player,
+	 * not the player itself.
 	 * 
-	 * @param playerId
-	 *            The playerId to set the starting elo for
-	 * @param startElo
-	 *            The starting elo to set
+	 * @param player
+	 *            The {@link PlayerGameWritable} to add
 	 */
-	public void setPlayerStartElo(Text playerId, double startElo) {
+	public void addPlayer(PlayerGameWritable player) {
 
-		if (playerId == null) {
+		if (player == null) {
 			return;
 		}
 
-		if (players.containsKey(playerId)) {
-			((PlayerGameWritable) players.get(playerId)).setStartElo(startElo);
-		}
+		int index = insertionIndex(player.getPlayerId());
+		playerNames[index] = player.getName();
+		playerPoints[index] = player.getPoints();
+		playerMinPlayed[index] = player.getMinPlayed();
+		playerRebounds[index] = player.getRebounds();
+		playerAssists[index] = player.getAssists();
+		playerSteals[index] = player.getSteals();
+		playerBlocks[index] = player.getBlocks();
+		playerTurnovers[index] = player.getTurnovers();
+		startElos[index] = player.getStartElo();
+		endElos[index] = player.getEndElo();
 	}
 
 	/**
-	 * @param playerId
-	 *            The playerId to retrieve
-	 * @return The {@link PlayerGameWritable} represented by the given playerId
-	 * @throws PlayerNotFoundException
-	 *             If the player was not found
+	 * Reads all the member variables from HDFS. The layout is a version byte,
+	 * the team stats and then the roster as a player count followed by that
+	 * many fixed layout player entries.
+	 * 
+	 * @param in
+	 *            The {@link DataInput}
 	 */
-	public PlayerGameWritable getPlayer(String playerId) throws PlayerNotFoundException {
+	@Override
+	public void readFields(DataInput in) throws IOException {
 
-		if (playerId == null) {
-			throw new PlayerNotFoundException("Cannot find a null player");
+		byte version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported TeamGameWritable version: " + version);
 		}
 
-		return getPlayer(new Text(playerId));
+		seasonYear = WritableUtils.readVInt(in);
+		teamId = WritableUtils.readVInt(in);
+		points = in.readDouble();
+		minPlayed = in.readDouble();
+		rebounds = in.readDouble();
+		assists = in.readDouble();
+		steals = in.readDouble();
+		blocks = in.readDouble();
+		turnovers = in.readDouble();
+
+		playerCount = 0;
+		int numPlayers = WritableUtils.readVInt(in);
+		for (int entry = 0; entry < numPlayers; ++entry) {
+
+			// Entries are written in roster order, so each one goes at the end
+			int index = insertionIndex(WritableUtils.readVInt(in));
+			playerNames[index] = WritableUtils.readString(in);
+			playerPoints[index] = in.readDouble();
+			playerMinPlayed[index] = in.readDouble();
+			playerRebounds[index] = in.readDouble();
+			playerAssists[index] = in.readDouble();
+			playerSteals[index] = in.readDouble();
+			playerBlocks[index] = in.readDouble();
+			playerTurnovers[index] = in.readDouble();
+			startElos[index] = in.readDouble();
+			endElos[index] = in.readDouble();
+		}
 	}
 
 	/**
-	 * @param playerId
-	 *            The playerId to retrieve
-	 * @return The {@link PlayerGameWritable} represented by the given playerId
-	 * @throws PlayerNotFoundException
-	 *             If the player was not found
+	 * Writes all the member variables to HDFS. Each player entry has the same
+	 * layout as {@link PlayerGameWritable#writeRosterEntry}.
+	 * 
+	 * @param out
+	 *            {@link DataOutput}
 	 */
-	public PlayerGameWritable getPlayer(Text playerId) throws PlayerNotFoundException {
+	@Override
+	public void write(DataOutput out) throws IOException {
 
-		if (playerId == null) {
-			throw new PlayerNotFoundException("Cannot find a null player");
+		out.writeByte(VERSION);
+		WritableUtils.writeVInt(out, seasonYear);
+		WritableUtils.writeVInt(out, teamId);
+		out.writeDouble(points);
+		out.writeDouble(minPlayed);
+		out.writeDouble(rebounds);
+		out.writeDouble(assists);
+		out.writeDouble(steals);
+		out.writeDouble(blocks);
+		out.writeDouble(turnovers);
+
+		WritableUtils.writeVInt(out, playerCount);
+		for (int index = 0; index < playerCount; ++index) {
+
+			WritableUtils.writeVInt(out, playerIds[index]);
+			WritableUtils.writeString(out, playerNames[index]);
+			out.writeDouble(playerPoints[index]);
+			out.writeDouble(playerMinPlayed[index]);
+			out.writeDouble(playerRebounds[index]);
+			out.writeDouble(playerAssists[index]);
+			out.writeDouble(playerSteals[index]);
+			out.writeDouble(playerBlocks[index]);
+			out.writeDouble(playerTurnovers[index]);
+			out.writeDouble(startElos[index]);
+			out.writeDouble(endElos[index]);
 		}
+	}
 
-		if (players.containsKey(playerId)) {
+	/**
+	 * @return The sum of the starting Elos, only summed again after one of
+	 *         them changes
+	 */
+	private double getStartEloSum() {
 
-			return (PlayerGameWritable) players.get(playerId);
+		if (!startEloSumValid) {
 
-		} else {
-
-			throw new PlayerNotFoundException("Player with ID: " + playerId.toString() + " was not found");
+			double sum = 0;
+			for (int index = 0; index < playerCount; ++index) {
+				sum += startElos[index];
+			}
+			startEloSum = sum;
+			startEloSumValid = true;
 		}
+		return startEloSum;
 	}
 
 	/**
-	 * @param playerId
-	 *            The playerId to check for
-	 * @return true if the {@link TeamGameWritable#players} contains this
-	 *         playerId, false otherwise
+	 * @return The sum of the ending Elos, only summed again after one of them
+	 *         changes
 	 */
-	public boolean hasPlayerId(String playerId) {
+	private double getEndEloSum() {
 
-		if (playerId == null) {
-			return false;
-		}
+		if (!endEloSumValid) {
 
-		return hasPlayerId(new Text(playerId));
+			double sum = 0;
+			for (int index = 0; index < playerCount; ++index) {
+				sum += endElos[index];
+			}
+			endEloSum = sum;
+			endEloSumValid = true;
+		}
+		return endEloSum;
 	}
 
 	/**
 	 * @param playerId
-	 *            The playerId to check for
-	 * @return true if the {@link TeamGameWritable#players} contains this
-	 *         playerId, false otherwise
+	 *            The index of a player
+	 * @return The roster position of the player, negative if the player is not
+	 *         on the roster
 	 */
-	public boolean hasPlayerId(Text playerId) {
-
-		if (playerId == null) {
-			return false;
-		}
-
-		return players.containsKey(playerId);
+	private int indexOf(int playerId) {
+		return Arrays.binarySearch(playerIds, 0, playerCount, playerId);
 	}
 
 	/**
-	 * Adds a player to {@link TeamGameWritable#players}. If the given player
-	 * already exists as a key, it will replace it.
+	 * Finds the roster position of a player, making room for it if it is not
+	 * on the roster yet. The caller sets every other value at the position.
 	 * 
-	 * @param player
-	 *            The {@link PlayerGameWritable} to add
+	 * @param playerId
+	 *            The index of the player
+	 * @return The roster position of the player
 	 */
-	public void addPlayer(PlayerGameWritable player) {
+	private int insertionIndex(int playerId) {
 
-		if (player == null) {
-			return;
-		}
+		startEloSumValid = false;
+		endEloSumValid = false;
 
-		Text playerId = new Text(player.getPlayerId());
-		if (players.containsKey(playerId)) {
+		// Read rosters come in increasing order, so check the end first
+		if (playerCount == 0 || playerIds[playerCount - 1] < playerId) {
 
-			players.remove(playerId);
+			ensureCapacity(playerCount + 1);
+			playerIds[playerCount] = playerId;
+			return playerCount++;
 		}
 
-		players.put(playerId, player);
+		int index = indexOf(playerId);
+		if (index >= 0) {
+			return index;
+		}
+
+		index = -(index + 1);
+		ensureCapacity(playerCount + 1);
+		int moved = playerCount - index;
+		System.arraycopy(playerIds, index, playerIds, index + 1, moved);
+		System.arraycopy(playerNames, index, playerNames, index + 1, moved);
+		System.arraycopy(playerPoints, index, playerPoints, index + 1, moved);
+		System.arraycopy(playerMinPlayed, index, playerMinPlayed, index + 1, moved);
+		System.arraycopy(playerRebounds, index, playerRebounds, index + 1, moved);
+		System.arraycopy(playerAssists, index, playerAssists, index + 1, moved);
+		System.arraycopy(playerSteals, index, playerSteals, index + 1, moved);
+		System.arraycopy(playerBlocks, index, playerBlocks, index + 1, moved);
+		System.arraycopy(playerTurnovers, index, playerTurnovers, index + 1, moved);
+		System.arraycopy(startElos, index, startElos, index + 1, moved);
+		System.arraycopy(endElos, index, endElos, index + 1, moved);
+		playerIds[index] = playerId;
+		++playerCount;
+		return index;
 	}
 
-	/**
-	 * Reads all the member variables from HDFS
-	 * 
-	 * @param in
-	 *            The {@link DataInput}
-	 */
-	@Override
-	public void readFields(DataInput in) throws IOException {
+	private void ensureCapacity(int capacity) {
 
-		seasonYear = Integer.parseInt(WritableUtils.readString(in));
-		teamId = WritableUtils.readString(in);
-		points = Double.parseDouble(WritableUtils.readString(in));
-		minPlayed = Double.parseDouble(WritableUtils.readString(in));
-		rebounds = Double.parseDouble(WritableUtils.readString(in));
-		assists = Double.parseDouble(WritableUtils.readString(in));
-		steals = Double.parseDouble(WritableUtils.readString(in));
-		blocks = Double.parseDouble(WritableUtils.readString(in));
-		turnovers = Double.parseDouble(WritableUtils.readString(in));
-		players.readFields(in);
-	}
+		if (capacity <= playerIds.length) {
+			return;
+		}
 
-	/**
-	 * Writes all the member variables to HDFS
-	 * 
-	 * @param out
-	 *            {@link DataOutput}
-	 */
-	@Override
-	public void write(DataOutput out) throws IOException {
+		capacity = Math.max(capacity, playerIds.length * 2);
+		playerIds = Arrays.copyOf(playerIds, capacity);
+		playerNames = Arrays.copyOf(playerNames, capacity);
+		playerPoints = Arrays.copyOf(playerPoints, capacity);
+		playerMinPlayed = Arrays.copyOf(playerMinPlayed, capacity);
+		playerRebounds = Arrays.copyOf(playerRebounds, capacity);
+		playerAssists = Arrays.copyOf(playerAssists, capacity);
+		playerSteals = Arrays.copyOf(playerSteals, capacity);
+		playerBlocks = Arrays.copyOf(playerBlocks, capacity);
+		playerTurnovers = Arrays.copyOf(playerTurnovers, capacity);
+		startElos = Arrays.copyOf(startElos, capacity);
+		endElos = Arrays.copyOf(endElos, capacity);
+		eloScores = new double[capacity];
+	}
 
-		WritableUtils.writeString(out, Integer.toString(seasonYear));
-		WritableUtils.writeString(out, teamId);
-		WritableUtils.writeString(out, Double.toString(points));
-		WritableUtils.writeString(out, Double.toString(minPlayed));
-		WritableUtils.writeString(out, Double.toString(rebounds));
-		WritableUtils.writeString(out, Double.toString(assists));
-		WritableUtils.writeString(out, Double.toString(steals));
-		WritableUtils.writeString(out, Double.toString(blocks));
-		WritableUtils.writeString(out, Double.toString(turnovers));
-		players.write(out);
+	private void allocateRoster(int capacity) {
+
+		playerCount = 0;
+		playerIds = new int[capacity];
+		playerNames = new String[capacity];
+		playerPoints = new double[capacity];
+		playerMinPlayed = new double[capacity];
+		playerRebounds = new double[capacity];
+		playerAssists = new double[capacity];
+		playerSteals = new double[capacity];
+		playerBlocks = new double[capacity];
+		playerTurnovers = new double[capacity];
+		startElos = new double[capacity];
+		endElos = new double[capacity];
+		eloScores = new double[capacity];
 	}
 
 	/**
@@ -617,13 +740,13 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 			return -1;
 		}
 
-		return teamId.compareTo(other.getTeamId());
+		return Integer.compare(teamId, other.getTeamId());
 	}
 
 	/**
 	 * This function compares equality. The only thing we care about when
 	 * comparing teams is if their ID's are equal. If this object's ID is equal
-	 * to {@link Constants#INVALID_ID} it should always return false
+	 * to {@link Constants#INVALID_INDEX} it should always return false
 	 * 
 	 * @param o
 	 *            The object to compare this one to
@@ -631,7 +754,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	 *         <ul>
 	 *         <li>The given Object is {@link TeamGameWritable} and has a
 	 *         {@link TeamGameWritable#teamId} equal to this object's</li>
-	 *         <li>The given object is {@link String} equal to this
+	 *         <li>The given object is an {@link Integer} equal to this
 	 *         {@link TeamGameWritable#teamId}</li>
 	 *         </ul>
 	 *         false otherwise
@@ -639,7 +762,7 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 	@Override
 	public boolean equals(Object o) {
 
-		if (teamId.equals(Constants.INVALID_ID)) {
+		if (teamId == Constants.INVALID_INDEX) {
 			return false;
 		}
 
@@ -650,12 +773,12 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 		if (o instanceof TeamGameWritable) {
 
 			TeamGameWritable other = (TeamGameWritable) o;
-			return teamId.equals(other.getTeamId());
+			return teamId == other.getTeamId();
 
-		} else if (o instanceof String) {
+		} else if (o instanceof Integer) {
 
-			String otherTeamId = (String) o;
-			return teamId.equals(otherTeamId);
+			int otherTeamId = (Integer) o;
+			return teamId == otherTeamId;
 
 		} else {
 
@@ -666,14 +789,14 @@ public class TeamGameWritable implements WritableComparable<TeamGameWritable> {
 
 	/**
 	 * It is required in Hadoop to return consistent hashcodes across instances
-	 * of JVMs. Luckily for us {@link String#hashCode} already does this. This
-	 * is also so when adding to HashSets or HashMaps, we properly add or don't
-	 * add.
+	 * of JVMs. The index is the same in every JVM that read the same
+	 * {@link IdDictionary}. This is also so when adding to HashSets or
+	 * HashMaps, we properly add or don't add.
 	 * 
-	 * @return The hashCode of {@link TeamGameWritable#teamId}
+	 * @return {@link TeamGameWritable#teamId}
 	 */
 	@Override
 	public int hashCode() {
-		return teamId.hashCode();
+		return teamId;
 	}
 }
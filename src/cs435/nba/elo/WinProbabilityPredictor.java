@@ -0,0 +1,293 @@
+package cs435.nba.elo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Predicts who wins a game from the current ratings, with the same expected
+ * score {@link GameEloReducer#rateGame} uses to rate a game. A team's Elo is
+ * the average of its roster, see {@link RatingSnapshot#getRosterElo}, or of
+ * its current roster when only its ID is known, see
+ * {@link RatingSnapshot#getTeamElo}.
+ *
+ * A whole schedule is scored at once by resolving every game to the two Elos
+ * first and then splitting the games between threads. Scoring only writes
+ * into arrays allocated for the whole schedule, nothing is allocated per game.
+ *
+ * @author nate
+ *
+ */
+public class WinProbabilityPredictor {
+
+	/**
+	 * Schedules with fewer games than this are scored on the calling thread
+	 */
+	private static final int MIN_PARALLEL_GAMES = 4096;
+
+	private ExecutorService executor;
+	private int threadCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param executor
+	 *            Runs the scoring of large schedules
+	 * @param threadCount
+	 *            How many parts a large schedule is split into, usually the
+	 *            number of threads of the executor
+	 */
+	public WinProbabilityPredictor(ExecutorService executor, int threadCount) {
+
+		this.executor = executor;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * @param homeElo
+	 *            The Elo of the home team
+	 * @param awayElo
+	 *            The Elo of the away team
+	 * @return The probability the home team wins, the away team wins with one
+	 *         minus it
+	 */
+	public static double getHomeWinProbability(double homeElo, double awayElo) {
+
+		return EloExpectation.getExpectedScore(homeElo, awayElo);
+	}
+
+	/**
+	 * Scores every game of a schedule, filling in
+	 * {@link Schedule#getHomeWinProbability}
+	 *
+	 * @param schedule
+	 *            The schedule to score
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the threads
+	 */
+	public void score(Schedule schedule) throws InterruptedException {
+
+		int size = schedule.size();
+		if (size < MIN_PARALLEL_GAMES || threadCount < 2) {
+			scoreRange(schedule, 0, size);
+			return;
+		}
+
+		int partSize = (size + threadCount - 1) / threadCount;
+		List<Callable<Void>> parts = new ArrayList<Callable<Void>>(threadCount);
+		for (int from = 0; from < size; from += partSize) {
+			parts.add(new ScorePart(schedule, from, Math.min(from + partSize, size)));
+		}
+
+		try {
+			for (Future<Void> future : executor.invokeAll(parts)) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			// Scoring only does arithmetic on arrays, so this is a bug
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static void scoreRange(Schedule schedule, int from, int to) {
+
+		EloExpectation.getExpectedScores(schedule.homeElos, schedule.awayElos, schedule.homeWinProbabilities, from,
+				to);
+	}
+
+	/**
+	 * Scores one part of a schedule
+	 */
+	private static class ScorePart implements Callable<Void> {
+
+		private Schedule schedule;
+		private int from;
+		private int to;
+
+		public ScorePart(Schedule schedule, int from, int to) {
+
+			this.schedule = schedule;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call() {
+
+			scoreRange(schedule, from, to);
+			return null;
+		}
+	}
+
+	/**
+	 * The upcoming games to predict with the Elo of both teams of each, in
+	 * parallel arrays
+	 */
+	public static class Schedule {
+
+		/**
+		 * Separates the player IDs of a roster in a schedule file
+		 */
+		public static final String ROSTER_SEPARATOR = ";";
+
+		private int size;
+		private String[] gameIds;
+		private String[] homeTeamIds;
+		private String[] awayTeamIds;
+		private double[] homeElos;
+		private double[] awayElos;
+		private double[] homeWinProbabilities;
+
+		public Schedule() {
+
+			this.size = 0;
+			this.gameIds = new String[64];
+			this.homeTeamIds = new String[64];
+			this.awayTeamIds = new String[64];
+			this.homeElos = new double[64];
+			this.awayElos = new double[64];
+			this.homeWinProbabilities = new double[64];
+		}
+
+		/**
+		 * Reads a schedule file, one game per line:
+		 * gameId,homeTeamId,awayTeamId[,homePlayerIds,awayPlayerIds]
+		 *
+		 * The player IDs of a roster are separated by
+		 * {@link Schedule#ROSTER_SEPARATOR}. When the rosters are given the
+		 * teams' Elos are the averages of the rosters, otherwise they are the
+		 * averages of the teams' current rosters.
+		 *
+		 * @param reader
+		 *            The schedule file, not closed
+		 * @param snapshot
+		 *            The ratings to predict with
+		 * @return The schedule, not scored yet
+		 * @throws IOException
+		 *             If the file could not be read
+		 * @throws TeamNotFoundException
+		 *             If a game without rosters has a team without a current
+		 *             roster
+		 * @throws IllegalArgumentException
+		 *             If a line is malformed
+		 */
+		public static Schedule read(BufferedReader reader, RatingSnapshot snapshot) throws IOException,
+				TeamNotFoundException {
+
+			Schedule schedule = new Schedule();
+
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+
+				++lineNumber;
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				String[] vals = line.split(",");
+				if (vals.length == 3) {
+
+					schedule.add(vals[0], vals[1], vals[2], snapshot.getTeamElo(vals[1]),
+							snapshot.getTeamElo(vals[2]));
+
+				} else if (vals.length == 5) {
+
+					schedule.add(vals[0], vals[1], vals[2],
+							snapshot.getRosterElo(vals[3].split(ROSTER_SEPARATOR)),
+							snapshot.getRosterElo(vals[4].split(ROSTER_SEPARATOR)));
+
+				} else {
+					throw new IllegalArgumentException("Schedule line " + lineNumber + " has vals length = "
+							+ vals.length + ". expecting 3 or 5");
+				}
+			}
+			return schedule;
+		}
+
+		/**
+		 * Adds a game
+		 *
+		 * @param gameId
+		 *            The ID of the game
+		 * @param homeTeamId
+		 *            The ID of the home team
+		 * @param awayTeamId
+		 *            The ID of the away team
+		 * @param homeElo
+		 *            The Elo of the home team
+		 * @param awayElo
+		 *            The Elo of the away team
+		 */
+		public void add(String gameId, String homeTeamId, String awayTeamId, double homeElo, double awayElo) {
+
+			if (size == gameIds.length) {
+				gameIds = Arrays.copyOf(gameIds, size * 2);
+				homeTeamIds = Arrays.copyOf(homeTeamIds, size * 2);
+				awayTeamIds = Arrays.copyOf(awayTeamIds, size * 2);
+				homeElos = Arrays.copyOf(homeElos, size * 2);
+				awayElos = Arrays.copyOf(awayElos, size * 2);
+				homeWinProbabilities = Arrays.copyOf(homeWinProbabilities, size * 2);
+			}
+			gameIds[size] = gameId;
+			homeTeamIds[size] = homeTeamId;
+			awayTeamIds[size] = awayTeamId;
+			homeElos[size] = homeElo;
+			awayElos[size] = awayElo;
+			++size;
+		}
+
+		/**
+		 * @return The number of games
+		 */
+		public int size() {
+			return size;
+		}
+
+		public String getGameId(int index) {
+			return gameIds[index];
+		}
+
+		public String getHomeTeamId(int index) {
+			return homeTeamIds[index];
+		}
+
+		public String getAwayTeamId(int index) {
+			return awayTeamIds[index];
+		}
+
+		public double getHomeElo(int index) {
+			return homeElos[index];
+		}
+
+		public double getAwayElo(int index) {
+			return awayElos[index];
+		}
+
+		/**
+		 * @return The probability the home team wins the game, only set once
+		 *         the schedule is scored
+		 */
+		public double getHomeWinProbability(int index) {
+			return homeWinProbabilities[index];
+		}
+
+		/**
+		 * @return The line written for the game: gameId homeTeamId awayTeamId
+		 *         homeElo awayElo homeWinProbability awayWinProbability
+		 */
+		public String toString(int index) {
+
+			double homeWinProbability = homeWinProbabilities[index];
+			return gameIds[index] + "\t" + homeTeamIds[index] + "\t" + awayTeamIds[index] + "\t" + homeElos[index]
+					+ "\t" + awayElos[index] + "\t" + homeWinProbability + "\t" + (1 - homeWinProbability);
+		}
+	}
+}